@@ -24,6 +24,12 @@ package ch.zhaw.iamp.rct;
 
 import ch.zhaw.iamp.rct.graph.GraphConverter;
 import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import ch.zhaw.iamp.rct.simulation.GramSink;
+import ch.zhaw.iamp.rct.simulation.SpringLengthSink;
+import ch.zhaw.iamp.rct.toolbox.ResultCache;
+import ch.zhaw.iamp.rct.toolbox.SimulationCommand;
+import ch.zhaw.iamp.rct.toolbox.SpringLengthsTail;
+import ch.zhaw.iamp.rct.toolbox.TailListener;
 import ch.zhaw.iamp.rct.ui.AboutWindow;
 import ch.zhaw.iamp.rct.ui.GrammarHelpWindow;
 import ch.zhaw.iamp.rct.ui.GrammarWindow;
@@ -33,14 +39,24 @@ import ch.zhaw.iamp.rct.ui.MainWindow;
 import ch.zhaw.iamp.rct.ui.WeightsCalculatorWindow;
 import ch.zhaw.iamp.rct.util.Components;
 import ch.zhaw.iamp.rct.util.Dialogs;
+import ch.zhaw.iamp.rct.util.ProcessListener;
+import ch.zhaw.iamp.rct.util.ProcessRunner;
+import ch.zhaw.iamp.rct.weights.GramAccumulator;
+import ch.zhaw.iamp.rct.weights.ProgressListener;
 import ch.zhaw.iamp.rct.weights.Weights;
-import java.awt.HeadlessException;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JOptionPane;
@@ -59,6 +75,8 @@ public class Controller {
     private final static String GRAMMAR_GRAPH_MASSES_FILENAME_PREFIX = "masses-";
     private final static String GRAMMAR_GRAPH_CONNECTION_MAP_FILENAME_PREFIX = "connection-map-";
     private final static String GRAMMAR_GRAPH_OUTPUT_FILE_ENDING = ".csv";
+    private final static String CACHE_HIT_MESSAGE = "[J] The spring lengths have been restored from the cache.";
+    private final static int DEFAULT_WEIGHTS_OFFSET = 1000;
     MainWindow mainWindow;
     private GrammarWindow grammarWindow;
     private WeightsCalculatorWindow weightsCalculatorWindow;
@@ -66,7 +84,17 @@ public class Controller {
     private InitialisationHelpWindow initialisationHelpWindow;
     private AboutWindow aboutWindow;
     private LoadGraphWindow loadGraphWindow;
-    private Thread weightCalulation;
+    private final ExecutorService weightsCalculationExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "weights-calculation");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final List<Future<?>> weightsCalculations = new LinkedList<>();
+    private volatile Future<Integer> simulation;
+    private final ResultCache resultCache = new ResultCache();
 
     /**
      * Shows the {@link MainWindow}. If there is no instance yet, one will be
@@ -284,25 +312,34 @@ public class Controller {
     /**
      * Calculates the weights configured in {@link WeightsCalculatorWindow} and
      * writes the result to the also configure output file.
+     * <p>
+     * The calculation runs on a dedicated background thread. The configuration
+     * is read when this method is invoked, so further calculations with other
+     * values may be queued while one is running. They are processed one after
+     * another.
      */
     public void calculateWeights() {
-        weightCalulation = new Thread() {
+        final String springLengthsPath = weightsCalculatorWindow.getSpringLengthsPath();
+        final String anglesPath = weightsCalculatorWindow.getAnglesPath();
+        final String outputPath = weightsCalculatorWindow.getOutputPath();
+        final int offset = weightsCalculatorWindow.getNumberOfOffsetSteps();
+
+        Runnable weightsCalculation = new Runnable() {
             @Override
             public void run() {
+                long startTime = System.currentTimeMillis();
 
                 try {
-                    long startTime = System.currentTimeMillis();
-
-                    Weights.calculateWeights(
-                            weightsCalculatorWindow.getSpringLengthsPath(),
-                            weightsCalculatorWindow.getAnglesPath(),
-                            weightsCalculatorWindow.getOutputPath(),
-                            weightsCalculatorWindow.getNumberOfOffsetSteps());
-
-                    weightsCalculatorWindow.configureGuiForCalculationPhase(false);
-                    JOptionPane.showMessageDialog(weightsCalculatorWindow, "Calculation complete. The opartion took " + getDuration(startTime), "Complete", JOptionPane.INFORMATION_MESSAGE);
-                } catch (HeadlessException ex) {
-                    JOptionPane.showMessageDialog(weightsCalculatorWindow, "An error occurred: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    Weights.calculateWeights(springLengthsPath, anglesPath, outputPath, offset, new ProgressListener() {
+                        @Override
+                        public void phaseStarted(Weights.Phase phase) {
+                            showWeightsCalculationProgress(phase);
+                        }
+                    });
+
+                    showWeightsCalculationResult("Calculation complete. The opartion took " + getDuration(startTime), null);
+                } catch (IOException | RuntimeException ex) {
+                    showWeightsCalculationResult(null, ex);
                 }
             }
 
@@ -314,7 +351,102 @@ public class Controller {
             }
         };
 
-        SwingUtilities.invokeLater(weightCalulation);
+        FutureTask<Void> task = new FutureTask<Void>(weightsCalculation, null) {
+            private final AtomicBoolean isClaimed = new AtomicBoolean();
+
+            /**
+             * The calculation is finished where it actually ends, so a
+             * cancelled calculation still counts as pending until it has
+             * stopped writing its output file.
+             */
+            @Override
+            public void run() {
+                if (!isClaimed.compareAndSet(false, true)) {
+                    return;
+                }
+
+                try {
+                    super.run();
+                } finally {
+                    finishWeightsCalculation(this);
+                }
+            }
+
+            /**
+             * Only finishes a calculation which has been cancelled before it
+             * was started, because its run() will never do so.
+             */
+            @Override
+            protected void done() {
+                if (isClaimed.compareAndSet(false, true)) {
+                    finishWeightsCalculation(this);
+                }
+            }
+        };
+
+        synchronized (weightsCalculations) {
+            weightsCalculations.add(task);
+        }
+
+        weightsCalculationExecutor.execute(task);
+        weightsCalculatorWindow.configureGuiForCalculationPhase(true);
+        weightsCalculatorWindow.showCalculationProgress(null, getNumberOfPendingWeightsCalculations());
+    }
+
+    /**
+     * Cancels the running and all queued weights calculations. A running
+     * calculation stops at the next point where it checks for cancellation.
+     */
+    public void cancelWeightsCalculations() {
+        synchronized (weightsCalculations) {
+            for (Future<?> calculation : weightsCalculations) {
+                calculation.cancel(true);
+            }
+        }
+    }
+
+    private void finishWeightsCalculation(Future<?> calculation) {
+        synchronized (weightsCalculations) {
+            weightsCalculations.remove(calculation);
+        }
+
+        showWeightsCalculationProgress(null);
+    }
+
+    private int getNumberOfPendingWeightsCalculations() {
+        synchronized (weightsCalculations) {
+            return weightsCalculations.size();
+        }
+    }
+
+    private void showWeightsCalculationProgress(final Weights.Phase phase) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                int pending = getNumberOfPendingWeightsCalculations();
+
+                if (pending == 0) {
+                    weightsCalculatorWindow.configureGuiForCalculationPhase(false);
+                } else {
+                    weightsCalculatorWindow.showCalculationProgress(phase, pending);
+                }
+            }
+        });
+    }
+
+    private void showWeightsCalculationResult(final String message, final Exception error) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (error instanceof CancellationException) {
+                    System.out.println("[J] " + error.getMessage());
+                } else if (error != null) {
+                    Weights.showCalculationError(weightsCalculatorWindow, error);
+                } else {
+                    JOptionPane.showMessageDialog(weightsCalculatorWindow, message, "Complete", JOptionPane.INFORMATION_MESSAGE);
+                }
+            }
+        });
     }
 
     /**
@@ -382,49 +514,263 @@ public class Controller {
     }
 
     public void shutdown() {
+        cancelSimulation();
         System.exit(0);
     }
 
     /**
      * Starts the simulation by invoking a new process of the physics control
-     * toolbox.
+     * toolbox. The process runs in the background; its output is shown live in
+     * the {@link MainWindow}, and the window is unlocked when it has ended.
+     * <p>
+     * If the same inputs have been simulated before, the spring lengths are
+     * taken from the {@link ResultCache} instead.
+     * <p>
+     * In the learning phase, the spring lengths are accumulated against the
+     * trajectory while they are written, and the weights are written to the
+     * weights file as soon as the run has ended successfully. The offset is
+     * taken from the {@link WeightsCalculatorWindow}, if it has been opened.
+     * <p>
+     * Reading the inputs, looking up the cache and writing the weights of a
+     * cached result take place on the thread of the weights calculations, so
+     * they neither block the GUI nor write the weights file concurrently with
+     * a weights calculation.
      */
     public void runSimulation() {
-        SwingUtilities.invokeLater(new Runnable() {
+        System.out.println("[J] Invoking simulation.");
+        final SimulationCommand command = getSimulationCommand();
+        final int offset = getWeightsOffset();
+
+        try {
+            verifyBinaryState();
+        } catch (InterruptedException ex) {
+            showInvocationError(ex);
+            return;
+        }
+
+        weightsCalculationExecutor.execute(new Runnable() {
             @Override
             public void run() {
-                System.out.println("[J] Invoking simulation.");
-                int processExitValue = SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE;
-
                 try {
-                    verifyBinaryState();
+                    startSimulation(command, offset);
+                } catch (IOException | RuntimeException ex) {
+                    showInvocationError(ex);
+                }
+            }
+        });
+    }
 
-                    Process process = Runtime.getRuntime().exec(getAssembledCommand());
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-                    String line = reader.readLine();
+    private void startSimulation(final SimulationCommand command, int offset) throws IOException {
+        final GramSink gramSink = createGramSink(command, offset);
+        final String key = ResultCache.computeKey(command);
 
-                    while (line != null) {
-                        System.out.println(line);
-                        line = reader.readLine();
-                    }
+        if (resultCache.restore(key, new File(command.getSpringLengthsFile()))) {
+            System.out.println(CACHE_HIT_MESSAGE);
+            showSimulationOutput(CACHE_HIT_MESSAGE);
 
-                    process.waitFor();
-                    processExitValue = process.exitValue();
-                } catch (IOException | InterruptedException ex) {
-                    System.out.println("[J] The process led to an exception: " + ex.getMessage());
-                    Dialogs.showErrorPane(mainWindow, "Error", "<html>Could not invoke the Physics Toolbox:<br />" + ex.getMessage() + "</html>");
+            if (gramSink != null && closeSpringLengthsTail(new SpringLengthsTail(new File(command.getSpringLengthsFile()), gramSink))) {
+                writeWeights(gramSink, command);
+            }
+
+            showSimulationEnd(0);
+            return;
+        }
+
+        SimulationRun run = new SimulationRun();
+        final SpringLengthsTail tail = createSpringLengthsTail(command, gramSink, run);
+        ProcessRunner runner = new ProcessRunner(command.toArray());
+        runner.setListener(new ProcessListener() {
+            @Override
+            public void lineRead(String line, boolean isError) {
+                (isError ? System.err : System.out).println(line);
+                showSimulationOutput(line);
+            }
+
+            @Override
+            public void processEnded(Integer exitValue, boolean isTimedOut) {
+                boolean isComplete = closeSpringLengthsTail(tail);
+
+                if (exitValue != null && exitValue == 0) {
+                    storeInResultCache(key, command);
+
+                    if (gramSink != null && isComplete) {
+                        writeWeights(gramSink, command);
+                    }
                 }
 
-                System.out.println("[J] Simulation ended with the exit code " + processExitValue + ".");
+                showSimulationEnd(exitValue == null ? SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE : exitValue);
+            }
+        });
+        tail.start();
+
+        try {
+            simulation = runner.start();
+            run.setFuture(simulation);
+        } catch (IOException ex) {
+            closeSpringLengthsTail(tail);
+            throw ex;
+        }
+    }
+
+    private void showInvocationError(final Exception ex) {
+        System.out.println("[J] The process led to an exception: " + ex.getMessage());
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                Dialogs.showErrorPane(mainWindow, "Error", "<html>Could not invoke the Physics Toolbox:<br />" + ex.getMessage() + "</html>");
+            }
+        });
+        showSimulationEnd(SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE);
+    }
+
+    /**
+     * @return A sink which accumulates the spring lengths against the
+     * trajectory of the given command in the learning phase, or null in the
+     * execution phase.
+     * @throws IOException If the trajectory could not be read.
+     */
+    private GramSink createGramSink(SimulationCommand command, int offset) throws IOException {
+        if (!command.isLearningPhase()) {
+            return null;
+        }
+
+        return new GramSink(Weights.csvToMatrix(command.getTrajectoryFile()), offset);
+    }
+
+    private int getWeightsOffset() {
+        if (weightsCalculatorWindow != null) {
+            try {
+                return weightsCalculatorWindow.getNumberOfOffsetSteps();
+            } catch (NumberFormatException ex) {
+                System.out.println("[J] The offset of the Weights Calculator is invalid, " + DEFAULT_WEIGHTS_OFFSET + " is used instead.");
+            }
+        }
+
+        return DEFAULT_WEIGHTS_OFFSET;
+    }
 
-                if (processExitValue == SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE) {
-                    System.out.println("[J] The exit code is associated with "
-                            + "SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE. Please "
-                            + "check if there is anything wrong with the "
-                            + "environment what could have let to an invocation "
-                            + "problem of the mariumapp executable.");
+    /**
+     * Creates a tail on the spring lengths file of the given command, which
+     * passes the rows to the given sink, shows the number of written rows in
+     * the {@link MainWindow} and aborts the given run as soon as invalid
+     * spring lengths are written. A spring lengths file of an earlier run is
+     * deleted, so it is not mistaken for output of this one.
+     *
+     * @param sink The sink to pass the rows to, or null.
+     * @param run The run which writes the spring lengths.
+     */
+    private SpringLengthsTail createSpringLengthsTail(SimulationCommand command, SpringLengthSink sink, final SimulationRun run) {
+        File springLengthsFile = new File(command.getSpringLengthsFile());
+        FileUtils.deleteQuietly(springLengthsFile);
+
+        if (sink == null) {
+            sink = new SpringLengthSink() {
+                @Override
+                public void accept(int sample, double[] springLengths) {
                 }
+            };
+        }
+
+        SpringLengthsTail tail = new SpringLengthsTail(springLengthsFile, sink);
+        tail.setListener(new TailListener() {
+            @Override
+            public void rowsAppended(final int numberOfRows) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        mainWindow.showNumberOfWrittenRows(numberOfRows);
+                    }
+                });
+            }
+
+            @Override
+            public void tailFailed(Exception error) {
+                System.out.println("[J] The simulation is aborted: " + error.getMessage());
+                showSimulationOutput("[J] The simulation is aborted: " + error.getMessage());
+                run.abort();
+            }
+        });
+
+        return tail;
+    }
+
+    /**
+     * @return true, if all spring lengths have been read and are valid, false
+     * otherwise.
+     */
+    private boolean closeSpringLengthsTail(SpringLengthsTail tail) {
+        try {
+            tail.close();
+            System.out.println("[J] " + tail.getNumberOfRows() + " rows of spring lengths have been read.");
+            return true;
+        } catch (IOException ex) {
+            System.out.println("[J] The spring lengths are incomplete or invalid: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Solves the normal equations accumulated during the run and writes the
+     * weights to the weights file of the given command. They are regularized
+     * like the weights of the {@link WeightsCalculatorWindow}, with the ridge
+     * equivalent to its noise.
+     */
+    private void writeWeights(GramSink sink, SimulationCommand command) {
+        GramAccumulator accumulator = sink.getAccumulator();
+        String message;
 
+        if (accumulator == null) {
+            message = "[J] The weights could not be calculated, since the run has not written more rows than the offset.";
+        } else {
+            try {
+                Weights.matrixToCsv(accumulator.solve(Weights.getNoiseRidge(accumulator.getNumberOfRows())), command.getWeightsFile());
+                message = "[J] The weights of " + accumulator.getNumberOfRows() + " steps have been written to '" + command.getWeightsFile() + "'.";
+            } catch (IOException | RuntimeException ex) {
+                message = "[J] The weights could not be written: " + ex.getMessage();
+            }
+        }
+
+        System.out.println(message);
+        showSimulationOutput(message);
+    }
+
+    private void storeInResultCache(String key, SimulationCommand command) {
+        try {
+            resultCache.store(key, new File(command.getSpringLengthsFile()));
+        } catch (IOException ex) {
+            System.out.println("[J] The spring lengths could not be cached: " + ex.getMessage());
+        }
+    }
+
+    private void cancelSimulation() {
+        if (simulation != null) {
+            simulation.cancel(true);
+        }
+    }
+
+    private void showSimulationOutput(final String line) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                mainWindow.appendSimulationOutput(line);
+            }
+        });
+    }
+
+    private void showSimulationEnd(final int processExitValue) {
+        System.out.println("[J] Simulation ended with the exit code " + processExitValue + ".");
+
+        if (processExitValue == SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE) {
+            System.out.println("[J] The exit code is associated with "
+                    + "SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE. Please "
+                    + "check if there is anything wrong with the "
+                    + "environment what could have let to an invocation "
+                    + "problem of the mariumapp executable.");
+        }
+
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
                 mainWindow.configureGuiForRunningPhase(false);
             }
         });
@@ -441,25 +787,48 @@ public class Controller {
     }
 
     /**
-     * Assembles the arguments for the interface of the Physics Toolbox.
-     *
-     * @return The assembled command to run.
+     * @return The invocation of the Physics Toolbox, as configured in the
+     * {@link MainWindow}.
      */
-    private String[] getAssembledCommand() {
-        return new String[]{
-            mainWindow.getExecutableFilePath(),
-            mainWindow.getMassesFilePath(),
-            mainWindow.getConnectionMapFilePath(),
-            mainWindow.getMassCooridinatesFilePath(),
-            mainWindow.getTrajectoryFilePath(),
-            mainWindow.getWeightsFilePath(),
-            String.valueOf(false),
-            String.valueOf(mainWindow.isLearningPhase())
-        };
+    public SimulationCommand getSimulationCommand() {
+        return new SimulationCommand(
+                mainWindow.getExecutableFilePath(),
+                mainWindow.getMassesFilePath(),
+                mainWindow.getConnectionMapFilePath(),
+                mainWindow.getMassCooridinatesFilePath(),
+                mainWindow.getTrajectoryFilePath(),
+                mainWindow.getWeightsFilePath(),
+                mainWindow.isLearningPhase());
     }
 
     public GrammarHelpWindow getGrammarHelpWindow() {
         return grammarHelpWindow;
     }
 
+    /**
+     * The future of one run of the Physics Toolbox. A run which is aborted
+     * before its process has been started is cancelled as soon as it is.
+     */
+    private static class SimulationRun {
+
+        private Future<Integer> future;
+        private boolean isAborted;
+
+        synchronized void setFuture(Future<Integer> future) {
+            this.future = future;
+
+            if (isAborted) {
+                future.cancel(true);
+            }
+        }
+
+        synchronized void abort() {
+            isAborted = true;
+
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.grammar;
+
+import ch.zhaw.iamp.rct.grammar.Initialisation.Element;
+import ch.zhaw.iamp.rct.grammar.Initialisation.Loop;
+import ch.zhaw.iamp.rct.grammar.Initialisation.Symbol;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the expansions of symbols and loop bodies, so that repeated and
+ * nested loops reuse them instead of replacing the same symbols again.
+ * <p>
+ * A symbol is keyed by itself and its number of replacement rounds, a loop
+ * body by its elements and the rounds its loops add. Since the expansion of
+ * a symbol after k rounds consists of the expansions of its replacement after
+ * k - 1 rounds, the cache fills up from the innermost rounds. Only short
+ * expansions are kept, and the least recently used ones are dropped first.
+ * <p>
+ * A cache holds for one set of rules only, see
+ * {@link #forRules(ExpansionCache, List)}. It is not thread-safe.
+ */
+class ExpansionCache {
+
+    final static int MAX_CACHED_LENGTH = 1024;
+    final static int MAX_CACHED_ROUNDS = 64;
+    final static int MAX_ENTRIES = 2048;
+    /**
+     * Marks expansions that are too long or that produce symbols that cannot
+     * be replaced. Those are left to the expansion, which reports them.
+     */
+    private final static String NOT_CACHEABLE = new String();
+    private final RuleTable rules;
+    private final Map<Object, String> expansions = new LinkedHashMap<Object, String>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    ExpansionCache(RuleTable rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @param previous The cache of the previous parsing run, or null.
+     * @param rules The current production rules.
+     * @return The previous cache if the rules did not change, a new one
+     * otherwise.
+     */
+    static ExpansionCache forRules(ExpansionCache previous, List<Rule> rules) {
+        RuleTable table = new RuleTable(rules);
+
+        if (previous != null && previous.rules.equals(table)) {
+            return previous;
+        }
+
+        return new ExpansionCache(table);
+    }
+
+    RuleTable getRules() {
+        return rules;
+    }
+
+    /**
+     * @param symbol A symbol of the initialisation, not one produced by a
+     * rule.
+     * @param rounds The number of replacement rounds.
+     * @return The expanded symbol, or null if it is not cached.
+     */
+    String getSymbol(char symbol, long rounds) {
+        String replacement = rules.getReplacement(symbol);
+
+        if (rounds <= 0 || replacement == null) {
+            return String.valueOf(symbol);
+        }
+
+        if (rounds > MAX_CACHED_ROUNDS) {
+            return null;
+        }
+
+        Long key = rounds << 16 | symbol;
+        String expansion = expansions.get(key);
+
+        if (expansion == null) {
+            expansion = expandSymbol(replacement, rounds - 1);
+            expansions.put(key, expansion);
+        }
+
+        return expansion == NOT_CACHEABLE ? null : expansion;
+    }
+
+    private String expandSymbol(String replacement, long rounds) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < replacement.length(); i++) {
+            char symbol = replacement.charAt(i);
+
+            if (rounds > 0 && !GrammarParser.isLetter(symbol)) {
+                return NOT_CACHEABLE;
+            }
+
+            String expansion = getSymbol(symbol, rounds);
+
+            if (expansion == null || builder.length() + expansion.length() > MAX_CACHED_LENGTH) {
+                return NOT_CACHEABLE;
+            }
+
+            builder.append(expansion);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @param body The elements of a loop body.
+     * @param extraRounds The rounds the enclosing loops add to each symbol.
+     * @return The expanded body, or null if it is not cached.
+     */
+    String getBody(List<Element> body, long extraRounds) {
+        BodyKey key = new BodyKey(body, extraRounds);
+        String expansion = expansions.get(key);
+
+        if (expansion == null) {
+            expansion = expandBody(body, extraRounds);
+            expansions.put(key, expansion);
+        }
+
+        return expansion == NOT_CACHEABLE ? null : expansion;
+    }
+
+    private String expandBody(List<Element> body, long extraRounds) {
+        StringBuilder builder = new StringBuilder();
+
+        for (Element element : body) {
+            String expansion;
+
+            if (element instanceof Loop) {
+                Loop loop = (Loop) element;
+                expansion = getBody(loop.body, extraRounds + loop.count - 1);
+            } else {
+                expansion = getSymbol(((Symbol) element).symbol, extraRounds + 1);
+            }
+
+            if (expansion == null || builder.length() + expansion.length() > MAX_CACHED_LENGTH) {
+                return NOT_CACHEABLE;
+            }
+
+            builder.append(expansion);
+        }
+
+        return builder.toString();
+    }
+
+    private static class BodyKey {
+
+        final List<Element> body;
+        final long extraRounds;
+
+        BodyKey(List<Element> body, long extraRounds) {
+            this.body = body;
+            this.extraRounds = extraRounds;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof BodyKey)) {
+                return false;
+            }
+
+            BodyKey key = (BodyKey) other;
+
+            return extraRounds == key.extraRounds && body.equals(key.body);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * body.hashCode() + (int) (extraRounds ^ (extraRounds >>> 32));
+        }
+    }
+
+}
@@ -76,16 +76,9 @@ public class GrammarParser extends Parser {
     }
 
     public static final Range DEFAULT_EXPANSION_RANGE_X = new Range(-1000, 1000);
-    private static final String BASIC_DEFINITION_PATTERN = "[ \t]*DEF([ \t]+((-?[0-9]+(\\.[0-9]*)*)|([a-zA-Z]+)))+[ \t]*";
-    private static final String BASIC_NUMBER_PAIR_DEFINITION_PATTERN = "[ \t]*DEF([ \t]+-?[0-9]+(\\.[0-9]*)?[ \t]+-?[0-9]+(\\.[0-9]*)?)+[ \t]*";
-    private static final String BASIC_CREATION_PATTERN = "[ \t]*DEF[ \t]+([a-zA-Z])[ \t]+\\[[ \t]*(-?[0-9]+(\\.[0-9]*)?)[ \t]*,[ \t]*(-?[0-9]+(\\.[0-9]*)?)[ \t]*\\][ \t]*";
-    private static final String RANGE_PATTERN = "[ \t]*DEF[ \t]+\\[[ \t]*(-?[0-9]+(\\.[0-9]*)?)[ \t]*,[ \t]*(-?[0-9]+(\\.[0-9]*)?)[ \t]*\\][ \t]*";
-    private static final String OPTIONS_PATTERN = "[ \t]*options(([ \t]+[a-zA-Z]+)+)[ \t]*";
     private static final Pattern LETTER_PATTERN = Pattern.compile("([ \t]*[a-zA-Z][ \t]+)(([ \t]*[a-zA-Z])*)[ \t]*");
-    private static final Pattern COORDINATES_PATTERN = Pattern.compile("[ \t]*[a-zA-Z0-9]*([ \t]*-?[0-9]+\\.?[0-9]*[ \t]*-?[0-9]+\\.?[0-9]*)+[ \t]*[- \t_a-zA-Z0-9]*");
-    private static final Pattern PRODUCTION_RULE_PATTERN = Pattern.compile("[ \t]*productionRules(([ \t]+([_a-zA-Z]+[_0-9a-zA-Z]*)[ \t]*->[ \t]*([-_a-zA-Z0-9]+))+)[ \t]*");
     private static final Pattern INTEGER_PATTERN = Pattern.compile("[ \t]*[a-zA-Z0-9]*[ \t]*(-?[0-9]+)[ \t]*[- \t_a-zA-Z0-9]*");
-    private final static HashMap<Keyword, Pattern> keywordPatterns = new HashMap<>();
+    private final static Map<String, Keyword> keywords = new HashMap<>();
     NetworkGraph graph = new NetworkGraph();
     Mass shoulder, elbow, hand, upperArmSegment, lowerArmSegment;
     List<Mass> inputs = new LinkedList<>();
@@ -98,36 +91,8 @@ public class GrammarParser extends Parser {
     int numberOfRandomSprings = 0;
 
     static {
-        prepareKeywordPatterns();
-    }
-
-    private static void prepareKeywordPatterns() {
         for (Keyword keyword : Keyword.values()) {
-            String pattern = BASIC_DEFINITION_PATTERN;
-
-            switch (keyword) {
-                case shoulder:
-                case elbow:
-                case hand:
-                case input:
-                    pattern = BASIC_NUMBER_PAIR_DEFINITION_PATTERN;
-                    break;
-                case createMass:
-                case createSpring:
-                    pattern = BASIC_CREATION_PATTERN;
-                    break;
-                case productionRules:
-                    pattern = PRODUCTION_RULE_PATTERN.toString();
-                    break;
-                case options:
-                    pattern = OPTIONS_PATTERN;
-                    break;
-                case expansionRangeX:
-                    pattern = RANGE_PATTERN;
-                    break;
-            }
-
-            keywordPatterns.put(keyword, Pattern.compile(pattern.replace("DEF", keyword.toString())));
+            keywords.put(keyword.toString(), keyword);
         }
     }
 
@@ -155,73 +120,56 @@ public class GrammarParser extends Parser {
                 continue;
             }
 
-            if (isKeywordLine(lines[i])) {
-                switch (getKeywordOfLine(lines[i])) {
-                    case shoulder:
-                        shoulder = parseMasses(lines[i]).get(0);
-                        shoulder.setType(SHOULDER);
-                        graph.addMasses(shoulder);
-                        break;
-                    case elbow:
-                        elbow = parseMasses(lines[i]).get(0);
-                        elbow.setType(ELBOW);
-                        graph.addMasses(elbow);
-                        break;
-                    case hand:
-                        hand = parseMasses(lines[i]).get(0);
-                        hand.setType(HAND);
-                        graph.addMasses(hand);
-                        break;
-                    case input:
-                        Mass input = parseMasses(lines[i]).get(0);
-                        input.setType(INPUT);
-                        inputs.add(input);
-                        graph.addMasses(input);
-                        break;
-                    case productionRules:
-                        productionRules.addAll(parseProductionRule(lines[i]));
-                        break;
-                    case expansionRangeX:
-                        expansionRangeX = parseExpansionRange(lines[i]);
-                        break;
-                    case createMass:
-                        String massLetter = parseCreateLetter(lines[i]);
-                        Range createMassRange = parseCreateRange(lines[i]);
-                        massCreations.put(massLetter, createMassRange);
-                        break;
-                    case createSpring:
-                        String springLetter = parseCreateLetter(lines[i]);
-                        Range createSpringRange = parseCreateRange(lines[i]);
-                        springCreations.put(springLetter, createSpringRange);
-                        break;
-                    case randomMasses:
-                        numberOfRandomMasses = parseInteger(lines[i]);
-                        break;
-                    case randomSprings:
-                        numberOfRandomSprings = parseInteger(lines[i]);
-                        break;
-                    case options:
-                        options.addAll(parseOptions(lines[i]));
-                        break;
-                }
+            Statement statement = parseStatement(lines[i]);
 
+            if (statement == null) {
+                errors.add(new ParserError(i, "Cannot understand this line."));
                 continue;
             }
 
-            errors.add(new ParserError(i, "Cannot understand this line."));
-        }
-
-        createAndConnectSegmentsToInputs();
-    }
-
-    private boolean isKeywordLine(String s) {
-        for (Keyword keyword : Keyword.values()) {
-            if (s.matches(keywordPatterns.get(keyword).pattern())) {
-                return true;
+            switch (statement.keyword) {
+                case shoulder:
+                    shoulder = statement.masses.get(0);
+                    graph.addMasses(shoulder);
+                    break;
+                case elbow:
+                    elbow = statement.masses.get(0);
+                    graph.addMasses(elbow);
+                    break;
+                case hand:
+                    hand = statement.masses.get(0);
+                    graph.addMasses(hand);
+                    break;
+                case input:
+                    Mass input = statement.masses.get(0);
+                    inputs.add(input);
+                    graph.addMasses(input);
+                    break;
+                case productionRules:
+                    productionRules.addAll(statement.rules);
+                    break;
+                case expansionRangeX:
+                    expansionRangeX = statement.range;
+                    break;
+                case createMass:
+                    massCreations.put(statement.letter, statement.range);
+                    break;
+                case createSpring:
+                    springCreations.put(statement.letter, statement.range);
+                    break;
+                case randomMasses:
+                    numberOfRandomMasses = statement.integer;
+                    break;
+                case randomSprings:
+                    numberOfRandomSprings = statement.integer;
+                    break;
+                case options:
+                    options.addAll(statement.options);
+                    break;
             }
         }
 
-        return false;
+        createAndConnectSegmentsToInputs();
     }
 
     private void createAndConnectSegmentsToInputs() {
@@ -278,14 +226,14 @@ public class GrammarParser extends Parser {
         return inputsBetween;
     }
 
+    /**
+     * @param s The line.
+     * @return The keyword of the line, or null if the line is not a valid
+     * keyword line.
+     */
     static Keyword getKeywordOfLine(String s) {
-        for (Keyword keyword : Keyword.values()) {
-            if (s.matches(keywordPatterns.get(keyword).pattern())) {
-                return keyword;
-            }
-        }
-
-        return null;
+        Statement statement = parseStatement(s);
+        return statement == null ? null : statement.keyword;
     }
 
     public List<Rule> getProductionRules() {
@@ -351,23 +299,13 @@ public class GrammarParser extends Parser {
     }
 
     static List<Mass> parseMasses(String line) {
-        Matcher matcher = COORDINATES_PATTERN.matcher(line);
-        ArrayList<Mass> masses = new ArrayList<>();
+        Statement statement = parseStatement(line);
 
-        if (!matcher.find()) {
-            return masses;
-        }
-
-        Type typeOfMass = getTypeForKeyword(getKeywordOfLine(line));
-        String[] coordinates = matcher.group(0).split("[ \t]");
-
-        for (int i = 1; i < coordinates.length; i += 2) {
-            String x = coordinates[i];
-            String y = coordinates[i + 1];
-            masses.add(new Mass(Double.parseDouble(x), Double.parseDouble(y), typeOfMass));
+        if (statement == null || statement.masses == null) {
+            return new ArrayList<>();
         }
 
-        return masses;
+        return statement.masses;
     }
 
     private static Type getTypeForKeyword(Keyword keyword) {
@@ -391,22 +329,7 @@ public class GrammarParser extends Parser {
     }
 
     static List<Rule> parseProductionRule(String line) {
-        Matcher matcher = PRODUCTION_RULE_PATTERN.matcher(line);
-        LinkedList<Rule> rules = new LinkedList<>();
-
-        matcher.find();
-        String rulePart = matcher.group(1).replaceAll("[ \t]+->[ \t]", "->");
-        String[] rulePairs = rulePart.split("[ \t]+");
-
-        for (String rule : rulePairs) {
-            if (rule.trim().length() > 0) {
-                String search = rule.split("->")[0];
-                String replace = rule.split("->")[1];
-                rules.add(new Rule(search, replace));
-            }
-        }
-
-        return rules;
+        return parseStatement(line, Keyword.productionRules).rules;
     }
 
     static Set<String> parseLetters(String line) {
@@ -431,54 +354,457 @@ public class GrammarParser extends Parser {
     }
 
     static Range parseCreateRange(String line) {
-        Keyword keyword = getKeywordOfLine(line);
-        Matcher matcher = keywordPatterns.get(keyword).matcher(line);
+        return parseStatement(line, Keyword.createMass, Keyword.createSpring).range;
+    }
 
-        matcher.find();
-        double min = Double.parseDouble(matcher.group(2));
-        double max = Double.parseDouble(matcher.group(4));
+    static Range parseExpansionRange(String line) {
+        return parseStatement(line, Keyword.expansionRangeX).range;
+    }
 
-        return new Range(min, max);
+    static String parseCreateLetter(String line) {
+        return parseStatement(line, Keyword.createMass, Keyword.createSpring).letter;
     }
 
-    static Range parseExpansionRange(String line) {
-        Keyword keyword = getKeywordOfLine(line);
-        Matcher matcher = keywordPatterns.get(keyword).matcher(line);
+    static List<Option> parseOptions(String line) {
+        return parseStatement(line, Keyword.options).options;
+    }
 
-        matcher.find();
-        double min = Double.parseDouble(matcher.group(1));
-        double max = Double.parseDouble(matcher.group(3));
+    private static Statement parseStatement(String line, Keyword... expectedKeywords) {
+        Statement statement = parseStatement(line);
+
+        if (statement != null) {
+            for (Keyword keyword : expectedKeywords) {
+                if (statement.keyword == keyword) {
+                    return statement;
+                }
+            }
+        }
 
-        return new Range(min, max);
+        throw new IllegalArgumentException("The line '" + line + "' is not a valid " + expectedKeywords[0] + " line.");
     }
 
-    static String parseCreateLetter(String line) {
-        Keyword keyword = getKeywordOfLine(line);
-        Matcher matcher = keywordPatterns.get(keyword).matcher(line);
+    /**
+     * Parses a single line in one pass: the first word selects the keyword,
+     * and the rest is read by the part of the parser for this keyword.
+     *
+     * @param line The line.
+     * @return The parsed line, or null if it is not a valid keyword line.
+     */
+    static Statement parseStatement(String line) {
+        LineScanner scanner = new LineScanner(line);
+        scanner.skipBlanks();
+        Keyword keyword = keywords.get(scanner.readToken());
 
-        matcher.find();
-        return matcher.group(1);
+        if (keyword == null) {
+            return null;
+        }
+
+        Statement statement = new Statement(keyword);
+        boolean isValid;
+
+        switch (keyword) {
+            case shoulder:
+            case elbow:
+            case hand:
+            case input:
+                isValid = parseCoordinates(scanner, statement);
+                break;
+            case createMass:
+            case createSpring:
+                isValid = parseCreation(scanner, statement);
+                break;
+            case expansionRangeX:
+                isValid = parseRange(scanner, statement);
+                break;
+            case productionRules:
+                isValid = parseRules(scanner, statement);
+                break;
+            case options:
+                isValid = parseOptionNames(scanner, statement);
+                break;
+            default:
+                isValid = parseIntegerValue(scanner, statement);
+                break;
+        }
+
+        return isValid ? statement : null;
     }
 
-    static List<Option> parseOptions(String line) {
-        Keyword keyword = getKeywordOfLine(line);
-        Matcher matcher = keywordPatterns.get(keyword).matcher(line);
-        List<Option> options = new LinkedList<>();
+    /**
+     * {@code shoulder 1 2}: one or more coordinate pairs.
+     */
+    private static boolean parseCoordinates(LineScanner scanner, Statement statement) {
+        List<String> tokens = scanner.readTokens();
 
-        matcher.find();
-        String optionString = matcher.group(1);
+        if (tokens.isEmpty() || tokens.size() % 2 != 0) {
+            return false;
+        }
+
+        for (String token : tokens) {
+            if (!isNumber(token, false)) {
+                return false;
+            }
+        }
+
+        Type type = getTypeForKeyword(statement.keyword);
+        statement.masses = new ArrayList<>();
+
+        for (int i = 0; i < tokens.size(); i += 2) {
+            statement.masses.add(new Mass(Double.parseDouble(tokens.get(i)), Double.parseDouble(tokens.get(i + 1)), type));
+        }
+
+        return true;
+    }
+
+    /**
+     * {@code createMass A [1, 2]}: a letter and a range.
+     */
+    private static boolean parseCreation(LineScanner scanner, Statement statement) {
+        if (scanner.skipBlanks() == 0 || !scanner.isLetter()) {
+            return false;
+        }
+
+        statement.letter = scanner.readChar();
+
+        return scanner.skipBlanks() > 0 && parseRangeValues(scanner, statement);
+    }
 
-        for (String candidate : optionString.split("[ \t]+")) {
-            candidate = candidate.trim();
+    /**
+     * {@code expansionRangeX [1, 2]}: a range.
+     */
+    private static boolean parseRange(LineScanner scanner, Statement statement) {
+        return scanner.skipBlanks() > 0 && parseRangeValues(scanner, statement);
+    }
 
+    private static boolean parseRangeValues(LineScanner scanner, Statement statement) {
+        if (!scanner.skip('[')) {
+            return false;
+        }
+
+        scanner.skipBlanks();
+        String min = scanner.readNumber();
+        scanner.skipBlanks();
+
+        if (min == null || !scanner.skip(',')) {
+            return false;
+        }
+
+        scanner.skipBlanks();
+        String max = scanner.readNumber();
+        scanner.skipBlanks();
+
+        if (max == null || !scanner.skip(']')) {
+            return false;
+        }
+
+        scanner.skipBlanks();
+        statement.range = new Range(Double.parseDouble(min), Double.parseDouble(max));
+
+        return scanner.isAtEnd();
+    }
+
+    /**
+     * {@code productionRules A->aB B -> b}: one or more rules.
+     */
+    private static boolean parseRules(LineScanner scanner, Statement statement) {
+        statement.rules = new LinkedList<>();
+
+        do {
+            if (scanner.skipBlanks() == 0) {
+                return false;
+            }
+
+            String search = scanner.readIdentifier();
+            scanner.skipBlanks();
+
+            if (search == null || !scanner.skip('-') || !scanner.skip('>')) {
+                return false;
+            }
+
+            scanner.skipBlanks();
+            String replace = scanner.readReplacement();
+
+            if (replace == null) {
+                return false;
+            }
+
+            statement.rules.add(new Rule(search, replace));
+        } while (!scanner.hasOnlyBlanksLeft());
+
+        return true;
+    }
+
+    /**
+     * {@code options a b}: one or more words. Unknown options are skipped.
+     */
+    private static boolean parseOptionNames(LineScanner scanner, Statement statement) {
+        List<String> tokens = scanner.readTokens();
+
+        if (tokens.isEmpty()) {
+            return false;
+        }
+
+        statement.options = new LinkedList<>();
+
+        for (String token : tokens) {
+            if (!isWord(token)) {
+                return false;
+            }
+        }
+
+        for (String token : tokens) {
             try {
-                options.add(Option.valueOf(candidate));
+                statement.options.add(Option.valueOf(token));
             } catch (IllegalArgumentException ex) {
                 System.out.println("Did not understand option: " + ex.getMessage());
             }
         }
 
-        return options;
+        return true;
+    }
+
+    /**
+     * {@code randomMasses 5}: numbers and words, of which the first number is
+     * read as integer.
+     */
+    private static boolean parseIntegerValue(LineScanner scanner, Statement statement) {
+        List<String> tokens = scanner.readTokens();
+        String integer = null;
+
+        if (tokens.isEmpty()) {
+            return false;
+        }
+
+        for (String token : tokens) {
+            if (isNumber(token, true)) {
+                if (integer == null) {
+                    int end = token.indexOf('.');
+                    integer = end == -1 ? token : token.substring(0, end);
+                }
+            } else if (!isWord(token)) {
+                return false;
+            }
+        }
+
+        if (integer == null) {
+            return false;
+        }
+
+        try {
+            statement.integer = Integer.parseInt(integer);
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @param allowManyFractions true to accept {@code 1.2.3}, as the generic
+     * value definitions do.
+     * @return true, if the token is an optional minus, digits and an optional
+     * fraction.
+     */
+    private static boolean isNumber(String token, boolean allowManyFractions) {
+        LineScanner scanner = new LineScanner(token);
+        String number = scanner.readNumber();
+
+        while (allowManyFractions && number != null && scanner.skip('.')) {
+            scanner.readDigits();
+        }
+
+        return number != null && scanner.isAtEnd();
+    }
+
+    private static boolean isWord(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (!isLetter(token.charAt(i))) {
+                return false;
+            }
+        }
+
+        return !token.isEmpty();
+    }
+
+    static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * The values read from one keyword line. Only the fields of its keyword
+     * are set.
+     */
+    static class Statement {
+
+        final Keyword keyword;
+        List<Mass> masses;
+        List<Rule> rules;
+        List<Option> options;
+        Range range;
+        String letter;
+        int integer;
+
+        Statement(Keyword keyword) {
+            this.keyword = keyword;
+        }
+    }
+
+    /**
+     * A cursor over a line. Blanks are spaces and tabs only; any other
+     * character, including a carriage return, is part of a token.
+     */
+    private static class LineScanner {
+
+        private final String line;
+        private int position;
+
+        LineScanner(String line) {
+            this.line = line;
+        }
+
+        boolean isAtEnd() {
+            return position == line.length();
+        }
+
+        boolean hasOnlyBlanksLeft() {
+            for (int i = position; i < line.length(); i++) {
+                if (!isBlank(line.charAt(i))) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private boolean isBlank(char c) {
+            return c == ' ' || c == '\t';
+        }
+
+        int skipBlanks() {
+            int start = position;
+
+            while (!isAtEnd() && isBlank(line.charAt(position))) {
+                position++;
+            }
+
+            return position - start;
+        }
+
+        boolean skip(char c) {
+            if (!isAtEnd() && line.charAt(position) == c) {
+                position++;
+                return true;
+            }
+
+            return false;
+        }
+
+        boolean isLetter() {
+            return !isAtEnd() && GrammarParser.isLetter(line.charAt(position));
+        }
+
+        String readChar() {
+            return line.substring(position, ++position);
+        }
+
+        /**
+         * @return The characters up to the next blank.
+         */
+        String readToken() {
+            int start = position;
+
+            while (!isAtEnd() && !isBlank(line.charAt(position))) {
+                position++;
+            }
+
+            return line.substring(start, position);
+        }
+
+        /**
+         * @return The tokens between blanks up to the end of the line.
+         */
+        List<String> readTokens() {
+            List<String> tokens = new ArrayList<>();
+            skipBlanks();
+
+            while (!isAtEnd()) {
+                tokens.add(readToken());
+                skipBlanks();
+            }
+
+            return tokens;
+        }
+
+        int readDigits() {
+            int start = position;
+
+            while (!isAtEnd() && isDigit(line.charAt(position))) {
+                position++;
+            }
+
+            return position - start;
+        }
+
+        /**
+         * @return {@code -?[0-9]+(\.[0-9]*)?}, or null if there is none.
+         */
+        String readNumber() {
+            int start = position;
+            skip('-');
+
+            if (readDigits() == 0) {
+                position = start;
+                return null;
+            }
+
+            if (skip('.')) {
+                readDigits();
+            }
+
+            return line.substring(start, position);
+        }
+
+        /**
+         * @return {@code [_a-zA-Z][_a-zA-Z0-9]*}, or null if there is none.
+         */
+        String readIdentifier() {
+            int start = position;
+
+            if (isAtEnd() || !(GrammarParser.isLetter(line.charAt(position)) || line.charAt(position) == '_')) {
+                return null;
+            }
+
+            while (!isAtEnd() && isIdentifierPart(line.charAt(position))) {
+                position++;
+            }
+
+            return line.substring(start, position);
+        }
+
+        /**
+         * @return {@code [-_a-zA-Z0-9]+} followed by a blank or the end, or
+         * null if there is none.
+         */
+        String readReplacement() {
+            int start = position;
+
+            while (!isAtEnd() && (isIdentifierPart(line.charAt(position)) || line.charAt(position) == '-')) {
+                position++;
+            }
+
+            if (position == start || !(isAtEnd() || isBlank(line.charAt(position)))) {
+                return null;
+            }
+
+            return line.substring(start, position);
+        }
+
+        private boolean isIdentifierPart(char c) {
+            return GrammarParser.isLetter(c) || isDigit(c) || c == '_';
+        }
     }
 
     public boolean allowNegativeYValuesIsSet() {
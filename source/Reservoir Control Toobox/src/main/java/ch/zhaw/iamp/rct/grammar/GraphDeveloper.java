@@ -30,8 +30,10 @@ import static ch.zhaw.iamp.rct.graph.Mass.Type.INPUT;
 import static ch.zhaw.iamp.rct.graph.Mass.Type.NETWORK;
 import ch.zhaw.iamp.rct.graph.Spring;
 import java.security.SecureRandom;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
 
 public class GraphDeveloper {
@@ -41,13 +43,26 @@ public class GraphDeveloper {
     final static double  PROBABILITY_TO_RANDOMLY_CHOOSE_INPUT = 0.2;
     final static int MAXIMAL_RANDOM_LOOP_COUNT_LIMIT = 1000;
     GrammarParser grammar;
-    String developedInit;
+    Iterator<Character> symbols;
     List<ParserError> errors;
     Mass currentPoint;
 
     public GraphDeveloper(GrammarParser grammar, String developedInitialisation) {
+        this(grammar, new StringSymbols(developedInitialisation));
+    }
+
+    /**
+     * Creates a developer that takes the symbols one at a time, for example
+     * from {@link InitialisationParser#symbols(long)}. The development then needs
+     * no expanded string and starts before the expansion is finished. The
+     * symbols can be developed only once.
+     *
+     * @param grammar The grammar with the graph to develop.
+     * @param symbols The expanded symbols of the initialisation.
+     */
+    public GraphDeveloper(GrammarParser grammar, Iterator<Character> symbols) {
         this.grammar = grammar;
-        this.developedInit = developedInitialisation;
+        this.symbols = symbols;
         this.errors = new LinkedList<>();
     }
 
@@ -65,8 +80,8 @@ public class GraphDeveloper {
         grammar.getGraph().removeMassSpringNetwork();
         currentPoint = grammar.getGraph().getInputs().get(0);
 
-        for (int i = 0; i < developedInit.length(); i++) {
-            String letter = developedInit.substring(i, i + 1);
+        for (int i = 0; symbols.hasNext(); i++) {
+            String letter = String.valueOf(symbols.next().charValue());
 
             if (grammar.isMassCreation(letter)) {
                 Mass createdMass = createMass(letter);
@@ -261,4 +276,33 @@ public class GraphDeveloper {
         return errors;
     }
 
+    private static class StringSymbols implements Iterator<Character> {
+
+        private final String text;
+        private int position;
+
+        StringSymbols(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < text.length();
+        }
+
+        @Override
+        public Character next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return text.charAt(position++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
 }
@@ -0,0 +1,424 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.grammar;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A parsed initialisation string, consisting of symbols and loops like
+ * {@code A(2){BC}}.
+ * <p>
+ * A symbol outside of any loop is replaced once by its production rule. The
+ * body of a loop {@code (n){...}} is replaced n times, where the first round
+ * also develops the loops inside of it. In {@code (2){(3){A}}}, the symbol
+ * {@code A} is therefore replaced 2 + 3 - 1 = 4 times.
+ *
+ * @see InitialisationParser
+ */
+public class Initialisation {
+
+    private final List<Element> elements;
+
+    Initialisation(List<Element> elements) {
+        this.elements = Collections.unmodifiableList(elements);
+    }
+
+    List<Element> getElements() {
+        return elements;
+    }
+
+    /**
+     * Expands the initialisation in a single pass from left to right. No
+     * intermediate strings are built, and chains of rules that replace a
+     * symbol by a single symbol are shortened, so the time is linear in the
+     * length of the output.
+     *
+     * @param cache The cache with the production rules and the expansions
+     * that can be reused.
+     * @param output The builder to which the symbols are appended.
+     * @param limit The maximal length of the output.
+     * @param errors The list to which symbols that cannot be replaced are
+     * added, when a rule produces them and they would be replaced again.
+     * @return true, if the output has been completed, false if it got longer
+     * than the limit.
+     */
+    boolean expand(ExpansionCache cache, StringBuilder output, long limit, List<ParserError> errors) {
+        Iterator<Character> symbols = new Expansion(cache, errors, Long.MAX_VALUE);
+
+        while (symbols.hasNext()) {
+            output.append(symbols.next().charValue());
+
+            if (output.length() > limit) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the expanded symbols one at a time. Each symbol is computed only
+     * when it is requested, so the whole output is never held in memory and
+     * its first symbols are available before the rest is expanded.
+     *
+     * @param grammar The grammar that holds the production rules.
+     * @param errors The list to which symbols that cannot be replaced are
+     * added, when a rule produces them and they would be replaced again.
+     * @param limit The maximal number of symbols to return. If the output is
+     * longer, an error is added and the symbols end at the limit.
+     * @return The expanded symbols.
+     */
+    public Iterator<Character> symbols(GrammarParser grammar, List<ParserError> errors, long limit) {
+        return new Expansion(new ExpansionCache(new RuleTable(grammar.getProductionRules())), errors, limit);
+    }
+
+    /**
+     * Computes the length of the expanded initialisation from the loop counts
+     * and the production rules, without expanding it.
+     *
+     * @param grammar The grammar that holds the production rules.
+     * @return The length of the output, or {@link Long#MAX_VALUE} if it is
+     * longer.
+     */
+    public long getLength(GrammarParser grammar) {
+        return getLength(new RuleTable(grammar.getProductionRules()));
+    }
+
+    long getLength(RuleTable rules) {
+        long length = 0;
+
+        for (long count : new SymbolCounter(rules, this).countSymbols().values()) {
+            length = SymbolCounter.add(length, count);
+        }
+
+        return length;
+    }
+
+    /**
+     * Computes how often each symbol occurs in the expanded initialisation,
+     * without expanding it.
+     *
+     * @param grammar The grammar that holds the production rules.
+     * @return The number of each symbol in the output, ordered by symbol.
+     * Counts larger than {@link Long#MAX_VALUE} are given as
+     * {@link Long#MAX_VALUE}.
+     */
+    public Map<Character, Long> countSymbols(GrammarParser grammar) {
+        return new SymbolCounter(new RuleTable(grammar.getProductionRules()), this).countSymbols();
+    }
+
+    /**
+     * Walks through the elements and replacements with two explicit stacks:
+     * one for the loops that are entered, and one for the replacements in
+     * progress. A replacement is taken from its stack as soon as its last
+     * symbol is processed, so a rule like {@code A->aA} does not let the
+     * stack grow. Symbols and loop bodies whose expansion is cached are put
+     * on the stack as they are.
+     * <p>
+     * Rules which replace a symbol by a single symbol do not add to the
+     * output, so they are followed without the stacks. A cycle of them, like
+     * {@code A->B B->A}, is run through only once: the remaining rounds are
+     * reduced modulo its length.
+     */
+    private class Expansion implements Iterator<Character> {
+
+        final ExpansionCache cache;
+        final List<ParserError> errors;
+        final Set<Character> reportedSymbols = new HashSet<>();
+        final Deque<Block> blocks = new ArrayDeque<>();
+        final Deque<Replacement> replacements = new ArrayDeque<>();
+        final long limit;
+        long numberOfSymbols;
+        long symbolRounds;
+        boolean hasNext;
+        char next;
+
+        Expansion(ExpansionCache cache, List<ParserError> errors, long limit) {
+            this.cache = cache;
+            this.errors = errors;
+            this.limit = limit;
+            blocks.push(new Block(elements, 0));
+            advance();
+            checkLimit();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public Character next() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+
+            char current = next;
+            numberOfSymbols++;
+            advance();
+            checkLimit();
+
+            return current;
+        }
+
+        private void checkLimit() {
+            if (hasNext && numberOfSymbols >= limit) {
+                errors.add(new ParserError(0, "The output is longer than " + limit + " symbols, it is cut there."));
+                hasNext = false;
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void advance() {
+            while (true) {
+                if (replacements.isEmpty() && !enterNextSymbol()) {
+                    hasNext = false;
+                    return;
+                }
+
+                Replacement current = replacements.peek();
+                char symbol = current.text.charAt(current.position++);
+
+                if (current.position == current.text.length()) {
+                    replacements.pop();
+                }
+
+                String replacement = getReplacement(symbol, current.rounds, current.rounds < symbolRounds);
+
+                if (replacement == null) {
+                    next = symbol;
+                    hasNext = true;
+                    return;
+                }
+
+                String expansion = cache.getSymbol(symbol, current.rounds);
+
+                if (expansion != null) {
+                    push(expansion, 0);
+                } else if (replacement.length() == 1) {
+                    pushSingleSymbolChain(replacement.charAt(0), current.rounds - 1);
+                } else {
+                    push(replacement, current.rounds - 1);
+                }
+            }
+        }
+
+        /**
+         * Follows the rules which replace the given symbol by a single symbol
+         * for the given number of rounds, and pushes the symbol it ends at,
+         * with the rounds that are left.
+         */
+        private void pushSingleSymbolChain(char symbol, long rounds) {
+            Map<Character, Long> roundsAtSymbol = new HashMap<>();
+
+            while (rounds > 0 && GrammarParser.isLetter(symbol)) {
+                String replacement = cache.getRules().getReplacement(symbol);
+
+                if (replacement == null || replacement.length() != 1) {
+                    break;
+                }
+
+                Long earlierRounds = roundsAtSymbol.put(symbol, rounds);
+
+                if (earlierRounds != null) {
+                    rounds %= earlierRounds - rounds;
+                    roundsAtSymbol.clear();
+                    continue;
+                }
+
+                symbol = replacement.charAt(0);
+                rounds--;
+            }
+
+            push(String.valueOf(symbol), rounds);
+        }
+
+        /**
+         * Enters loops until the next symbol of the initialisation is found,
+         * which is then put on the replacement stack.
+         *
+         * @return false, if there are no symbols left.
+         */
+        private boolean enterNextSymbol() {
+            while (!blocks.isEmpty()) {
+                Block block = blocks.peek();
+
+                if (block.position == block.elements.size()) {
+                    blocks.pop();
+                    continue;
+                }
+
+                Element element = block.elements.get(block.position++);
+
+                if (element instanceof Loop) {
+                    Loop loop = (Loop) element;
+                    long extraRounds = block.extraRounds + loop.count - 1;
+                    String expansion = cache.getBody(loop.body, extraRounds);
+
+                    if (expansion == null) {
+                        blocks.push(new Block(loop.body, extraRounds));
+                    } else if (!expansion.isEmpty()) {
+                        push(expansion, 0);
+                        return true;
+                    }
+
+                    continue;
+                }
+
+                symbolRounds = block.extraRounds + 1;
+                replacements.push(new Replacement(String.valueOf(((Symbol) element).symbol), symbolRounds));
+
+                return true;
+            }
+
+            return false;
+        }
+
+        private void push(String text, long rounds) {
+            if (!text.isEmpty()) {
+                replacements.push(new Replacement(text, rounds));
+            }
+        }
+
+        /**
+         * @param isProduced true, if the symbol has been produced by a rule.
+         * @return The replacement of the symbol, or null if the symbol stays
+         * as it is.
+         */
+        private String getReplacement(char symbol, long rounds, boolean isProduced) {
+            if (rounds <= 0) {
+                return null;
+            }
+
+            if (!GrammarParser.isLetter(symbol)) {
+                if (isProduced && reportedSymbols.add(symbol)) {
+                    errors.add(new ParserError(0, "Could not understand the symbol: " + symbol));
+                }
+
+                return null;
+            }
+
+            return cache.getRules().getReplacement(symbol);
+        }
+    }
+
+    /**
+     * A sequence of elements that is being expanded, with the number of
+     * rounds its loops add to each of its symbols.
+     */
+    private static class Block {
+
+        final List<Element> elements;
+        final long extraRounds;
+        int position;
+
+        Block(List<Element> elements, long extraRounds) {
+            this.elements = elements;
+            this.extraRounds = extraRounds;
+        }
+    }
+
+    private static class Replacement {
+
+        final String text;
+        final long rounds;
+        int position;
+
+        Replacement(String text, long rounds) {
+            this.text = text;
+            this.rounds = rounds;
+        }
+    }
+
+    static abstract class Element {
+    }
+
+    /**
+     * A single symbol. Symbols that could not be understood are kept as well,
+     * they just never get replaced.
+     */
+    static class Symbol extends Element {
+
+        final char symbol;
+
+        Symbol(char symbol) {
+            this.symbol = symbol;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Symbol && symbol == ((Symbol) other).symbol;
+        }
+
+        @Override
+        public int hashCode() {
+            return symbol;
+        }
+    }
+
+    /**
+     * A loop {@code (n){...}}.
+     */
+    static class Loop extends Element {
+
+        final int count;
+        final List<Element> body;
+        private final int hashCode;
+
+        Loop(int count, List<Element> body) {
+            this.count = count;
+            this.body = Collections.unmodifiableList(body);
+            this.hashCode = 31 * count + body.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Loop)) {
+                return false;
+            }
+
+            Loop loop = (Loop) other;
+
+            return hashCode == loop.hashCode && count == loop.count && body.equals(loop.body);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+}
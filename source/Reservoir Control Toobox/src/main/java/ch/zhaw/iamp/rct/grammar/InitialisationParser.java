@@ -22,118 +22,204 @@
  */
 package ch.zhaw.iamp.rct.grammar;
 
+import ch.zhaw.iamp.rct.grammar.Initialisation.Element;
+import ch.zhaw.iamp.rct.grammar.Initialisation.Loop;
+import ch.zhaw.iamp.rct.grammar.Initialisation.Symbol;
 import ch.zhaw.iamp.rct.ui.GrammarWindow;
-import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Random;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
 
 /**
  * This parser parses the initialization string, entered in the lower left text
  * area in the {@link GrammarWindow}.
+ * <p>
+ * The text is parsed once into an {@link Initialisation}. Its length is
+ * computed before it is expanded in a single pass, so a too long output is
+ * rejected without expanding it. See {@link Initialisation} for how loops are
+ * developed.
  */
 public class InitialisationParser extends Parser {
 
     final static String TOO_LONG_OUTPUT_TEXT = "The output gets too long!";
     final static long TEXT_LENGTH_LIMIT = 1000;
-    final static String SYMBOL_REGEX = "[a-zA-Z].*";
-    final static String LOOP_START_REGEX = "\\(([0-9]+)\\)\\{.*";
-    final static String LOOP_END_REGEX = "\\}.*";
-    final static Pattern LOOP_NUMBER_PATTERN = Pattern.compile(LOOP_START_REGEX);
-    final static Random RANDOM = new SecureRandom();
+    final static int MAXIMAL_LOOP_DEPTH = 100;
     GrammarParser grammar;
     StringBuilder builder;
-    boolean endParsing;
+    Initialisation initialisation;
+    ExpansionCache cache;
+    final long outputLengthLimit;
+    private String text;
+    private int position;
+    private boolean isTooDeepNestingReported;
 
     public InitialisationParser(GrammarParser grammar) {
+        this(grammar, TEXT_LENGTH_LIMIT);
+    }
+
+    /**
+     * @param grammar The grammar that holds the production rules.
+     * @param outputLengthLimit The maximal length of the expanded output.
+     * Longer outputs are replaced by a message.
+     */
+    public InitialisationParser(GrammarParser grammar, long outputLengthLimit) {
         this.grammar = grammar;
+        this.outputLengthLimit = outputLengthLimit;
     }
 
     @Override
     public void parse(String text) {
         errors = new LinkedList<>();
-        builder = new StringBuilder(text);
-        endParsing = false;
-        parse(grammar, builder, 0);
+        initialisation = parseInitialisation(text == null ? "" : text);
+        cache = ExpansionCache.forRules(cache, grammar.getProductionRules());
+        long length = initialisation.getLength(cache.getRules());
+
+        if (length > outputLengthLimit) {
+            builder = new StringBuilder(TOO_LONG_OUTPUT_TEXT);
+            return;
+        }
+
+        builder = new StringBuilder((int) Math.min(length, Integer.MAX_VALUE));
+
+        if (!initialisation.expand(cache, builder, outputLengthLimit, errors)) {
+            builder = new StringBuilder(TOO_LONG_OUTPUT_TEXT);
+        }
     }
 
-    int parse(GrammarParser grammar, StringBuilder text, int offset) {
-        while (offset < text.length()) {
-            if (endParsing || text.length() > TEXT_LENGTH_LIMIT) {
-                endParsing = true;
-                text.delete(0, builder.length());
-                text.append("The output gets too long!");
-                return -1;
-            }
+    Initialisation parseInitialisation(String text) {
+        this.text = text;
+        position = 0;
+        isTooDeepNestingReported = false;
 
-            if (isSymbol(text, offset)) {
-                String replacement = getReplacement(grammar, text.charAt(offset));
-                text.replace(offset, offset + 1, replacement);
-                offset += replacement.length();
+        return new Initialisation(parseElements(0));
+    }
+
+    /**
+     * Reads symbols and loops up to the end of the text or, inside a loop, up
+     * to the closing brace. An unclosed loop ends with the text.
+     * <p>
+     * Loops nested deeper than {@link #MAXIMAL_LOOP_DEPTH} are reported and
+     * read with the count 1, that is, their bodies are taken into the
+     * enclosing loop. This keeps the recursion of the parser and of the
+     * expansion bounded.
+     *
+     * @param depth The number of loops around the elements.
+     */
+    private List<Element> parseElements(int depth) {
+        List<Element> elements = new ArrayList<>();
+        int numberOfFlattenedLoops = 0;
+
+        while (position < text.length()) {
+            char c = text.charAt(position);
+
+            if (GrammarParser.isLetter(c)) {
+                elements.add(new Symbol(c));
+                position++;
                 continue;
             }
 
-            if (isLoopStart(text, offset)) {
-                int loopNumber = getLoopNumber(text, offset);
-                int loopStartBlockLength = getLoopStartBlockLength(text, offset);
-                text.replace(offset, offset + loopStartBlockLength, "");
-                int loopStartIndex = offset;
-
-                for (int i = 0; i < loopNumber; i++) {
-                    offset = parse(grammar, text, loopStartIndex);
+            if (isLoopStart()) {
+                if (depth < MAXIMAL_LOOP_DEPTH) {
+                    elements.add(parseLoop(depth + 1));
+                } else {
+                    reportTooDeepNesting();
+                    numberOfFlattenedLoops++;
+                    position = text.indexOf(')', position) + 2;
                 }
 
-                if (endParsing) {
-                    return -1;
-                }
+                continue;
+            }
 
-                text.replace(offset, offset + 1, "");
+            position++;
 
+            if (c == '}' && numberOfFlattenedLoops > 0) {
+                numberOfFlattenedLoops--;
                 continue;
             }
 
-            if (isLoopEnd(text, offset)) {
-                return offset;
+            if (depth > 0 && c == '}') {
+                return elements;
             }
 
-            errors.add(new ParserError(0, "Could not understand the symbol: " + text.charAt(offset)));
-            offset++;
+            errors.add(new ParserError(0, "Could not understand the symbol: " + c));
+            elements.add(new Symbol(c));
         }
 
-        return offset;
+        return elements;
     }
 
-    public String getOutputString() {
-        return builder.toString();
-    }
+    /**
+     * @return true, if a loop count like {@code (2)} and an opening brace
+     * follow.
+     */
+    private boolean isLoopStart() {
+        int end = position;
+
+        if (end >= text.length() || text.charAt(end++) != '(') {
+            return false;
+        }
 
-    static boolean isSymbol(StringBuilder text, int offset) {
-        return text.substring(offset).matches(SYMBOL_REGEX);
+        while (end < text.length() && GrammarParser.isDigit(text.charAt(end))) {
+            end++;
+        }
+
+        return end > position + 1 && text.startsWith("){", end);
     }
 
-    static String getReplacement(GrammarParser grammar, char c) {
-        Rule rule = grammar.getProductionRule(String.valueOf(c));
-        return rule == null ? String.valueOf(c) : rule.replace;
+    private void reportTooDeepNesting() {
+        if (!isTooDeepNestingReported) {
+            errors.add(new ParserError(0, "The loops are nested too deeply, the maximum is " + MAXIMAL_LOOP_DEPTH + "."));
+            isTooDeepNestingReported = true;
+        }
     }
 
-    static boolean isLoopStart(StringBuilder text, int offset) {
-        return text.substring(offset).matches(LOOP_START_REGEX);
+    private Loop parseLoop(int depth) {
+        int countEnd = text.indexOf(')', position);
+        String countText = text.substring(position + 1, countEnd);
+        int count;
+
+        try {
+            count = Integer.parseInt(countText);
+        } catch (NumberFormatException ex) {
+            errors.add(new ParserError(0, "The loop count is too large: " + countText));
+            count = 1;
+        }
+
+        position = countEnd + 2;
+
+        return new Loop(count, parseElements(depth));
     }
 
-    static boolean isLoopEnd(StringBuilder text, int offset) {
-        return text.substring(offset).matches(LOOP_END_REGEX);
+    public String getOutputString() {
+        return builder.toString();
     }
 
-    static int getLoopNumber(StringBuilder text, int offset) {
-        Matcher matcher = LOOP_NUMBER_PATTERN.matcher(text);
-        matcher.find();
+    /**
+     * Returns the expanded symbols of the last parsed initialisation, computed
+     * one at a time. Unlike {@link #getOutputString()}, they are bound by the
+     * given limit instead of the one of this parser. Symbols that cannot be
+     * replaced are added to the errors of the last parsing run while the
+     * symbols are taken.
+     *
+     * @param limit The maximal number of symbols, see
+     * {@link Initialisation#symbols(GrammarParser, List, long)}.
+     * @return The expanded symbols.
+     * @throws IllegalStateException If no text has been parsed yet.
+     */
+    public Iterator<Character> symbols(long limit) {
+        if (initialisation == null) {
+            throw new IllegalStateException("There is no parsed initialisation yet.");
+        }
 
-        return Integer.valueOf(matcher.group(1));
+        return initialisation.symbols(grammar, errors, limit);
     }
 
-    static int getLoopStartBlockLength(StringBuilder text, int offset) {
-        return text.substring(offset).indexOf('{') + 1;
+    /**
+     * @return The initialisation read by the last parsing run.
+     */
+    public Initialisation getInitialisation() {
+        return initialisation;
     }
 
 }
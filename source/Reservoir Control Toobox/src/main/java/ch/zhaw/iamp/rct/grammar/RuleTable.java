@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.grammar;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The production rules of a grammar, compiled into a table that is indexed by
+ * the replaced symbol.
+ * <p>
+ * Like {@link GrammarParser#getProductionRule(String)}, the first rule for a
+ * symbol wins. Only rules that search for a single letter can ever be applied
+ * to a symbol, the others are left out.
+ */
+class RuleTable {
+
+    private final String[] replacements = new String[128];
+
+    RuleTable(List<Rule> rules) {
+        for (Rule rule : rules) {
+            if (rule.search.length() != 1 || !GrammarParser.isLetter(rule.search.charAt(0))) {
+                continue;
+            }
+
+            char symbol = rule.search.charAt(0);
+
+            if (replacements[symbol] == null) {
+                replacements[symbol] = rule.replace;
+            }
+        }
+    }
+
+    /**
+     * @return The replacement of the symbol, or null if the symbol stays as it
+     * is, because there is no rule for it or the rule replaces it by itself.
+     */
+    String getReplacement(char symbol) {
+        if (symbol >= replacements.length) {
+            return null;
+        }
+
+        String replacement = replacements[symbol];
+
+        if (replacement == null || (replacement.length() == 1 && replacement.charAt(0) == symbol)) {
+            return null;
+        }
+
+        return replacement;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof RuleTable && Arrays.equals(replacements, ((RuleTable) other).replacements);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(replacements);
+    }
+
+}
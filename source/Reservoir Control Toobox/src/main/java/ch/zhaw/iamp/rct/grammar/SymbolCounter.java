@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.grammar;
+
+import ch.zhaw.iamp.rct.grammar.Initialisation.Element;
+import ch.zhaw.iamp.rct.grammar.Initialisation.Loop;
+import ch.zhaw.iamp.rct.grammar.Initialisation.Symbol;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts the symbols of an expanded {@link Initialisation} without expanding
+ * it.
+ * <p>
+ * The production rules form a matrix M, where M[a][b] is the number of
+ * symbols b in the replacement of a. A symbol that is replaced k times yields
+ * the counts in row a of M^k, which is computed by repeated squaring. The time
+ * therefore depends on the number of distinct symbols and the logarithm of the
+ * loop counts, not on the length of the output.
+ * <p>
+ * All counts saturate at {@link Long#MAX_VALUE} instead of overflowing.
+ */
+class SymbolCounter {
+
+    private final RuleTable rules;
+    private final Map<Character, Integer> indices = new HashMap<>();
+    private final List<Character> symbols = new ArrayList<>();
+    private final Map<Long, long[]> symbolsByRounds = new HashMap<>();
+    private final List<long[][]> powers = new ArrayList<>();
+
+    SymbolCounter(RuleTable rules, Initialisation initialisation) {
+        this.rules = rules;
+        collect(initialisation.getElements(), 0);
+    }
+
+    /**
+     * Adds the symbols of the elements to the vectors of their number of
+     * replacement rounds.
+     */
+    private void collect(List<Element> elements, long extraRounds) {
+        for (Element element : elements) {
+            if (element instanceof Loop) {
+                Loop loop = (Loop) element;
+                collect(loop.body, extraRounds + loop.count - 1);
+                continue;
+            }
+
+            long rounds = Math.max(0, extraRounds + 1);
+            int index = getIndex(((Symbol) element).symbol);
+            long[] vector = symbolsByRounds.get(rounds);
+
+            if (vector == null) {
+                vector = new long[0];
+            }
+
+            if (vector.length <= index) {
+                long[] grown = new long[symbols.size()];
+                System.arraycopy(vector, 0, grown, 0, vector.length);
+                vector = grown;
+            }
+
+            vector[index] = add(vector[index], 1);
+            symbolsByRounds.put(rounds, vector);
+        }
+    }
+
+    private int getIndex(char symbol) {
+        Integer index = indices.get(symbol);
+
+        if (index == null) {
+            index = symbols.size();
+            indices.put(symbol, index);
+            symbols.add(symbol);
+        }
+
+        return index;
+    }
+
+    /**
+     * @return The number of each symbol in the expanded initialisation. Symbols
+     * that do not occur are left out.
+     */
+    Map<Character, Long> countSymbols() {
+        addReplacedSymbols();
+        long[] total = new long[symbols.size()];
+
+        for (Map.Entry<Long, long[]> entry : symbolsByRounds.entrySet()) {
+            long[] counts = multiplyByPower(resize(entry.getValue()), entry.getKey());
+
+            for (int i = 0; i < total.length; i++) {
+                total[i] = add(total[i], counts[i]);
+            }
+        }
+
+        Map<Character, Long> counts = new TreeMap<>();
+
+        for (int i = 0; i < total.length; i++) {
+            if (total[i] > 0) {
+                counts.put(symbols.get(i), total[i]);
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Indexes all symbols that the rules can produce from the collected
+     * symbols.
+     */
+    private void addReplacedSymbols() {
+        for (int i = 0; i < symbols.size(); i++) {
+            String replacement = getReplacement(symbols.get(i));
+
+            if (replacement != null) {
+                for (int j = 0; j < replacement.length(); j++) {
+                    getIndex(replacement.charAt(j));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The replacement of the symbol, or null if it stays as it is. This
+     * matches the expansion in {@link Initialisation}.
+     */
+    private String getReplacement(char symbol) {
+        return rules.getReplacement(symbol);
+    }
+
+    private long[] resize(long[] vector) {
+        long[] resized = new long[symbols.size()];
+        System.arraycopy(vector, 0, resized, 0, vector.length);
+
+        return resized;
+    }
+
+    /**
+     * @return The vector multiplied by M^exponent.
+     */
+    private long[] multiplyByPower(long[] vector, long exponent) {
+        for (int bit = 0; exponent != 0; bit++, exponent >>>= 1) {
+            if ((exponent & 1) != 0) {
+                vector = multiply(vector, getPowerOfTwo(bit));
+            }
+        }
+
+        return vector;
+    }
+
+    /**
+     * @return M^(2^bit), computed by squaring the previous power.
+     */
+    private long[][] getPowerOfTwo(int bit) {
+        if (powers.isEmpty()) {
+            powers.add(createRuleMatrix());
+        }
+
+        while (powers.size() <= bit) {
+            long[][] previous = powers.get(powers.size() - 1);
+            long[][] square = new long[previous.length][];
+
+            for (int i = 0; i < previous.length; i++) {
+                square[i] = multiply(previous[i], previous);
+            }
+
+            powers.add(square);
+        }
+
+        return powers.get(bit);
+    }
+
+    private long[][] createRuleMatrix() {
+        int size = symbols.size();
+        long[][] matrix = new long[size][size];
+
+        for (int i = 0; i < size; i++) {
+            String replacement = getReplacement(symbols.get(i));
+
+            if (replacement == null) {
+                matrix[i][i] = 1;
+                continue;
+            }
+
+            for (int j = 0; j < replacement.length(); j++) {
+                int index = indices.get(replacement.charAt(j));
+                matrix[i][index] = add(matrix[i][index], 1);
+            }
+        }
+
+        return matrix;
+    }
+
+    private static long[] multiply(long[] vector, long[][] matrix) {
+        long[] product = new long[vector.length];
+
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] == 0) {
+                continue;
+            }
+
+            for (int j = 0; j < product.length; j++) {
+                product[j] = add(product[j], multiply(vector[i], matrix[i][j]));
+            }
+        }
+
+        return product;
+    }
+
+    static long add(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    static long multiply(long a, long b) {
+        if (a == 0 || b == 0) {
+            return 0;
+        }
+
+        return a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+    }
+
+}
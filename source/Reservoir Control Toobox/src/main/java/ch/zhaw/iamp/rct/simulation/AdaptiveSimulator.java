@@ -0,0 +1,240 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * An {@link AdaptiveSimulator} simulates a trajectory like the
+ * {@link MassSpringSimulator}, but chooses the length of every velocity Verlet
+ * step itself. While the network is calm, a few long steps per sample suffice;
+ * during fast movements and stiff transients the steps become short.
+ * <p>
+ * The local error of a step is estimated from the change of the accelerations
+ * during the step: the position error of velocity Verlet is about
+ * {@code dt² / 6 * |a(t + dt) - a(t)|}. Steps whose largest error over all
+ * free masses is above the tolerance are rejected and repeated with a shorter
+ * step, the next step is lengthened or shortened by the usual third-root rule.
+ * <p>
+ * Steps never cross a sample time, so the spring lengths are recorded exactly
+ * at the fixed sample rate of the parameters and the result has the same
+ * layout and timing as the one of the {@link MassSpringSimulator}.
+ */
+public class AdaptiveSimulator {
+
+    public final static double DEFAULT_TOLERANCE = 1e-6;
+    private final static double SAFETY_FACTOR = 0.9;
+    private final static double MAXIMAL_GROWTH = 5;
+    private final static double MINIMAL_SHRINKING = 0.2;
+    private final CompiledNetwork network;
+    private final VerletIntegrator integrator;
+    private final double initialTimeStep;
+    private final double sampleInterval;
+    private final double minimalTimeStep;
+    private final double tolerance;
+    private final SimulationState state;
+    private final SimulationState backup;
+    private long numberOfSteps;
+    private long numberOfRejectedSteps;
+
+    /**
+     * Creates a simulator with the default tolerance.
+     *
+     * @param graph The network and robot arm to simulate. The graph is not
+     * modified.
+     * @param parameters The parameters. Later changes to them are not
+     * considered.
+     */
+    public AdaptiveSimulator(NetworkGraph graph, SimulationParameters parameters) {
+        this(new CompiledNetwork(graph, parameters), parameters, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * @param network The compiled network to simulate.
+     * @param parameters The parameters. The time step is used as the length of
+     * the first step, the sample interval as the output rate and the longest
+     * step.
+     * @param tolerance The largest accepted position error of a mass per step.
+     */
+    public AdaptiveSimulator(CompiledNetwork network, SimulationParameters parameters, double tolerance) {
+        if (network == null || parameters == null) {
+            throw new IllegalArgumentException("The arguments may not be null.");
+        }
+
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("The tolerance has to be positive.");
+        }
+
+        this.network = network;
+        this.tolerance = tolerance;
+        integrator = new VerletIntegrator(network);
+        initialTimeStep = parameters.getTimeStep();
+        sampleInterval = parameters.getSampleInterval();
+        minimalTimeStep = sampleInterval * 1e-6;
+        state = network.createInitialState();
+        backup = network.createInitialState();
+    }
+
+    /**
+     * Simulates the given trajectory, starting with the network at rest in the
+     * pose of the graph.
+     *
+     * @param trajectory The joint angles, one row per sample.
+     * @return The spring lengths, one row per sample.
+     * @throws DimensionMismatchException If the trajectory has less than two
+     * columns.
+     * @see MassSpringSimulator#simulate(RealMatrix)
+     */
+    public RealMatrix simulate(RealMatrix trajectory) {
+        final double[][] springLengths = new double[trajectory.getRowDimension()][];
+
+        simulate(trajectory, new SpringLengthSink() {
+            @Override
+            public void accept(int sample, double[] lengths) {
+                springLengths[sample] = lengths.clone();
+            }
+        });
+
+        return MatrixUtils.createRealMatrix(springLengths);
+    }
+
+    /**
+     * Simulates the given trajectory and passes the spring lengths of every
+     * sample to the given sink. Within one sample, the joint angles are
+     * interpolated linearly from the previous row.
+     *
+     * @param trajectory The joint angles, one row per sample.
+     * @param sink The sink, which receives the spring lengths.
+     * @throws DimensionMismatchException If the trajectory has less than two
+     * columns.
+     */
+    public void simulate(RealMatrix trajectory, SpringLengthSink sink) {
+        if (trajectory.getColumnDimension() < 2) {
+            throw new DimensionMismatchException(trajectory.getColumnDimension(), 2);
+        }
+
+        state.copyFrom(network.createInitialState());
+        numberOfSteps = 0;
+        numberOfRejectedSteps = 0;
+        double[] springLengths = new double[network.getNumberOfRecordedSprings()];
+        double previousShoulderAngle = trajectory.getEntry(0, 0);
+        double previousElbowAngle = trajectory.getEntry(0, 1);
+        network.arm.moveTo(previousShoulderAngle, previousElbowAngle, state.x, state.y);
+        integrator.initialize(state);
+        double timeStep = initialTimeStep;
+
+        for (int sample = 0; sample < trajectory.getRowDimension(); sample++) {
+            double shoulderAngle = trajectory.getEntry(sample, 0);
+            double elbowAngle = trajectory.getEntry(sample, 1);
+            double shoulderRate = (shoulderAngle - previousShoulderAngle) / sampleInterval;
+            double elbowRate = (elbowAngle - previousElbowAngle) / sampleInterval;
+            double elapsed = 0;
+
+            while (elapsed < sampleInterval) {
+                double remaining = sampleInterval - elapsed;
+                boolean isLastStep = timeStep >= remaining * (1 - 1e-9);
+                double step = isLastStep ? remaining : timeStep;
+
+                backup.copyFrom(state);
+                double end = isLastStep ? sampleInterval : elapsed + step;
+                network.arm.moveTo(previousShoulderAngle + end * shoulderRate, previousElbowAngle + end * elbowRate,
+                        shoulderRate, elbowRate, state.x, state.y, state.vx, state.vy);
+                integrator.step(state, step);
+                double error = estimateError(step);
+
+                if (error > tolerance && step > minimalTimeStep) {
+                    state.copyFrom(backup);
+                    numberOfRejectedSteps++;
+                    timeStep = Math.max(minimalTimeStep, step * Math.max(MINIMAL_SHRINKING, scale(error)));
+                    continue;
+                }
+
+                numberOfSteps++;
+                elapsed = end;
+
+                if (!isLastStep || step >= timeStep) {
+                    timeStep = Math.min(sampleInterval, step * Math.min(MAXIMAL_GROWTH, scale(error)));
+                }
+            }
+
+            network.recordSpringLengths(state, springLengths);
+            sink.accept(sample, springLengths);
+            previousShoulderAngle = shoulderAngle;
+            previousElbowAngle = elbowAngle;
+        }
+    }
+
+    /**
+     * The backup holds the forces at the start of the step, the state those at
+     * its end.
+     */
+    private double estimateError(double step) {
+        double[] oldX = backup.fx;
+        double[] oldY = backup.fy;
+        double[] newX = state.fx;
+        double[] newY = state.fy;
+        double largestChange = 0;
+
+        for (int i : network.freeMasses) {
+            largestChange = Math.max(largestChange, Math.abs(newX[i] - oldX[i]));
+            largestChange = Math.max(largestChange, Math.abs(newY[i] - oldY[i]));
+        }
+
+        return step * step / 6 * largestChange * network.inverseMass;
+    }
+
+    /**
+     * @return The factor by which the step length is changed for the given
+     * error.
+     */
+    private double scale(double error) {
+        if (error == 0) {
+            return MAXIMAL_GROWTH;
+        }
+
+        return SAFETY_FACTOR * Math.cbrt(tolerance / error);
+    }
+
+    public CompiledNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * @return The number of accepted steps of the last simulation.
+     */
+    public long getNumberOfSteps() {
+        return numberOfSteps;
+    }
+
+    /**
+     * @return The number of rejected and repeated steps of the last
+     * simulation.
+     */
+    public long getNumberOfRejectedSteps() {
+        return numberOfRejectedSteps;
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * A {@link BinarySink} writes every sample in full precision to a binary file,
+ * which is about three times smaller than a comma-separated-value file and
+ * read without parsing. After a short header with the number of springs, the
+ * samples follow one after the other, so the file grows while the simulation
+ * runs.
+ * <p>
+ * The sink has to be closed after the simulation. Since a sink cannot throw
+ * checked exceptions, the first error while writing stops the writing and is
+ * thrown when the sink is closed.
+ */
+public class BinarySink implements SpringLengthSink, Closeable {
+
+    public final static String FILE_ENDING = ".bin";
+    final static int FILE_MAGIC_NUMBER = 0x52435442;
+    final static int FILE_VERSION = 1;
+    private final DataOutputStream out;
+    private final int numberOfSprings;
+    private IOException error;
+
+    /**
+     * @param springLengthsFile The file to write.
+     * @param numberOfSprings The number of recorded springs per sample.
+     * @throws IOException If the file could not be opened.
+     */
+    public BinarySink(File springLengthsFile, int numberOfSprings) throws IOException {
+        this.numberOfSprings = numberOfSprings;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(springLengthsFile)));
+        out.writeInt(FILE_MAGIC_NUMBER);
+        out.writeInt(FILE_VERSION);
+        out.writeInt(numberOfSprings);
+    }
+
+    @Override
+    public void accept(int sample, double[] springLengths) {
+        if (error != null) {
+            return;
+        }
+
+        if (springLengths.length != numberOfSprings) {
+            error = new IOException("Sample " + sample + " has " + springLengths.length
+                    + " springs instead of " + numberOfSprings + ".");
+            return;
+        }
+
+        try {
+            for (double length : springLengths) {
+                out.writeDouble(length);
+            }
+        } catch (IOException ex) {
+            error = ex;
+        }
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException If a sample could not be written or the file could
+     * not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Reads a file written by a {@link BinarySink}.
+     *
+     * @param springLengthsFile The file to read.
+     * @return The spring lengths, one row per sample.
+     * @throws IOException If the file could not be read, is not a spring
+     * lengths file, contains no samples or ends within a sample.
+     */
+    public static RealMatrix load(File springLengthsFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(springLengthsFile)))) {
+            if (in.readInt() != FILE_MAGIC_NUMBER || in.readInt() != FILE_VERSION) {
+                throw new IOException("The file '" + springLengthsFile + "' does not contain spring lengths of this version.");
+            }
+
+            int numberOfSprings = in.readInt();
+
+            if (numberOfSprings < 1) {
+                throw new IOException("The file '" + springLengthsFile + "' contains no springs.");
+            }
+
+            List<double[]> rows = new ArrayList<>();
+
+            while (true) {
+                double[] row = new double[numberOfSprings];
+
+                try {
+                    row[0] = in.readDouble();
+                } catch (EOFException ex) {
+                    break;
+                }
+
+                for (int s = 1; s < numberOfSprings; s++) {
+                    row[s] = in.readDouble();
+                }
+
+                rows.add(row);
+            }
+
+            if (rows.isEmpty()) {
+                throw new IOException("The file '" + springLengthsFile + "' contains no samples.");
+            }
+
+            return MatrixUtils.createRealMatrix(rows.toArray(new double[rows.size()][]));
+        }
+    }
+
+}
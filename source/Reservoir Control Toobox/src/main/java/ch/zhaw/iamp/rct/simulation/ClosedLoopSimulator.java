@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import ch.zhaw.iamp.rct.weights.Weights;
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * A {@link ClosedLoopSimulator} plays trained weights back in the simulation:
+ * after every sample, the readout is calculated from the spring lengths and
+ * compared with the target trajectory. This scores a candidate network end to
+ * end, without the Physics Toolbox.
+ * <p>
+ * As with the phases of the main window, the simulation runs in one of
+ * two modes:
+ * <ul>
+ * <li>In the learning phase, the arm follows the given trajectory and the
+ * readout is only observed (open loop).</li>
+ * <li>In the execution phase, the arm follows the given trajectory during the
+ * offset only. Afterwards, the readout of one sample is the joint angles of
+ * the next sample, so the network drives the arm itself (closed loop). The
+ * weights need the shoulder and the elbow angle as their two outputs.</li>
+ * </ul>
+ * The target trajectory is repeated cyclically and aligned with the samples as
+ * in {@link Weights}.
+ */
+public class ClosedLoopSimulator {
+
+    private final MassSpringSimulator simulator;
+    private final double[][] weights;
+    private final double[] springLengths;
+    private final double[] readout;
+    private final double[] sumOfSquaredErrors;
+    private final double[] meanSquaredErrors;
+    private int numberOfEvaluatedSamples;
+
+    /**
+     * @param graph The network and robot arm to simulate.
+     * @param parameters The parameters of the simulation.
+     * @param weightsFile The weights file, as written by {@link Weights}.
+     * @throws IOException If the weights file could not be read.
+     * @throws DimensionMismatchException If the weights do not have one column
+     * per recorded spring of the network.
+     */
+    public ClosedLoopSimulator(NetworkGraph graph, SimulationParameters parameters, String weightsFile) throws IOException {
+        this(new MassSpringSimulator(graph, parameters), Weights.csvToMatrix(weightsFile));
+    }
+
+    /**
+     * @param simulator The simulator to use.
+     * @param weights The weights, one row per output and one column per
+     * recorded spring.
+     * @throws DimensionMismatchException If the weights do not have one column
+     * per recorded spring of the network.
+     */
+    public ClosedLoopSimulator(MassSpringSimulator simulator, RealMatrix weights) {
+        if (weights.getColumnDimension() != simulator.getNumberOfRecordedSprings()) {
+            throw new DimensionMismatchException(weights.getColumnDimension(), simulator.getNumberOfRecordedSprings());
+        }
+
+        this.simulator = simulator;
+        this.weights = weights.getData();
+        springLengths = new double[simulator.getNumberOfRecordedSprings()];
+        readout = new double[this.weights.length];
+        sumOfSquaredErrors = new double[this.weights.length];
+        meanSquaredErrors = new double[this.weights.length];
+    }
+
+    /**
+     * Simulates one sample per row of the given trajectory, starting with the
+     * network at rest and the arm at the first row of the trajectory.
+     *
+     * @param trajectory The shoulder and elbow angles, one row per sample. In
+     * the execution phase, only the rows up to the offset are used.
+     * @param targetTrajectory The target, one row per sample and one column
+     * per output. It is repeated cyclically.
+     * @param offset The numbers of first samples which are not evaluated.
+     * @param isLearningPhase true to follow the trajectory all the time, false
+     * to feed the readout back after the offset.
+     * @param listener The listener to inform after every sample, or null. It
+     * may stop the simulation early.
+     * @return The readout, one row per simulated sample. If the listener has
+     * stopped the simulation, there are fewer rows than in the trajectory.
+     * @throws DimensionMismatchException If the target does not have one column
+     * per output, or, in the execution phase, there are not exactly two
+     * outputs.
+     * @throws IllegalArgumentException If the offset leaves no samples to
+     * evaluate.
+     */
+    public RealMatrix simulate(RealMatrix trajectory, RealMatrix targetTrajectory, int offset, boolean isLearningPhase, ReadoutListener listener) {
+        MassSpringSimulator.checkTrajectory(trajectory);
+
+        if (targetTrajectory.getColumnDimension() != weights.length) {
+            throw new DimensionMismatchException(targetTrajectory.getColumnDimension(), weights.length);
+        }
+
+        if (!isLearningPhase && weights.length != 2) {
+            throw new DimensionMismatchException(weights.length, 2);
+        }
+
+        if (offset < 0 || offset >= trajectory.getRowDimension()) {
+            throw new IllegalArgumentException("The offset has to leave at least one sample to evaluate.");
+        }
+
+        double[][] angles = trajectory.getData();
+        double[][] target = targetTrajectory.getData();
+        double[][] readouts = new double[angles.length][];
+        int numberOfSamples = angles.length;
+        Arrays.fill(sumOfSquaredErrors, 0);
+        Arrays.fill(meanSquaredErrors, Double.NaN);
+        numberOfEvaluatedSamples = 0;
+        simulator.start(angles[0][0], angles[0][1]);
+
+        for (int sample = 0; sample < angles.length; sample++) {
+            double[] sampleTarget = target[sample % target.length];
+
+            if (isLearningPhase || sample <= offset) {
+                simulator.advance(angles[sample][0], angles[sample][1]);
+            } else {
+                simulator.advance(readout[0], readout[1]);
+            }
+
+            simulator.recordSpringLengths(springLengths);
+            calculateReadout();
+
+            if (sample >= offset) {
+                evaluate(sampleTarget);
+            }
+
+            readouts[sample] = readout.clone();
+
+            if (listener != null && !listener.readoutCalculated(sample, readout, sampleTarget, meanSquaredErrors)) {
+                numberOfSamples = sample + 1;
+                break;
+            }
+        }
+
+        return MatrixUtils.createRealMatrix(Arrays.copyOf(readouts, numberOfSamples));
+    }
+
+    private void calculateReadout() {
+        for (int o = 0; o < weights.length; o++) {
+            double[] outputWeights = weights[o];
+            double sum = 0;
+
+            for (int s = 0; s < springLengths.length; s++) {
+                sum += outputWeights[s] * springLengths[s];
+            }
+
+            readout[o] = sum;
+        }
+    }
+
+    private void evaluate(double[] target) {
+        numberOfEvaluatedSamples++;
+
+        for (int o = 0; o < readout.length; o++) {
+            double error = readout[o] - target[o];
+            sumOfSquaredErrors[o] += error * error;
+            meanSquaredErrors[o] = sumOfSquaredErrors[o] / numberOfEvaluatedSamples;
+        }
+    }
+
+    /**
+     * @param output The index of the output.
+     * @return The mean squared error between readout and target over the
+     * evaluated samples of the last simulation.
+     */
+    public double getMeanSquaredError(int output) {
+        return meanSquaredErrors[output];
+    }
+
+    public int getNumberOfOutputs() {
+        return weights.length;
+    }
+
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.GraphConverter;
+import ch.zhaw.iamp.rct.graph.Mass;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import ch.zhaw.iamp.rct.graph.Spring;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link CompiledNetwork} is the form of a {@link NetworkGraph} that the
+ * simulation works on. It is built once and holds the springs in a compressed
+ * sparse row (CSR) adjacency: the springs of the {@code f}-th free mass are the
+ * entries {@code rowStart[f]} to {@code rowStart[f + 1] - 1}, every entry
+ * holding the other mass, the rest length and the stiffness of the spring.
+ * Springs between two driven masses are left out, since they cannot move
+ * anything.
+ * <p>
+ * The force of every free mass is gathered from its own row only, in the
+ * order of the row. The force calculation therefore writes nothing but the
+ * forces of the requested masses, allocates nothing and gives the same
+ * result, no matter in which order or on which thread the masses are
+ * calculated.
+ */
+public class CompiledNetwork {
+
+    final RobotArm arm;
+    final int[] freeMasses;
+    final int[] freeIndex;
+    final int[] drivenMasses;
+    final int[] rowStart;
+    final int[] neighbours;
+    final double[] restLengths;
+    final double[] stiffnesses;
+    final int[] recordedSources;
+    final int[] recordedDestinations;
+    final double[] initialX;
+    final double[] initialY;
+    final double inverseMass;
+    final double damping;
+
+    /**
+     * @param graph The graph to compile. It is not modified.
+     * @param parameters The physical parameters. Later changes to them are not
+     * considered.
+     */
+    public CompiledNetwork(NetworkGraph graph, SimulationParameters parameters) {
+        if (graph == null || parameters == null) {
+            throw new IllegalArgumentException("The arguments may not be null.");
+        }
+
+        arm = new RobotArm(graph);
+        inverseMass = 1 / parameters.getMass();
+        damping = parameters.getDamping();
+        List<Mass> masses = graph.getMasses();
+        Map<Mass, Integer> indices = getIndices(masses);
+        List<Spring> springs = getSortedSprings(graph, indices);
+        int numberOfMasses = masses.size();
+        initialX = new double[numberOfMasses];
+        initialY = new double[numberOfMasses];
+        freeIndex = new int[numberOfMasses];
+        int numberOfFreeMasses = 0;
+
+        for (int i = 0; i < numberOfMasses; i++) {
+            initialX[i] = masses.get(i).getX();
+            initialY[i] = masses.get(i).getY();
+            freeIndex[i] = arm.isDriven(i) ? -1 : numberOfFreeMasses++;
+        }
+
+        freeMasses = new int[numberOfFreeMasses];
+        drivenMasses = new int[numberOfMasses - numberOfFreeMasses];
+
+        for (int i = 0, d = 0; i < numberOfMasses; i++) {
+            if (freeIndex[i] < 0) {
+                drivenMasses[d++] = i;
+            } else {
+                freeMasses[freeIndex[i]] = i;
+            }
+        }
+
+        int[] sources = new int[springs.size()];
+        int[] destinations = new int[springs.size()];
+        int numberOfRecordedSprings = 0;
+        rowStart = new int[numberOfFreeMasses + 1];
+
+        for (int s = 0; s < springs.size(); s++) {
+            Spring spring = springs.get(s);
+            sources[s] = indices.get(spring.getSource());
+            destinations[s] = indices.get(spring.getDestination());
+
+            if (isRecorded(spring)) {
+                numberOfRecordedSprings++;
+            }
+
+            if (freeIndex[sources[s]] >= 0) {
+                rowStart[freeIndex[sources[s]] + 1]++;
+            }
+
+            if (freeIndex[destinations[s]] >= 0) {
+                rowStart[freeIndex[destinations[s]] + 1]++;
+            }
+        }
+
+        for (int f = 0; f < numberOfFreeMasses; f++) {
+            rowStart[f + 1] += rowStart[f];
+        }
+
+        int numberOfEntries = rowStart[numberOfFreeMasses];
+        neighbours = new int[numberOfEntries];
+        restLengths = new double[numberOfEntries];
+        stiffnesses = new double[numberOfEntries];
+        recordedSources = new int[numberOfRecordedSprings];
+        recordedDestinations = new int[numberOfRecordedSprings];
+        int[] nextEntry = rowStart.clone();
+
+        for (int s = 0, r = 0; s < springs.size(); s++) {
+            Spring spring = springs.get(s);
+            double restLength = spring.getSource().calculateDistance(spring.getDestination());
+            double stiffness = isRecorded(spring) ? parameters.getStiffness() : parameters.getFixedConstraintStiffness();
+
+            if (isRecorded(spring)) {
+                recordedSources[r] = sources[s];
+                recordedDestinations[r] = destinations[s];
+                r++;
+            }
+
+            if (freeIndex[sources[s]] >= 0) {
+                int entry = nextEntry[freeIndex[sources[s]]]++;
+                neighbours[entry] = destinations[s];
+                restLengths[entry] = restLength;
+                stiffnesses[entry] = stiffness;
+            }
+
+            if (freeIndex[destinations[s]] >= 0) {
+                int entry = nextEntry[freeIndex[destinations[s]]]++;
+                neighbours[entry] = sources[s];
+                restLengths[entry] = restLength;
+                stiffnesses[entry] = stiffness;
+            }
+        }
+    }
+
+    /**
+     * Tells whether the length of the spring is recorded, as described by
+     * {@link SpringLengthSink}.
+     *
+     * @param spring The spring to check.
+     * @return True if the spring is of the type {@code SPRING_CONSTRAINT}.
+     */
+    public static boolean isRecorded(Spring spring) {
+        return spring.getConnectionType() == Spring.ConnectionType.SPRING_CONSTRAINT;
+    }
+
+    private static Map<Mass, Integer> getIndices(List<Mass> masses) {
+        Map<Mass, Integer> indices = new IdentityHashMap<>();
+        int i = 0;
+
+        for (Mass mass : masses) {
+            indices.put(mass, i++);
+        }
+
+        return indices;
+    }
+
+    /**
+     * Sorts the springs as {@link Spring#compareTo(Spring)} does, but without
+     * looking up the indices of the masses in the graph again and again.
+     */
+    static List<Spring> getSortedSprings(NetworkGraph graph, final Map<Mass, Integer> indices) {
+        List<Spring> springs = new ArrayList<>(graph.getSprings());
+
+        Collections.sort(springs, new Comparator<Spring>() {
+            @Override
+            public int compare(Spring spring1, Spring spring2) {
+                int higher1 = Math.max(indices.get(spring1.getSource()), indices.get(spring1.getDestination()));
+                int higher2 = Math.max(indices.get(spring2.getSource()), indices.get(spring2.getDestination()));
+
+                if (higher1 != higher2) {
+                    return higher1 - higher2;
+                }
+
+                int lower1 = Math.min(indices.get(spring1.getSource()), indices.get(spring1.getDestination()));
+                int lower2 = Math.min(indices.get(spring2.getSource()), indices.get(spring2.getDestination()));
+
+                return lower1 - lower2;
+            }
+        });
+
+        return springs;
+    }
+
+    /**
+     * @return A new state with all masses at rest in the pose of the graph.
+     * The forces are not calculated yet.
+     */
+    public SimulationState createInitialState() {
+        SimulationState state = new SimulationState(initialX.length);
+        System.arraycopy(initialX, 0, state.x, 0, initialX.length);
+        System.arraycopy(initialY, 0, state.y, 0, initialY.length);
+        return state;
+    }
+
+    /**
+     * Calculates the spring and damping forces of all free masses.
+     *
+     * @param state The state of which the forces are calculated.
+     */
+    public void computeForces(SimulationState state) {
+        computeForces(state, 0, freeMasses.length);
+    }
+
+    /**
+     * Calculates the spring and damping forces of the free masses
+     * {@code freeMasses[first]} to {@code freeMasses[end - 1]}. Only their
+     * forces are written.
+     *
+     * @param state The state of which the forces are calculated.
+     * @param first The first free mass, inclusive.
+     * @param end The last free mass, exclusive.
+     */
+    public void computeForces(SimulationState state, int first, int end) {
+        double[] x = state.x;
+        double[] y = state.y;
+        double[] vx = state.vx;
+        double[] vy = state.vy;
+
+        for (int f = first; f < end; f++) {
+            int i = freeMasses[f];
+            double xi = x[i];
+            double yi = y[i];
+            double vxi = vx[i];
+            double vyi = vy[i];
+            double sumX = 0;
+            double sumY = 0;
+
+            for (int e = rowStart[f]; e < rowStart[f + 1]; e++) {
+                int j = neighbours[e];
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double length = Math.sqrt(dx * dx + dy * dy);
+                double inverseLength = length > 0 ? 1 / length : 0;
+                double relativeVelocity = ((vx[j] - vxi) * dx + (vy[j] - vyi) * dy) * inverseLength;
+                double force = (stiffnesses[e] * (length - restLengths[e]) + damping * relativeVelocity) * inverseLength;
+                sumX += force * dx;
+                sumY += force * dy;
+            }
+
+            state.fx[i] = sumX;
+            state.fy[i] = sumY;
+        }
+    }
+
+    /**
+     * Writes the lengths of all springs of the type {@code SPRING_CONSTRAINT}
+     * in the order of the connection map written by {@link GraphConverter}.
+     *
+     * @param state The state to measure.
+     * @param target The array of the length
+     * {@link #getNumberOfRecordedSprings()} to write to.
+     */
+    public void recordSpringLengths(SimulationState state, double[] target) {
+        double[] x = state.x;
+        double[] y = state.y;
+
+        for (int r = 0; r < recordedSources.length; r++) {
+            double dx = x[recordedDestinations[r]] - x[recordedSources[r]];
+            double dy = y[recordedDestinations[r]] - y[recordedSources[r]];
+            target[r] = Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    public RobotArm getArm() {
+        return arm;
+    }
+
+    public int getNumberOfMasses() {
+        return initialX.length;
+    }
+
+    public int getNumberOfFreeMasses() {
+        return freeMasses.length;
+    }
+
+    public int getNumberOfRecordedSprings() {
+        return recordedSources.length;
+    }
+
+    /**
+     * @return The number of entries of the adjacency, that is two for every
+     * spring between free masses and one for every spring between a free and
+     * a driven mass.
+     */
+    public int getNumberOfEntries() {
+        return neighbours.length;
+    }
+
+}
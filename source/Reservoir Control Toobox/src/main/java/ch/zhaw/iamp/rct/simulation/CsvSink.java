@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.weights.Weights;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A {@link CsvSink} writes every sample as one line of a comma-separated-value
+ * file, in the format of {@link Weights#matrixToCsv(RealMatrix, String)}, while
+ * the simulation runs. The file can be read by {@link Weights} and by the
+ * tools written for the Physics Toolbox.
+ * <p>
+ * The sink has to be closed after the simulation. Since a sink cannot throw
+ * checked exceptions, the first error while writing stops the writing and is
+ * thrown when the sink is closed.
+ */
+public class CsvSink implements SpringLengthSink, Closeable, Flushable {
+
+    private final Writer out;
+    private IOException error;
+
+    /**
+     * @param springLengthsFile The file to write.
+     * @throws IOException If the file could not be opened.
+     */
+    public CsvSink(String springLengthsFile) throws IOException {
+        out = new BufferedWriter(new FileWriter(springLengthsFile));
+    }
+
+    @Override
+    public void accept(int sample, double[] springLengths) {
+        if (error != null) {
+            return;
+        }
+
+        try {
+            for (int s = 0; s < springLengths.length; s++) {
+                if (s > 0) {
+                    out.write(',');
+                }
+
+                out.write(Double.toString(springLengths[s]));
+            }
+
+            out.write('\n');
+        } catch (IOException ex) {
+            error = ex;
+        }
+    }
+
+    /**
+     * Writes the buffered samples to the file, so readers see them while the
+     * simulation is still running.
+     *
+     * @throws IOException If a sample could not be written or the file could
+     * not be flushed.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException If a sample could not be written or the file could
+     * not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+}
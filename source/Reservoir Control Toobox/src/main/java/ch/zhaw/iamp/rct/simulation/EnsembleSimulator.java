@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import ch.zhaw.iamp.rct.weights.GramAccumulator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * An {@link EnsembleSimulator} simulates many networks with the same
+ * trajectory, for example all candidates generated from one grammar. Every
+ * network is one task on a work-stealing pool, so the throughput grows with
+ * the number of cores.
+ * <p>
+ * A network is only compiled when its task starts, so at most one compiled
+ * network per thread is held in memory. When the results are accumulated
+ * instead of recorded, the memory needed per network only depends on its
+ * number of springs, not on the length of the trajectory.
+ */
+public class EnsembleSimulator {
+
+    private final SimulationParameters parameters;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an ensemble simulator with one thread per available processor.
+     *
+     * @param parameters The parameters used for all networks.
+     */
+    public EnsembleSimulator(SimulationParameters parameters) {
+        this(parameters, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parameters The parameters used for all networks.
+     * @param parallelism The number of networks simulated at the same time.
+     */
+    public EnsembleSimulator(SimulationParameters parameters, int parallelism) {
+        if (parameters == null) {
+            throw new IllegalArgumentException("The argument may not be null.");
+        }
+
+        this.parameters = parameters;
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Simulates all given networks.
+     *
+     * @param graphs The networks to simulate. They may not be modified while
+     * the simulation runs.
+     * @param trajectory The joint angles, one row per sample.
+     * @return The spring lengths of every network, in the order of the graphs.
+     */
+    public List<RealMatrix> simulate(List<NetworkGraph> graphs, final RealMatrix trajectory) {
+        List<Callable<RealMatrix>> tasks = new ArrayList<>();
+
+        for (final NetworkGraph graph : graphs) {
+            tasks.add(new Callable<RealMatrix>() {
+                @Override
+                public RealMatrix call() {
+                    return new MassSpringSimulator(graph, parameters).simulate(trajectory);
+                }
+            });
+        }
+
+        return run(tasks);
+    }
+
+    /**
+     * Simulates all given networks and accumulates their normal equations for
+     * the given target trajectory, without keeping the recordings.
+     *
+     * @param graphs The networks to simulate. They may not be modified while
+     * the simulation runs.
+     * @param trajectory The joint angles, one row per sample.
+     * @param targetTrajectory The target of the readout, one row per sample.
+     * @param offset The numbers of first samples to ignore.
+     * @return The accumulator of every network, in the order of the graphs.
+     */
+    public List<GramAccumulator> accumulate(List<NetworkGraph> graphs, final RealMatrix trajectory, final RealMatrix targetTrajectory, final int offset) {
+        List<Callable<GramAccumulator>> tasks = new ArrayList<>();
+
+        for (final NetworkGraph graph : graphs) {
+            tasks.add(new Callable<GramAccumulator>() {
+                @Override
+                public GramAccumulator call() {
+                    MassSpringSimulator simulator = new MassSpringSimulator(graph, parameters);
+                    GramSink sink = new GramSink(simulator.getNumberOfRecordedSprings(), targetTrajectory, offset);
+                    simulator.simulate(trajectory, sink);
+                    return sink.getAccumulator();
+                }
+            });
+        }
+
+        return run(tasks);
+    }
+
+    /**
+     * Continues the simulation of one network from the same snapshot with
+     * every given trajectory, for example to evaluate several test
+     * trajectories after one washout.
+     *
+     * @param graph The network of the snapshot. It may not be modified while
+     * the simulation runs.
+     * @param snapshot The snapshot to continue from.
+     * @param trajectories The joint angles of every continuation.
+     * @return The spring lengths of every continuation, in the order of the
+     * trajectories.
+     * @see MassSpringSimulator#simulate(SimulationSnapshot, RealMatrix)
+     */
+    public List<RealMatrix> fork(final NetworkGraph graph, final SimulationSnapshot snapshot, List<RealMatrix> trajectories) {
+        List<Callable<RealMatrix>> tasks = new ArrayList<>();
+
+        for (final RealMatrix trajectory : trajectories) {
+            tasks.add(new Callable<RealMatrix>() {
+                @Override
+                public RealMatrix call() {
+                    return new MassSpringSimulator(graph, parameters).simulate(snapshot, trajectory);
+                }
+            });
+        }
+
+        return run(tasks);
+    }
+
+    private <T> List<T> run(List<Callable<T>> tasks) {
+        List<Future<T>> futures = pool.invokeAll(tasks);
+        List<T> results = new ArrayList<>(futures.size());
+
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("The ensemble simulation has been interrupted.");
+        } catch (ExecutionException ex) {
+            cancel(futures);
+
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new IllegalStateException("A simulation of the ensemble failed.", ex.getCause());
+        }
+
+        return results;
+    }
+
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Stops the threads of this simulator. It cannot be used afterwards.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+}
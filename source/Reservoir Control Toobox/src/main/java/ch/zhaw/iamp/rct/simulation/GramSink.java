@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.weights.GramAccumulator;
+import ch.zhaw.iamp.rct.weights.Weights;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * A {@link GramSink} adds every sample after the offset to a
+ * {@link GramAccumulator}, together with the corresponding row of the target
+ * trajectory. The target is aligned as in {@link Weights}, so solving the
+ * accumulator gives the weights for the simulated recording.
+ */
+public class GramSink implements SpringLengthSink {
+
+    private GramAccumulator accumulator;
+    private final double[][] targetTrajectory;
+    private final int offset;
+
+    /**
+     * Creates a sink for a recording of which the number of springs is not
+     * known yet. The accumulator is created with the length of the first
+     * accepted row.
+     *
+     * @param targetTrajectory The target trajectory, one row per sample.
+     * @param offset The numbers of first samples to ignore.
+     */
+    public GramSink(RealMatrix targetTrajectory, int offset) {
+        this.targetTrajectory = targetTrajectory.getData();
+        this.offset = offset;
+    }
+
+    /**
+     * @param numberOfSprings The number of recorded springs.
+     * @param targetTrajectory The target trajectory, one row per sample.
+     * @param offset The numbers of first samples to ignore.
+     */
+    public GramSink(int numberOfSprings, RealMatrix targetTrajectory, int offset) {
+        this(new GramAccumulator(numberOfSprings, targetTrajectory.getColumnDimension()), targetTrajectory, offset);
+    }
+
+    /**
+     * @param accumulator The accumulator to add the samples to.
+     * @param targetTrajectory The target trajectory, one row per sample.
+     * @param offset The numbers of first samples to ignore.
+     */
+    public GramSink(GramAccumulator accumulator, RealMatrix targetTrajectory, int offset) {
+        this.accumulator = accumulator;
+        this.targetTrajectory = targetTrajectory.getData();
+        this.offset = offset;
+    }
+
+    @Override
+    public void accept(int sample, double[] springLengths) {
+        if (sample >= offset) {
+            if (accumulator == null) {
+                accumulator = new GramAccumulator(springLengths.length, targetTrajectory[0].length);
+            }
+
+            accumulator.addRow(springLengths, targetTrajectory[sample % targetTrajectory.length]);
+        }
+    }
+
+    /**
+     * @return The accumulator, or null if the number of springs has not been
+     * given and no row after the offset has been accepted yet.
+     */
+    public GramAccumulator getAccumulator() {
+        return accumulator;
+    }
+
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import java.util.Arrays;
+
+/**
+ * An {@link ImplicitEulerIntegrator} advances a {@link CompiledNetwork} with
+ * the backward Euler method, linearized once per step. It stays stable for
+ * stiff springs at time steps, at which the explicit {@link VerletIntegrator}
+ * would diverge, at the price of some numerical damping.
+ * <p>
+ * Each step solves {@code (M - h ∂f/∂v - h² ∂f/∂x) Δv = h (f + h ∂f/∂x v)} for
+ * the change of the velocities of the free masses. The matrix is not built
+ * explicitly: its 2x2 blocks are stored per entry of the adjacency, and the
+ * system is solved with a conjugate gradient method, preconditioned with the
+ * inverted 2x2 diagonal blocks and started from the solution of the previous
+ * step. Compressed springs contribute no negative stiffness across their
+ * direction, which keeps the matrix positive definite.
+ */
+public class ImplicitEulerIntegrator implements Integrator {
+
+    public final static double DEFAULT_TOLERANCE = 1e-8;
+    public final static int DEFAULT_MAXIMAL_ITERATIONS = 500;
+    private final CompiledNetwork network;
+    private final double tolerance;
+    private final int maximalIterations;
+    private final double[] blockXX;
+    private final double[] blockXY;
+    private final double[] blockYY;
+    private final double[] inverseDiagonalXX;
+    private final double[] inverseDiagonalXY;
+    private final double[] inverseDiagonalYY;
+    private final double[] deltaVX;
+    private final double[] deltaVY;
+    private final double[] residualX;
+    private final double[] residualY;
+    private final double[] preconditionedX;
+    private final double[] preconditionedY;
+    private final double[] directionX;
+    private final double[] directionY;
+    private final double[] productX;
+    private final double[] productY;
+    private int lastNumberOfIterations;
+
+    public ImplicitEulerIntegrator(CompiledNetwork network) {
+        this(network, DEFAULT_TOLERANCE, DEFAULT_MAXIMAL_ITERATIONS);
+    }
+
+    /**
+     * @param network The network to integrate.
+     * @param tolerance The relative residual at which the conjugate gradient
+     * method stops.
+     * @param maximalIterations The maximal number of conjugate gradient
+     * iterations per step.
+     */
+    public ImplicitEulerIntegrator(CompiledNetwork network, double tolerance, int maximalIterations) {
+        this.network = network;
+        this.tolerance = tolerance;
+        this.maximalIterations = maximalIterations;
+        int entries = network.neighbours.length;
+        int free = network.freeMasses.length;
+        blockXX = new double[entries];
+        blockXY = new double[entries];
+        blockYY = new double[entries];
+        inverseDiagonalXX = new double[free];
+        inverseDiagonalXY = new double[free];
+        inverseDiagonalYY = new double[free];
+        deltaVX = new double[free];
+        deltaVY = new double[free];
+        residualX = new double[free];
+        residualY = new double[free];
+        preconditionedX = new double[free];
+        preconditionedY = new double[free];
+        directionX = new double[free];
+        directionY = new double[free];
+        productX = new double[free];
+        productY = new double[free];
+    }
+
+    @Override
+    public void initialize(SimulationState state) {
+        network.computeForces(state);
+    }
+
+    @Override
+    public void step(SimulationState state, double timeStep) {
+        network.computeForces(state);
+        assemble(state, timeStep);
+        solve();
+        int[] freeMasses = network.freeMasses;
+
+        for (int f = 0; f < freeMasses.length; f++) {
+            int i = freeMasses[f];
+            state.vx[i] += deltaVX[f];
+            state.vy[i] += deltaVY[f];
+            state.x[i] += state.vx[i] * timeStep;
+            state.y[i] += state.vy[i] * timeStep;
+        }
+
+        state.time += timeStep;
+    }
+
+    /**
+     * Calculates the blocks {@code h c uuᵀ + h² K} of every entry, the
+     * preconditioner and the right-hand side, which is stored as residual.
+     */
+    private void assemble(SimulationState state, double timeStep) {
+        int[] freeMasses = network.freeMasses;
+        int[] freeIndex = network.freeIndex;
+        double mass = 1 / network.inverseMass;
+        double h2 = timeStep * timeStep;
+        double[] x = state.x;
+        double[] y = state.y;
+        double[] vx = state.vx;
+        double[] vy = state.vy;
+
+        for (int f = 0; f < freeMasses.length; f++) {
+            int i = freeMasses[f];
+            double diagonalXX = mass;
+            double diagonalXY = 0;
+            double diagonalYY = mass;
+            double stiffnessVX = 0;
+            double stiffnessVY = 0;
+
+            for (int e = network.rowStart[f]; e < network.rowStart[f + 1]; e++) {
+                int j = network.neighbours[e];
+                double dx = x[j] - x[i];
+                double dy = y[j] - y[i];
+                double length = Math.sqrt(dx * dx + dy * dy);
+                double ux = length > 0 ? dx / length : 0;
+                double uy = length > 0 ? dy / length : 0;
+                double transverse = length > 0 ? Math.max(0, 1 - network.restLengths[e] / length) : 0;
+                double k = network.stiffnesses[e];
+                double kxx = k * (transverse + (1 - transverse) * ux * ux);
+                double kxy = k * (1 - transverse) * ux * uy;
+                double kyy = k * (transverse + (1 - transverse) * uy * uy);
+                double c = timeStep * network.damping;
+                blockXX[e] = h2 * kxx + c * ux * ux;
+                blockXY[e] = h2 * kxy + c * ux * uy;
+                blockYY[e] = h2 * kyy + c * uy * uy;
+                diagonalXX += blockXX[e];
+                diagonalXY += blockXY[e];
+                diagonalYY += blockYY[e];
+
+                // driven neighbours have already moved, so only free ones contribute
+                double relativeVX = (freeIndex[j] >= 0 ? vx[j] : 0) - vx[i];
+                double relativeVY = (freeIndex[j] >= 0 ? vy[j] : 0) - vy[i];
+                stiffnessVX += kxx * relativeVX + kxy * relativeVY;
+                stiffnessVY += kxy * relativeVX + kyy * relativeVY;
+            }
+
+            double determinant = diagonalXX * diagonalYY - diagonalXY * diagonalXY;
+            inverseDiagonalXX[f] = diagonalYY / determinant;
+            inverseDiagonalXY[f] = -diagonalXY / determinant;
+            inverseDiagonalYY[f] = diagonalXX / determinant;
+            residualX[f] = timeStep * (state.fx[i] + timeStep * stiffnessVX);
+            residualY[f] = timeStep * (state.fy[i] + timeStep * stiffnessVY);
+        }
+    }
+
+    /**
+     * Solves the system with the preconditioned conjugate gradient method,
+     * starting from the last solution.
+     */
+    private void solve() {
+        int free = deltaVX.length;
+        double rhsNorm = Math.sqrt(dot(residualX, residualY, residualX, residualY));
+        lastNumberOfIterations = 0;
+
+        if (rhsNorm == 0) {
+            Arrays.fill(deltaVX, 0);
+            Arrays.fill(deltaVY, 0);
+            return;
+        }
+
+        multiply(deltaVX, deltaVY, productX, productY);
+
+        for (int f = 0; f < free; f++) {
+            residualX[f] -= productX[f];
+            residualY[f] -= productY[f];
+        }
+
+        precondition();
+        System.arraycopy(preconditionedX, 0, directionX, 0, free);
+        System.arraycopy(preconditionedY, 0, directionY, 0, free);
+        double rz = dot(residualX, residualY, preconditionedX, preconditionedY);
+
+        while (lastNumberOfIterations < maximalIterations
+                && Math.sqrt(dot(residualX, residualY, residualX, residualY)) > tolerance * rhsNorm) {
+            multiply(directionX, directionY, productX, productY);
+            double alpha = rz / dot(directionX, directionY, productX, productY);
+
+            for (int f = 0; f < free; f++) {
+                deltaVX[f] += alpha * directionX[f];
+                deltaVY[f] += alpha * directionY[f];
+                residualX[f] -= alpha * productX[f];
+                residualY[f] -= alpha * productY[f];
+            }
+
+            precondition();
+            double nextRz = dot(residualX, residualY, preconditionedX, preconditionedY);
+            double beta = nextRz / rz;
+            rz = nextRz;
+
+            for (int f = 0; f < free; f++) {
+                directionX[f] = preconditionedX[f] + beta * directionX[f];
+                directionY[f] = preconditionedY[f] + beta * directionY[f];
+            }
+
+            lastNumberOfIterations++;
+        }
+    }
+
+    /**
+     * Calculates {@code A p = M p + Σ B (p_i - p_j)}, where {@code p_j} is zero
+     * for driven neighbours.
+     */
+    private void multiply(double[] px, double[] py, double[] resultX, double[] resultY) {
+        int[] freeIndex = network.freeIndex;
+        double mass = 1 / network.inverseMass;
+
+        for (int f = 0; f < px.length; f++) {
+            double sumX = mass * px[f];
+            double sumY = mass * py[f];
+
+            for (int e = network.rowStart[f]; e < network.rowStart[f + 1]; e++) {
+                int g = freeIndex[network.neighbours[e]];
+                double differenceX = px[f] - (g >= 0 ? px[g] : 0);
+                double differenceY = py[f] - (g >= 0 ? py[g] : 0);
+                sumX += blockXX[e] * differenceX + blockXY[e] * differenceY;
+                sumY += blockXY[e] * differenceX + blockYY[e] * differenceY;
+            }
+
+            resultX[f] = sumX;
+            resultY[f] = sumY;
+        }
+    }
+
+    private void precondition() {
+        for (int f = 0; f < residualX.length; f++) {
+            preconditionedX[f] = inverseDiagonalXX[f] * residualX[f] + inverseDiagonalXY[f] * residualY[f];
+            preconditionedY[f] = inverseDiagonalXY[f] * residualX[f] + inverseDiagonalYY[f] * residualY[f];
+        }
+    }
+
+    private static double dot(double[] ax, double[] ay, double[] bx, double[] by) {
+        double sum = 0;
+
+        for (int f = 0; f < ax.length; f++) {
+            sum += ax[f] * bx[f] + ay[f] * by[f];
+        }
+
+        return sum;
+    }
+
+    /**
+     * @return The number of conjugate gradient iterations of the last step.
+     */
+    public int getLastNumberOfIterations() {
+        return lastNumberOfIterations;
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+/**
+ * An {@link Integrator} advances the free masses of a {@link CompiledNetwork}
+ * in time. The driven masses are moved by the caller: when
+ * {@link #step(SimulationState, double)} is invoked, they already have to be
+ * at their positions and velocities of the end of the step.
+ */
+public interface Integrator {
+
+    /**
+     * Prepares the given state for integration, for example by calculating
+     * the forces. This has to be invoked whenever the state has been changed
+     * from outside.
+     *
+     * @param state The state to prepare.
+     */
+    void initialize(SimulationState state);
+
+    /**
+     * Advances the free masses of the given state by one step.
+     *
+     * @param state The state to advance.
+     * @param timeStep The duration of the step in seconds.
+     */
+    void step(SimulationState state, double timeStep);
+
+}
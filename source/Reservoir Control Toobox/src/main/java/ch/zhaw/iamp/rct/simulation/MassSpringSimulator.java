@@ -0,0 +1,321 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.GraphConverter;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import ch.zhaw.iamp.rct.weights.Weights;
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * A {@link MassSpringSimulator} is a simple two-dimensional stand-in for the
+ * Physics Toolbox, which runs within this application.
+ * <p>
+ * The masses of the robot arm are moved along the joint angles of the
+ * trajectory by a {@link RobotArm}. The network masses are connected by
+ * damped springs: springs of the type {@code SPRING_CONSTRAINT} use the
+ * configured stiffness, all other connection types are treated as fixed
+ * constraints and use the much higher fixed constraint stiffness. The rest
+ * length of every spring is its length in the graph.
+ * <p>
+ * The result has one row per trajectory row and one column per spring of the
+ * type {@code SPRING_CONSTRAINT}, in the order of the connection map written
+ * by {@link GraphConverter}. This is the layout read by {@link Weights}.
+ *
+ * @see CompiledNetwork
+ */
+public class MassSpringSimulator {
+
+    private final CompiledNetwork network;
+    private final Integrator integrator;
+    private final double timeStep;
+    private final int stepsPerSample;
+    private final SimulationState state;
+    private double lastShoulderAngle;
+    private double lastElbowAngle;
+    private int numberOfSamples;
+
+    /**
+     * Creates a simulator which uses a {@link VerletIntegrator}.
+     *
+     * @param graph The network and robot arm to simulate. The graph is not
+     * modified.
+     * @param parameters The parameters. Later changes to them are not
+     * considered.
+     */
+    public MassSpringSimulator(NetworkGraph graph, SimulationParameters parameters) {
+        this(new CompiledNetwork(graph, parameters), parameters);
+    }
+
+    private MassSpringSimulator(CompiledNetwork network, SimulationParameters parameters) {
+        this(network, new VerletIntegrator(network), parameters);
+    }
+
+    /**
+     * @param network The compiled network to simulate.
+     * @param integrator The integrator, which has to work on the same network.
+     * @param parameters The parameters. Only the time step and the steps per
+     * sample are used, later changes to them are not considered.
+     */
+    public MassSpringSimulator(CompiledNetwork network, Integrator integrator, SimulationParameters parameters) {
+        if (network == null || integrator == null || parameters == null) {
+            throw new IllegalArgumentException("The arguments may not be null.");
+        }
+
+        this.network = network;
+        this.integrator = integrator;
+        timeStep = parameters.getTimeStep();
+        stepsPerSample = parameters.getStepsPerSample();
+        state = network.createInitialState();
+    }
+
+    /**
+     * Reads the graph and the trajectory from the given files, simulates them
+     * and writes the spring lengths to the given file.
+     *
+     * @param massesFile The masses file, as written by {@link GraphConverter}.
+     * @param connectionMapFile The connection map file, as written by
+     * {@link GraphConverter}.
+     * @param trajectoryFile The trajectory file with the two joint angles per
+     * row.
+     * @param springLengthsFile The file to which the spring lengths are
+     * written.
+     * @param parameters The parameters of the simulation.
+     * @throws IOException If a file could not be read or written.
+     */
+    public static void simulate(String massesFile, String connectionMapFile, String trajectoryFile, String springLengthsFile, SimulationParameters parameters) throws IOException {
+        NetworkGraph graph = readGraph(massesFile, connectionMapFile);
+        RealMatrix trajectory = Weights.csvToMatrix(trajectoryFile);
+        RealMatrix springLengths = new MassSpringSimulator(graph, parameters).simulate(trajectory);
+        Weights.matrixToCsv(springLengths, springLengthsFile);
+    }
+
+    /**
+     * Reads the graph and the trajectories from the given files, simulates
+     * them and writes the weights for the target trajectory to the given file.
+     * The spring lengths are passed to a {@link GramSink} while the simulation
+     * runs, so they are neither kept in memory nor written and parsed again.
+     * Unlike {@link Weights}, no noise is added to the spring lengths.
+     *
+     * @param massesFile The masses file, as written by {@link GraphConverter}.
+     * @param connectionMapFile The connection map file, as written by
+     * {@link GraphConverter}.
+     * @param trajectoryFile The trajectory file with the two joint angles per
+     * row.
+     * @param targetTrajectoryFile The target trajectory, one row per sample.
+     * @param weightsFile The file to which the weights are written.
+     * @param offset The numbers of first samples to ignore.
+     * @param parameters The parameters of the simulation.
+     * @throws IOException If a file could not be read or written.
+     */
+    public static void train(String massesFile, String connectionMapFile, String trajectoryFile, String targetTrajectoryFile,
+            String weightsFile, int offset, SimulationParameters parameters) throws IOException {
+        NetworkGraph graph = readGraph(massesFile, connectionMapFile);
+        RealMatrix trajectory = Weights.csvToMatrix(trajectoryFile);
+        RealMatrix targetTrajectory = Weights.csvToMatrix(targetTrajectoryFile);
+        MassSpringSimulator simulator = new MassSpringSimulator(graph, parameters);
+        GramSink sink = new GramSink(simulator.getNumberOfRecordedSprings(), targetTrajectory, offset);
+        simulator.simulate(trajectory, sink);
+        Weights.matrixToCsv(sink.getAccumulator().solve(), weightsFile);
+    }
+
+    private static NetworkGraph readGraph(String massesFile, String connectionMapFile) throws IOException {
+        return GraphConverter.toNetworkGraph(
+                FileUtils.readFileToString(new File(massesFile)),
+                FileUtils.readFileToString(new File(connectionMapFile)));
+    }
+
+    /**
+     * Simulates the given trajectory, starting with the network at rest in the
+     * pose of the graph. Within one sample, the joint angles are interpolated
+     * linearly from the previous row and the driven masses move with the
+     * corresponding constant angular velocities.
+     *
+     * @param trajectory The joint angles, one row per sample. The first column
+     * is the shoulder angle, the second the elbow angle.
+     * @return The spring lengths, one row per sample.
+     * @throws DimensionMismatchException If the trajectory has less than two
+     * columns.
+     */
+    public RealMatrix simulate(RealMatrix trajectory) {
+        final double[][] springLengths = new double[trajectory.getRowDimension()][];
+
+        simulate(trajectory, new SpringLengthSink() {
+            @Override
+            public void accept(int sample, double[] lengths) {
+                springLengths[sample] = lengths.clone();
+            }
+        });
+
+        return MatrixUtils.createRealMatrix(springLengths);
+    }
+
+    /**
+     * Simulates the given trajectory as {@link #simulate(RealMatrix)} does,
+     * but passes the spring lengths of every sample to the given sink instead
+     * of collecting them.
+     *
+     * @param trajectory The joint angles, one row per sample.
+     * @param sink The sink, which receives the spring lengths.
+     * @throws DimensionMismatchException If the trajectory has less than two
+     * columns.
+     */
+    public void simulate(RealMatrix trajectory, SpringLengthSink sink) {
+        checkTrajectory(trajectory);
+        start(trajectory.getEntry(0, 0), trajectory.getEntry(0, 1));
+        run(trajectory, sink);
+    }
+
+    /**
+     * Continues the simulation from the given snapshot with the given
+     * trajectory. The first row is interpolated from the last angles of the
+     * snapshot. The snapshot is not changed, so several trajectories can be
+     * continued from the same snapshot.
+     *
+     * @param snapshot The snapshot of a simulation of the same network.
+     * @param trajectory The joint angles, one row per sample.
+     * @return The spring lengths, one row per sample of the given trajectory.
+     * @throws DimensionMismatchException If the trajectory has less than two
+     * columns.
+     * @throws IllegalArgumentException If the snapshot belongs to a network
+     * with another number of masses.
+     */
+    public RealMatrix simulate(SimulationSnapshot snapshot, RealMatrix trajectory) {
+        final double[][] springLengths = new double[trajectory.getRowDimension()][];
+
+        simulate(snapshot, trajectory, new SpringLengthSink() {
+            @Override
+            public void accept(int sample, double[] lengths) {
+                springLengths[sample] = lengths.clone();
+            }
+        });
+
+        return MatrixUtils.createRealMatrix(springLengths);
+    }
+
+    /**
+     * Continues the simulation from the given snapshot as
+     * {@link #simulate(SimulationSnapshot, RealMatrix)} does, but passes the
+     * spring lengths of every sample to the given sink. The sample indices
+     * start at 0 with the first row of the given trajectory.
+     *
+     * @param snapshot The snapshot of a simulation of the same network.
+     * @param trajectory The joint angles, one row per sample.
+     * @param sink The sink, which receives the spring lengths.
+     */
+    public void simulate(SimulationSnapshot snapshot, RealMatrix trajectory, SpringLengthSink sink) {
+        checkTrajectory(trajectory);
+        snapshot.restore(state);
+        lastShoulderAngle = snapshot.getShoulderAngle();
+        lastElbowAngle = snapshot.getElbowAngle();
+        numberOfSamples = snapshot.getNumberOfSamples();
+        run(trajectory, sink);
+    }
+
+    static void checkTrajectory(RealMatrix trajectory) {
+        if (trajectory.getColumnDimension() < 2) {
+            throw new DimensionMismatchException(trajectory.getColumnDimension(), 2);
+        }
+    }
+
+    private void run(RealMatrix trajectory, SpringLengthSink sink) {
+        double[] springLengths = new double[network.getNumberOfRecordedSprings()];
+
+        for (int sample = 0; sample < trajectory.getRowDimension(); sample++) {
+            advance(trajectory.getEntry(sample, 0), trajectory.getEntry(sample, 1));
+            recordSpringLengths(springLengths);
+            sink.accept(sample, springLengths);
+        }
+    }
+
+    /**
+     * Puts the network at rest in the pose of the graph, with the arm at the
+     * given angles.
+     */
+    void start(double shoulderAngle, double elbowAngle) {
+        state.copyFrom(network.createInitialState());
+        network.arm.moveTo(shoulderAngle, elbowAngle, state.x, state.y);
+        integrator.initialize(state);
+        lastShoulderAngle = shoulderAngle;
+        lastElbowAngle = elbowAngle;
+        numberOfSamples = 0;
+    }
+
+    /**
+     * Simulates one sample, in which the joint angles are interpolated
+     * linearly from the last angles to the given ones.
+     */
+    void advance(double shoulderAngle, double elbowAngle) {
+        double sampleInterval = stepsPerSample * timeStep;
+        double shoulderRate = (shoulderAngle - lastShoulderAngle) / sampleInterval;
+        double elbowRate = (elbowAngle - lastElbowAngle) / sampleInterval;
+
+        for (int step = 1; step <= stepsPerSample; step++) {
+            double elapsed = step * timeStep;
+            network.arm.moveTo(lastShoulderAngle + elapsed * shoulderRate, lastElbowAngle + elapsed * elbowRate,
+                    shoulderRate, elbowRate, state.x, state.y, state.vx, state.vy);
+            integrator.step(state, timeStep);
+        }
+
+        lastShoulderAngle = shoulderAngle;
+        lastElbowAngle = elbowAngle;
+        numberOfSamples++;
+    }
+
+    void recordSpringLengths(double[] target) {
+        network.recordSpringLengths(state, target);
+    }
+
+    /**
+     * Takes a snapshot of the state after the last simulation, for example
+     * after simulating the washout. Further simulations with this simulator do
+     * not change the snapshot.
+     *
+     * @return The snapshot.
+     * @throws IllegalStateException If nothing has been simulated yet.
+     */
+    public SimulationSnapshot snapshot() {
+        if (numberOfSamples == 0) {
+            throw new IllegalStateException("There is no simulation to take a snapshot of.");
+        }
+
+        return new SimulationSnapshot(state, lastShoulderAngle, lastElbowAngle, numberOfSamples);
+    }
+
+    public CompiledNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * @return The number of columns of the simulated spring lengths.
+     */
+    public int getNumberOfRecordedSprings() {
+        return network.getNumberOfRecordedSprings();
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import java.util.concurrent.Phaser;
+
+/**
+ * A {@link PartitionedIntegrator} advances one large network on several
+ * threads with the same velocity Verlet method as the
+ * {@link VerletIntegrator}.
+ * <p>
+ * The free masses are split into contiguous partitions of the adjacency, each
+ * with about the same number of entries. Every partition is integrated by its
+ * own thread; the calling thread works on the first one. A step consists of
+ * the phases start, half kick and drift, force calculation and second half
+ * kick, separated by the barriers of a {@link Phaser}. Positions and
+ * velocities at partition boundaries are exchanged through the shared state
+ * at these barriers.
+ * <p>
+ * Since every mass gathers its force from its own row of the adjacency in a
+ * fixed order, the results are bitwise identical to these of the
+ * {@link VerletIntegrator}, independent of the number of threads.
+ */
+public class PartitionedIntegrator implements Integrator {
+
+    private final CompiledNetwork network;
+    private final int[] partitionStart;
+    private final Phaser phaser;
+    private volatile SimulationState currentState;
+    private volatile double currentTimeStep;
+    private volatile boolean isShutdown;
+
+    /**
+     * Starts the worker threads. They have to be stopped with
+     * {@link #shutdown()}.
+     *
+     * @param network The network to integrate.
+     * @param numberOfPartitions The number of partitions and threads,
+     * including the calling thread.
+     * @throws IllegalArgumentException If the number of partitions is not
+     * positive.
+     */
+    public PartitionedIntegrator(CompiledNetwork network, int numberOfPartitions) {
+        if (numberOfPartitions < 1) {
+            throw new IllegalArgumentException("At least one partition is needed.");
+        }
+
+        this.network = network;
+        partitionStart = createPartitions(network, numberOfPartitions);
+        phaser = new Phaser(numberOfPartitions);
+
+        for (int p = 1; p < numberOfPartitions; p++) {
+            final int partition = p;
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work(partition);
+                }
+            }, "simulation-partition-" + p);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Splits the free masses into contiguous ranges with about the same
+     * number of adjacency entries each.
+     */
+    static int[] createPartitions(CompiledNetwork network, int numberOfPartitions) {
+        int numberOfFreeMasses = network.freeMasses.length;
+        int[] start = new int[numberOfPartitions + 1];
+        // every mass costs its entries plus the kicks and the drift
+        long totalCost = network.rowStart[numberOfFreeMasses] + numberOfFreeMasses;
+        int f = 0;
+
+        for (int p = 1; p < numberOfPartitions; p++) {
+            long targetCost = totalCost * p / numberOfPartitions;
+
+            while (f < numberOfFreeMasses && network.rowStart[f] + f < targetCost) {
+                f++;
+            }
+
+            start[p] = f;
+        }
+
+        start[numberOfPartitions] = numberOfFreeMasses;
+        return start;
+    }
+
+    private void work(int partition) {
+        try {
+            while (true) {
+                awaitPhase();
+
+                if (isShutdown) {
+                    phaser.arriveAndDeregister();
+                    return;
+                }
+
+                runStep(partition);
+            }
+        } catch (RuntimeException | Error ex) {
+            phaser.forceTermination();
+            throw ex;
+        }
+    }
+
+    private void runStep(int partition) {
+        SimulationState state = currentState;
+        double timeStep = currentTimeStep;
+        int first = partitionStart[partition];
+        int end = partitionStart[partition + 1];
+
+        VerletIntegrator.kickAndDrift(network, state, timeStep, first, end);
+        awaitPhase();
+        network.computeForces(state, first, end);
+        // the damping reads the velocities of neighbours, so they may only be changed afterwards
+        awaitPhase();
+        VerletIntegrator.kick(network, state, timeStep, first, end);
+        awaitPhase();
+    }
+
+    private void awaitPhase() {
+        if (phaser.arriveAndAwaitAdvance() < 0) {
+            throw new IllegalStateException("A partition of the simulation has failed.");
+        }
+    }
+
+    @Override
+    public void initialize(SimulationState state) {
+        network.computeForces(state);
+    }
+
+    @Override
+    public void step(SimulationState state, double timeStep) {
+        if (isShutdown) {
+            throw new IllegalStateException("The integrator has been shut down.");
+        }
+
+        currentState = state;
+        currentTimeStep = timeStep;
+        awaitPhase();
+        runStep(0);
+        state.time += timeStep;
+    }
+
+    /**
+     * @return The number of partitions, including the one of the calling
+     * thread.
+     */
+    public int getNumberOfPartitions() {
+        return partitionStart.length - 1;
+    }
+
+    /**
+     * Stops the worker threads. The integrator cannot be used afterwards.
+     */
+    public void shutdown() {
+        if (!isShutdown) {
+            isShutdown = true;
+            phaser.arriveAndDeregister();
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+/**
+ * A {@link ReadoutListener} is informed about the readout of every sample of a
+ * {@link ClosedLoopSimulator}, for example to plot it or to stop a hopeless
+ * candidate early by returning false. The arrays are reused for the next sample and may not be
+ * kept or modified.
+ */
+public interface ReadoutListener {
+
+    /**
+     * @param sample The index of the sample.
+     * @param readout The readout, one entry per output.
+     * @param target The target of the sample, one entry per output.
+     * @param meanSquaredErrors The mean squared errors per output over all
+     * evaluated samples so far. They are NaN during the washout.
+     * @return true to continue with the next sample, false to stop the
+     * simulation after this one.
+     */
+    boolean readoutCalculated(int sample, double[] readout, double[] target, double[] meanSquaredErrors);
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.weights.RlsTrainer;
+import ch.zhaw.iamp.rct.weights.Weights;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * A {@link RlsSink} trains a {@link RlsTrainer} with every sample after the
+ * offset and the corresponding row of the target trajectory, aligned as in
+ * {@link Weights}. The weights are complete when the simulation returns.
+ */
+public class RlsSink implements SpringLengthSink {
+
+    private final RlsTrainer trainer;
+    private final double[][] targetTrajectory;
+    private final int offset;
+
+    /**
+     * Creates a sink with a trainer with the default settings.
+     *
+     * @param numberOfSprings The number of recorded springs.
+     * @param targetTrajectory The target trajectory, one row per sample.
+     * @param offset The numbers of first samples to ignore.
+     */
+    public RlsSink(int numberOfSprings, RealMatrix targetTrajectory, int offset) {
+        this(new RlsTrainer(numberOfSprings, targetTrajectory.getColumnDimension()), targetTrajectory, offset);
+    }
+
+    /**
+     * @param trainer The trainer to train with the samples.
+     * @param targetTrajectory The target trajectory, one row per sample.
+     * @param offset The numbers of first samples to ignore.
+     */
+    public RlsSink(RlsTrainer trainer, RealMatrix targetTrajectory, int offset) {
+        this.trainer = trainer;
+        this.targetTrajectory = targetTrajectory.getData();
+        this.offset = offset;
+    }
+
+    @Override
+    public void accept(int sample, double[] springLengths) {
+        if (sample >= offset) {
+            trainer.addRow(springLengths, targetTrajectory[sample % targetTrajectory.length]);
+        }
+    }
+
+    public RlsTrainer getTrainer() {
+        return trainer;
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.Mass;
+import static ch.zhaw.iamp.rct.graph.Mass.Type.*;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import java.util.List;
+
+/**
+ * A {@link RobotArm} moves all masses of a {@link NetworkGraph} that are not
+ * network masses, according to the two joint angles of the arm.
+ * <p>
+ * As in the grammar, the upper arm reaches from the shoulder to the elbow and
+ * the lower arm from the elbow to the hand. A mass belongs to the upper arm,
+ * if its y coordinate is between these of the shoulder and the elbow, and to
+ * the lower arm otherwise. The upper arm is rotated around the shoulder by the
+ * shoulder angle, the lower arm additionally around the elbow by the elbow
+ * angle. Angles are in radians, zero is the pose of the graph.
+ * <p>
+ * Without shoulder or elbow, all masses of the arm stay where they are.
+ */
+public class RobotArm {
+
+    private final static int NOT_DRIVEN = 0;
+    private final static int FIXED = 1;
+    private final static int UPPER_ARM = 2;
+    private final static int LOWER_ARM = 3;
+    private final int[] segments;
+    private final double[] initialX;
+    private final double[] initialY;
+    private final double shoulderX;
+    private final double shoulderY;
+    private final double elbowX;
+    private final double elbowY;
+
+    /**
+     * @param graph The graph of which the masses are moved. The masses are
+     * referenced by their index in {@link NetworkGraph#getMasses()}.
+     */
+    public RobotArm(NetworkGraph graph) {
+        List<Mass> masses = graph.getMasses();
+        Mass shoulder = graph.getShoulder();
+        Mass elbow = graph.getElbow();
+        boolean isMovable = shoulder != null && elbow != null;
+        segments = new int[masses.size()];
+        initialX = new double[masses.size()];
+        initialY = new double[masses.size()];
+        shoulderX = isMovable ? shoulder.getX() : 0;
+        shoulderY = isMovable ? shoulder.getY() : 0;
+        elbowX = isMovable ? elbow.getX() : 0;
+        elbowY = isMovable ? elbow.getY() : 0;
+        double upperArmStart = Math.min(shoulderY, elbowY);
+        double upperArmEnd = Math.max(shoulderY, elbowY);
+        int i = 0;
+
+        for (Mass mass : masses) {
+            initialX[i] = mass.getX();
+            initialY[i] = mass.getY();
+
+            if (mass.getType() == NETWORK) {
+                segments[i] = NOT_DRIVEN;
+            } else if (!isMovable || mass.getType() == SHOULDER) {
+                segments[i] = FIXED;
+            } else if (mass.getY() >= upperArmStart && mass.getY() <= upperArmEnd) {
+                segments[i] = UPPER_ARM;
+            } else {
+                segments[i] = LOWER_ARM;
+            }
+
+            i++;
+        }
+    }
+
+    /**
+     * @param massIndex The index of a mass in the graph.
+     * @return true, if the mass is moved by the arm, false, if it is a network
+     * mass.
+     */
+    public boolean isDriven(int massIndex) {
+        return segments[massIndex] != NOT_DRIVEN;
+    }
+
+    /**
+     * Writes the positions of all driven masses for the given angles. The
+     * positions of network masses are not touched.
+     *
+     * @param shoulderAngle The angle of the upper arm.
+     * @param elbowAngle The angle of the lower arm, relative to the upper arm.
+     * @param x The x coordinates, one entry per mass of the graph.
+     * @param y The y coordinates, one entry per mass of the graph.
+     */
+    public void moveTo(double shoulderAngle, double elbowAngle, double[] x, double[] y) {
+        moveTo(shoulderAngle, elbowAngle, 0, 0, x, y, null, null);
+    }
+
+    /**
+     * Writes the positions and velocities of all driven masses for the given
+     * angles and angular velocities. The network masses are not touched.
+     *
+     * @param shoulderAngle The angle of the upper arm.
+     * @param elbowAngle The angle of the lower arm, relative to the upper arm.
+     * @param shoulderRate The angular velocity of the upper arm.
+     * @param elbowRate The angular velocity of the lower arm, relative to the
+     * upper arm.
+     * @param x The x coordinates, one entry per mass of the graph.
+     * @param y The y coordinates, one entry per mass of the graph.
+     * @param vx The x velocities, or null, if they are not needed.
+     * @param vy The y velocities, or null, if they are not needed.
+     */
+    public void moveTo(double shoulderAngle, double elbowAngle, double shoulderRate, double elbowRate,
+            double[] x, double[] y, double[] vx, double[] vy) {
+        double upperCos = Math.cos(shoulderAngle);
+        double upperSin = Math.sin(shoulderAngle);
+        double lowerCos = Math.cos(shoulderAngle + elbowAngle);
+        double lowerSin = Math.sin(shoulderAngle + elbowAngle);
+        double lowerRate = shoulderRate + elbowRate;
+        double movedElbowX = shoulderX + upperCos * (elbowX - shoulderX) - upperSin * (elbowY - shoulderY);
+        double movedElbowY = shoulderY + upperSin * (elbowX - shoulderX) + upperCos * (elbowY - shoulderY);
+        double elbowVelocityX = -shoulderRate * (movedElbowY - shoulderY);
+        double elbowVelocityY = shoulderRate * (movedElbowX - shoulderX);
+
+        for (int i = 0; i < segments.length; i++) {
+            double velocityX = 0;
+            double velocityY = 0;
+
+            switch (segments[i]) {
+                case NOT_DRIVEN:
+                    continue;
+                case FIXED:
+                    x[i] = initialX[i];
+                    y[i] = initialY[i];
+                    break;
+                case UPPER_ARM:
+                    double upperX = initialX[i] - shoulderX;
+                    double upperY = initialY[i] - shoulderY;
+                    x[i] = shoulderX + upperCos * upperX - upperSin * upperY;
+                    y[i] = shoulderY + upperSin * upperX + upperCos * upperY;
+                    velocityX = -shoulderRate * (y[i] - shoulderY);
+                    velocityY = shoulderRate * (x[i] - shoulderX);
+                    break;
+                case LOWER_ARM:
+                    double lowerX = initialX[i] - elbowX;
+                    double lowerY = initialY[i] - elbowY;
+                    x[i] = movedElbowX + lowerCos * lowerX - lowerSin * lowerY;
+                    y[i] = movedElbowY + lowerSin * lowerX + lowerCos * lowerY;
+                    velocityX = elbowVelocityX - lowerRate * (y[i] - movedElbowY);
+                    velocityY = elbowVelocityY + lowerRate * (x[i] - movedElbowX);
+                    break;
+            }
+
+            if (vx != null) {
+                vx[i] = velocityX;
+                vy[i] = velocityY;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+/**
+ * The physical and numerical parameters of a {@link MassSpringSimulator}. All
+ * network masses have the same mass, all springs the same stiffness and
+ * damping.
+ * <p>
+ * One row of the trajectory is one sample. Between two samples, the network
+ * is integrated in {@code stepsPerSample} steps of {@code timeStep} seconds.
+ */
+public class SimulationParameters {
+
+    private double timeStep = 0.001;
+    private int stepsPerSample = 10;
+    private double mass = 1;
+    private double stiffness = 100;
+    private double damping = 1;
+    private double fixedConstraintStiffness = 10000;
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * @param timeStep The duration of one integration step in seconds.
+     * @throws IllegalArgumentException If the argument is not positive.
+     */
+    public void setTimeStep(double timeStep) {
+        verifyPositive(timeStep);
+        this.timeStep = timeStep;
+    }
+
+    public int getStepsPerSample() {
+        return stepsPerSample;
+    }
+
+    /**
+     * @param stepsPerSample The number of integration steps between two rows
+     * of the trajectory.
+     * @throws IllegalArgumentException If the argument is not positive.
+     */
+    public void setStepsPerSample(int stepsPerSample) {
+        verifyPositive(stepsPerSample);
+        this.stepsPerSample = stepsPerSample;
+    }
+
+    /**
+     * @return The duration between two samples in seconds.
+     */
+    public double getSampleInterval() {
+        return timeStep * stepsPerSample;
+    }
+
+    public double getMass() {
+        return mass;
+    }
+
+    /**
+     * @param mass The mass of every network mass.
+     * @throws IllegalArgumentException If the argument is not positive.
+     */
+    public void setMass(double mass) {
+        verifyPositive(mass);
+        this.mass = mass;
+    }
+
+    public double getStiffness() {
+        return stiffness;
+    }
+
+    /**
+     * @param stiffness The spring constant of springs of the type
+     * {@code SPRING_CONSTRAINT}.
+     * @throws IllegalArgumentException If the argument is negative.
+     */
+    public void setStiffness(double stiffness) {
+        verifyNotNegative(stiffness);
+        this.stiffness = stiffness;
+    }
+
+    public double getDamping() {
+        return damping;
+    }
+
+    /**
+     * @param damping The damping coefficient of all springs.
+     * @throws IllegalArgumentException If the argument is negative.
+     */
+    public void setDamping(double damping) {
+        verifyNotNegative(damping);
+        this.damping = damping;
+    }
+
+    public double getFixedConstraintStiffness() {
+        return fixedConstraintStiffness;
+    }
+
+    /**
+     * @param fixedConstraintStiffness The spring constant used for all other
+     * connection types, which hold a network mass rigidly in place.
+     * @throws IllegalArgumentException If the argument is negative.
+     */
+    public void setFixedConstraintStiffness(double fixedConstraintStiffness) {
+        verifyNotNegative(fixedConstraintStiffness);
+        this.fixedConstraintStiffness = fixedConstraintStiffness;
+    }
+
+    private static void verifyPositive(double value) {
+        if (!(value > 0)) {
+            throw new IllegalArgumentException("The argument has to be positive.");
+        }
+    }
+
+    private static void verifyNotNegative(double value) {
+        if (!(value >= 0)) {
+            throw new IllegalArgumentException("The argument may not be negative.");
+        }
+    }
+
+}
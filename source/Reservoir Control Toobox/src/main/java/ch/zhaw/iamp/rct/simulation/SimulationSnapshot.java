@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A {@link SimulationSnapshot} is the complete state of a simulation after a
+ * number of samples: positions, velocities and forces of all masses, the
+ * simulated time and the last joint angles of the arm. A simulation continued
+ * from a snapshot gives exactly the same spring lengths as a simulation which
+ * has not been interrupted.
+ * <p>
+ * Snapshots are immutable, so any number of continuations can be forked from
+ * the same one. This way the washout of a network, the first samples that are
+ * cut before the weights are calculated, is only simulated once for several
+ * test trajectories.
+ *
+ * @see MassSpringSimulator#snapshot()
+ */
+public class SimulationSnapshot {
+
+    public final static String FILE_ENDING = ".snapshot";
+    final static int FILE_MAGIC_NUMBER = 0x52435453;
+    final static int FILE_VERSION = 1;
+    private final SimulationState state;
+    private final double shoulderAngle;
+    private final double elbowAngle;
+    private final int numberOfSamples;
+
+    SimulationSnapshot(SimulationState state, double shoulderAngle, double elbowAngle, int numberOfSamples) {
+        this.state = state.copy();
+        this.shoulderAngle = shoulderAngle;
+        this.elbowAngle = elbowAngle;
+        this.numberOfSamples = numberOfSamples;
+    }
+
+    /**
+     * Overwrites the given state with the one of this snapshot.
+     */
+    void restore(SimulationState target) {
+        if (target.getNumberOfMasses() != state.getNumberOfMasses()) {
+            throw new IllegalArgumentException("The snapshot has " + state.getNumberOfMasses()
+                    + " masses, but the network has " + target.getNumberOfMasses() + ".");
+        }
+
+        target.copyFrom(state);
+    }
+
+    /**
+     * Writes this snapshot to the given file. All values are written in full
+     * precision, so the continuation of a read snapshot is not changed.
+     *
+     * @param file The target file.
+     * @throws IOException If the file could not be written.
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_MAGIC_NUMBER);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(state.getNumberOfMasses());
+            out.writeInt(numberOfSamples);
+            out.writeDouble(state.time);
+            out.writeDouble(shoulderAngle);
+            out.writeDouble(elbowAngle);
+
+            for (double[] values : new double[][]{state.x, state.y, state.vx, state.vy, state.fx, state.fy}) {
+                for (double value : values) {
+                    out.writeDouble(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot from the given file.
+     *
+     * @param file The file written by {@link #save(File)}.
+     * @return The read snapshot.
+     * @throws IOException If the file could not be read or is not a snapshot
+     * file.
+     */
+    public static SimulationSnapshot load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC_NUMBER || in.readInt() != FILE_VERSION) {
+                throw new IOException("The file '" + file + "' does not contain a snapshot of this version.");
+            }
+
+            SimulationState state = new SimulationState(in.readInt());
+            int numberOfSamples = in.readInt();
+            state.time = in.readDouble();
+            double shoulderAngle = in.readDouble();
+            double elbowAngle = in.readDouble();
+
+            for (double[] values : new double[][]{state.x, state.y, state.vx, state.vy, state.fx, state.fy}) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readDouble();
+                }
+            }
+
+            return new SimulationSnapshot(state, shoulderAngle, elbowAngle, numberOfSamples);
+        }
+    }
+
+    /**
+     * @return A copy of the state of the masses.
+     */
+    public SimulationState getState() {
+        return state.copy();
+    }
+
+    /**
+     * @return The shoulder angle of the last simulated sample.
+     */
+    public double getShoulderAngle() {
+        return shoulderAngle;
+    }
+
+    /**
+     * @return The elbow angle of the last simulated sample.
+     */
+    public double getElbowAngle() {
+        return elbowAngle;
+    }
+
+    /**
+     * @return The number of samples simulated before the snapshot has been
+     * taken, including those of earlier snapshots it has been continued from.
+     */
+    public int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+}
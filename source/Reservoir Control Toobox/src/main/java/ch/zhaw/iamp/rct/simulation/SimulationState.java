@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+/**
+ * The dynamic state of a simulated network: positions, velocities and the
+ * forces of the last force calculation of all masses, plus the simulated time.
+ * The masses are referenced by their index in the graph.
+ *
+ * @see CompiledNetwork
+ */
+public class SimulationState {
+
+    final double[] x;
+    final double[] y;
+    final double[] vx;
+    final double[] vy;
+    final double[] fx;
+    final double[] fy;
+    double time;
+
+    SimulationState(int numberOfMasses) {
+        x = new double[numberOfMasses];
+        y = new double[numberOfMasses];
+        vx = new double[numberOfMasses];
+        vy = new double[numberOfMasses];
+        fx = new double[numberOfMasses];
+        fy = new double[numberOfMasses];
+    }
+
+    /**
+     * @return An independent copy of this state.
+     */
+    public SimulationState copy() {
+        SimulationState copy = new SimulationState(x.length);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Overwrites this state with the given one, without allocating memory.
+     *
+     * @param other A state of the same network.
+     */
+    public void copyFrom(SimulationState other) {
+        System.arraycopy(other.x, 0, x, 0, x.length);
+        System.arraycopy(other.y, 0, y, 0, y.length);
+        System.arraycopy(other.vx, 0, vx, 0, vx.length);
+        System.arraycopy(other.vy, 0, vy, 0, vy.length);
+        System.arraycopy(other.fx, 0, fx, 0, fx.length);
+        System.arraycopy(other.fy, 0, fy, 0, fy.length);
+        time = other.time;
+    }
+
+    public int getNumberOfMasses() {
+        return x.length;
+    }
+
+    /**
+     * @return The simulated time in seconds.
+     */
+    public double getTime() {
+        return time;
+    }
+
+    public double getX(int massIndex) {
+        return x[massIndex];
+    }
+
+    public double getY(int massIndex) {
+        return y[massIndex];
+    }
+
+    public double getVelocityX(int massIndex) {
+        return vx[massIndex];
+    }
+
+    public double getVelocityY(int massIndex) {
+        return vy[massIndex];
+    }
+
+}
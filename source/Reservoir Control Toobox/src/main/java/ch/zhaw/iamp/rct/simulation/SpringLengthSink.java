@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+/**
+ * A {@link SpringLengthSink} receives the spring lengths of a simulation
+ * sample by sample, while the simulation is running. The recording therefore
+ * does not have to be held in memory.
+ * <p>
+ * Every producer of spring lengths writes the same layout: one column per
+ * spring of the type {@code SPRING_CONSTRAINT}, in the order of the connection
+ * map written by {@link ch.zhaw.iamp.rct.graph.GraphConverter}. Fixed
+ * constraints are left out, since their lengths hardly change and carry no
+ * information for the readout. {@link CompiledNetwork#isRecorded} decides
+ * which springs are written, so weights trained on one producer fit the
+ * recordings of all others.
+ *
+ * @see MassSpringSimulator#simulate(org.apache.commons.math3.linear.RealMatrix, SpringLengthSink)
+ */
+public interface SpringLengthSink {
+
+    /**
+     * Receives the spring lengths of one sample.
+     *
+     * @param sample The index of the sample, that is the row of the
+     * trajectory.
+     * @param springLengths The lengths of the recorded springs in the order
+     * of the connection map. The array is reused for the next sample, so it has to be copied if
+     * it should be kept.
+     */
+    void accept(int sample, double[] springLengths);
+
+}
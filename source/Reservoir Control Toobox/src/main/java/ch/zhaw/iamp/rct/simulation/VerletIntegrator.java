@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+/**
+ * A {@link VerletIntegrator} advances a {@link CompiledNetwork} with the
+ * symplectic velocity Verlet method: half a kick with the forces of the last
+ * step, a drift of the positions, the force calculation and another half
+ * kick. The damping forces use the velocities of the half step.
+ * <p>
+ * A step allocates no memory. Its cost is one pass over the free masses and
+ * one pass over the adjacency of the network.
+ */
+public class VerletIntegrator implements Integrator {
+
+    private final CompiledNetwork network;
+
+    public VerletIntegrator(CompiledNetwork network) {
+        this.network = network;
+    }
+
+    @Override
+    public void initialize(SimulationState state) {
+        network.computeForces(state);
+    }
+
+    @Override
+    public void step(SimulationState state, double timeStep) {
+        kickAndDrift(network, state, timeStep, 0, network.freeMasses.length);
+        network.computeForces(state);
+        kick(network, state, timeStep, 0, network.freeMasses.length);
+        state.time += timeStep;
+    }
+
+    /**
+     * The first half of a step for the free masses {@code first} to
+     * {@code end - 1}: half a kick and the drift.
+     */
+    static void kickAndDrift(CompiledNetwork network, SimulationState state, double timeStep, int first, int end) {
+        int[] freeMasses = network.freeMasses;
+        double halfKick = 0.5 * timeStep * network.inverseMass;
+        double[] x = state.x;
+        double[] y = state.y;
+        double[] vx = state.vx;
+        double[] vy = state.vy;
+        double[] fx = state.fx;
+        double[] fy = state.fy;
+
+        for (int f = first; f < end; f++) {
+            int i = freeMasses[f];
+            vx[i] += fx[i] * halfKick;
+            vy[i] += fy[i] * halfKick;
+            x[i] += vx[i] * timeStep;
+            y[i] += vy[i] * timeStep;
+        }
+    }
+
+    /**
+     * The second half kick for the free masses {@code first} to
+     * {@code end - 1}, with the new forces.
+     */
+    static void kick(CompiledNetwork network, SimulationState state, double timeStep, int first, int end) {
+        int[] freeMasses = network.freeMasses;
+        double halfKick = 0.5 * timeStep * network.inverseMass;
+        double[] vx = state.vx;
+        double[] vy = state.vy;
+        double[] fx = state.fx;
+        double[] fy = state.fy;
+
+        for (int f = first; f < end; f++) {
+            int i = freeMasses[f];
+            vx[i] += fx[i] * halfKick;
+            vy[i] += fy[i] * halfKick;
+        }
+    }
+
+}
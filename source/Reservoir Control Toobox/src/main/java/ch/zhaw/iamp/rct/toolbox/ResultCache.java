@@ -0,0 +1,269 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.toolbox;
+
+import ch.zhaw.iamp.rct.App;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A {@link ResultCache} keeps the spring lengths of earlier runs of the Physics
+ * Toolbox, so an identical run does not have to be repeated. A result is found
+ * by a SHA-256 hash over the contents of the input files and the phase, not by
+ * their paths: a copied or regenerated file with the same content still hits
+ * the cache, a modified one does not.
+ * <p>
+ * The key has to be computed with {@link #computeKey(SimulationCommand)}
+ * before the run is started, so a result is not stored under inputs which
+ * have been changed while it was running.
+ * <p>
+ * When the cached results grow beyond the maximal size, the least recently
+ * used ones are removed. The time of the last use is the modification time of
+ * the cached file.
+ */
+public class ResultCache {
+
+    public final static String DIRECTORY_NAME = "cache";
+    public final static String FILE_ENDING = ".csv";
+    public final static long DEFAULT_MAXIMAL_SIZE = 512L * 1024 * 1024;
+    private final static int BUFFER_SIZE = 64 * 1024;
+    private final File directory;
+    private final long maximalSize;
+    private long lastUse;
+
+    /**
+     * Creates a cache of the default size in the configuration directory.
+     */
+    public ResultCache() {
+        this(new File(App.getConfigDirectoryPath(), DIRECTORY_NAME), DEFAULT_MAXIMAL_SIZE);
+    }
+
+    /**
+     * @param directory The directory in which the results are kept.
+     * @param maximalSize The maximal size of all results in bytes.
+     * @throws IllegalArgumentException If the directory is null or the size is
+     * not positive.
+     */
+    public ResultCache(File directory, long maximalSize) {
+        if (directory == null) {
+            throw new IllegalArgumentException("The arguments may not be null.");
+        }
+
+        if (maximalSize < 1) {
+            throw new IllegalArgumentException("The maximal size has to be positive.");
+        }
+
+        this.directory = directory;
+        this.maximalSize = maximalSize;
+    }
+
+    /**
+     * Copies the cached spring lengths of the given key to the given file, if
+     * there are any.
+     *
+     * @param key The key of the command to look up.
+     * @param springLengthsFile The spring lengths file of the command.
+     * @return true, if the result has been cached, false otherwise.
+     * @throws IOException If the result could not be copied.
+     */
+    public synchronized boolean restore(String key, File springLengthsFile) throws IOException {
+        File entry = getEntry(key);
+
+        if (!entry.exists()) {
+            return false;
+        }
+
+        FileUtils.copyFile(entry, springLengthsFile, false);
+        touch(entry);
+
+        return true;
+    }
+
+    /**
+     * Copies the spring lengths file of a command, which has just been run
+     * successfully, into the cache. Least recently used results are removed
+     * as far as necessary. A result larger than the whole cache is not stored.
+     *
+     * @param key The key of the command, computed before it has been run.
+     * @param result The spring lengths file written by the run.
+     * @throws IOException If the result could not be copied.
+     */
+    public synchronized void store(String key, File result) throws IOException {
+        if (result.length() > maximalSize) {
+            return;
+        }
+
+        File entry = getEntry(key);
+        File temporaryEntry = new File(directory, entry.getName() + ".tmp");
+        FileUtils.copyFile(result, temporaryEntry, false);
+
+        if (!temporaryEntry.renameTo(entry)) {
+            FileUtils.deleteQuietly(entry);
+            FileUtils.moveFile(temporaryEntry, entry);
+        }
+
+        touch(entry);
+        evict();
+    }
+
+    private void touch(File entry) {
+        lastUse = Math.max(System.currentTimeMillis(), lastUse + 1);
+        entry.setLastModified(lastUse);
+    }
+
+    private void evict() {
+        File[] entries = getEntries();
+        Arrays.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        long size = 0;
+
+        for (File entry : entries) {
+            size += entry.length();
+        }
+
+        for (int i = 0; i < entries.length && size > maximalSize; i++) {
+            size -= entries[i].length();
+            entries[i].delete();
+        }
+    }
+
+    private File[] getEntries() {
+        File[] entries = directory.listFiles();
+
+        if (entries == null) {
+            return new File[0];
+        }
+
+        int count = 0;
+
+        for (File entry : entries) {
+            if (entry.getName().endsWith(FILE_ENDING)) {
+                entries[count++] = entry;
+            }
+        }
+
+        return Arrays.copyOf(entries, count);
+    }
+
+    private File getEntry(String key) {
+        return new File(directory, key + FILE_ENDING);
+    }
+
+    /**
+     * Calculates the key of the given command from the contents of the
+     * masses, connection map and trajectory files, and the phase. In the
+     * execution phase, the weights file is an input and is part of the key as
+     * well. In the learning phase, it is not, since it is written after the
+     * run. A missing file is distinguished from an empty one. The path of the
+     * spring lengths file does not matter.
+     *
+     * @param command The command.
+     * @return The key as hexadecimal string.
+     * @throws IOException If an existing input file could not be read.
+     */
+    public static String computeKey(SimulationCommand command) throws IOException {
+        MessageDigest digest = createDigest();
+        digest.update(String.valueOf(command.isLearningPhase()).getBytes(StandardCharsets.UTF_8));
+
+        for (String path : new String[]{command.getMassesFile(), command.getConnectionMapFile(),
+            command.getTrajectoryFile()}) {
+            update(digest, path == null ? null : new File(path));
+        }
+
+        if (!command.isLearningPhase()) {
+            String path = command.getWeightsFile();
+            update(digest, path == null ? null : new File(path));
+        }
+
+        StringBuilder key = new StringBuilder();
+
+        for (byte value : digest.digest()) {
+            key.append(String.format("%02x", value));
+        }
+
+        return key.toString();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available: " + ex.getMessage());
+        }
+    }
+
+    private static void update(MessageDigest digest, File file) throws IOException {
+        if (file == null || !file.isFile()) {
+            digest.update((byte) 0);
+            return;
+        }
+
+        digest.update((byte) 1);
+        digest.update((file.length() + ":").getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            int count = in.read(buffer);
+
+            while (count != -1) {
+                digest.update(buffer, 0, count);
+                count = in.read(buffer);
+            }
+        }
+    }
+
+    /**
+     * @return The total size of the cached results in bytes.
+     */
+    public synchronized long getSize() {
+        long size = 0;
+
+        for (File entry : getEntries()) {
+            size += entry.length();
+        }
+
+        return size;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getMaximalSize() {
+        return maximalSize;
+    }
+
+}
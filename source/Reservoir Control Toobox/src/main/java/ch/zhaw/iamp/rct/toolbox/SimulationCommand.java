@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.toolbox;
+
+import java.io.File;
+import java.io.Serializable;
+
+/**
+ * A {@link SimulationCommand} holds the arguments of one invocation of the
+ * Physics Toolbox. It is immutable and serializable, so it can be queued and
+ * stored as part of a sweep.
+ */
+public class SimulationCommand implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private final String executableFile;
+    private final String massesFile;
+    private final String connectionMapFile;
+    private final String springLengthsFile;
+    private final String trajectoryFile;
+    private final String weightsFile;
+    private final boolean isLearningPhase;
+
+    /**
+     * @param executableFile The Physics Toolbox executable.
+     * @param massesFile The masses file.
+     * @param connectionMapFile The connection map file.
+     * @param springLengthsFile The file to which the spring lengths are
+     * written.
+     * @param trajectoryFile The trajectory file.
+     * @param weightsFile The weights file, used in the execution phase.
+     * @param isLearningPhase true for the learning phase, false for the
+     * execution phase.
+     */
+    public SimulationCommand(String executableFile, String massesFile, String connectionMapFile,
+            String springLengthsFile, String trajectoryFile, String weightsFile, boolean isLearningPhase) {
+        this.executableFile = executableFile;
+        this.massesFile = massesFile;
+        this.connectionMapFile = connectionMapFile;
+        this.springLengthsFile = springLengthsFile;
+        this.trajectoryFile = trajectoryFile;
+        this.weightsFile = weightsFile;
+        this.isLearningPhase = isLearningPhase;
+    }
+
+    /**
+     * @param springLengthsFile The file to which the spring lengths are
+     * written.
+     * @return A copy of this command, which writes the spring lengths to the
+     * given file.
+     */
+    public SimulationCommand withSpringLengthsFile(String springLengthsFile) {
+        return new SimulationCommand(executableFile, massesFile, connectionMapFile,
+                springLengthsFile, trajectoryFile, weightsFile, isLearningPhase);
+    }
+
+    /**
+     * Resolves relative paths against the current working directory, so the
+     * command can be run from any other directory. An executable given by a
+     * bare name, which does not exist in the current working directory, is
+     * kept as it is and looked up on the path of the system.
+     *
+     * @return A copy of this command with absolute paths.
+     */
+    public SimulationCommand withAbsolutePaths() {
+        return new SimulationCommand(toAbsoluteExecutable(executableFile), toAbsolute(massesFile),
+                toAbsolute(connectionMapFile), toAbsolute(springLengthsFile), toAbsolute(trajectoryFile),
+                toAbsolute(weightsFile), isLearningPhase);
+    }
+
+    private static String toAbsolute(String path) {
+        return path == null || path.isEmpty() ? path : new File(path).getAbsolutePath();
+    }
+
+    private static String toAbsoluteExecutable(String path) {
+        if (path == null || path.isEmpty()) {
+            return path;
+        }
+
+        File file = new File(path);
+
+        if (file.getParent() == null && !file.exists()) {
+            return path;
+        }
+
+        return file.getAbsolutePath();
+    }
+
+    /**
+     * Assembles the arguments for the interface of the Physics Toolbox.
+     *
+     * @return The assembled command to run.
+     */
+    public String[] toArray() {
+        return new String[]{
+            executableFile,
+            massesFile,
+            connectionMapFile,
+            springLengthsFile,
+            trajectoryFile,
+            weightsFile,
+            String.valueOf(false),
+            String.valueOf(isLearningPhase)
+        };
+    }
+
+    public String getExecutableFile() {
+        return executableFile;
+    }
+
+    public String getMassesFile() {
+        return massesFile;
+    }
+
+    public String getConnectionMapFile() {
+        return connectionMapFile;
+    }
+
+    public String getSpringLengthsFile() {
+        return springLengthsFile;
+    }
+
+    public String getTrajectoryFile() {
+        return trajectoryFile;
+    }
+
+    public String getWeightsFile() {
+        return weightsFile;
+    }
+
+    public boolean isLearningPhase() {
+        return isLearningPhase;
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.toolbox;
+
+import ch.zhaw.iamp.rct.simulation.GramSink;
+import ch.zhaw.iamp.rct.simulation.SpringLengthSink;
+import ch.zhaw.iamp.rct.weights.Weights;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SpringLengthsTail} reads the spring lengths file of a running
+ * Physics Toolbox while it grows. Only the bytes appended since the last read
+ * are parsed, and every complete row is passed to a {@link SpringLengthSink}:
+ * for example a {@link GramSink}, so the weights can be solved the moment the
+ * run ends, or a sink which updates a live view.
+ * <p>
+ * In the background, the tail waits for modifications of the directory with a
+ * {@link WatchService}. Since some platforms only poll for modifications, the
+ * file is read at least every poll interval as well.
+ * <p>
+ * Rows which cannot be parsed, have another number of values than the first
+ * row or contain values which are not finite make the tail fail. Its
+ * {@link TailListener} can then abort the run early, instead of waiting for
+ * useless output.
+ */
+public class SpringLengthsTail implements Closeable {
+
+    public final static long DEFAULT_POLL_INTERVAL = 500;
+    private final static int BUFFER_SIZE = 64 * 1024;
+    private final File file;
+    private final SpringLengthSink sink;
+    private final long pollIntervalInMilliseconds;
+    private final StringBuilder partialLine = new StringBuilder();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private long position;
+    private int numberOfRows;
+    private int numberOfColumns = -1;
+    private TailListener listener;
+    private WatchService watchService;
+    private Thread watcher;
+    private volatile Exception error;
+
+    /**
+     * Creates a tail with the default poll interval.
+     *
+     * @param file The spring lengths file. It does not need to exist yet.
+     * @param sink The sink to pass the rows to.
+     */
+    public SpringLengthsTail(File file, SpringLengthSink sink) {
+        this(file, sink, DEFAULT_POLL_INTERVAL);
+    }
+
+    /**
+     * @param file The spring lengths file. It does not need to exist yet.
+     * @param sink The sink to pass the rows to.
+     * @param pollIntervalInMilliseconds The maximal time between two reads
+     * in the background.
+     * @throws IllegalArgumentException If an argument is null or the interval
+     * is not positive.
+     */
+    public SpringLengthsTail(File file, SpringLengthSink sink, long pollIntervalInMilliseconds) {
+        if (file == null || sink == null) {
+            throw new IllegalArgumentException("The arguments may not be null.");
+        }
+
+        if (pollIntervalInMilliseconds < 1) {
+            throw new IllegalArgumentException("The poll interval has to be positive.");
+        }
+
+        this.file = file;
+        this.sink = sink;
+        this.pollIntervalInMilliseconds = pollIntervalInMilliseconds;
+    }
+
+    public void setListener(TailListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Reads the bytes appended since the last read and passes the complete
+     * rows to the sink. An incomplete last line is kept for the next read.
+     *
+     * @return The number of new rows.
+     * @throws IOException If the file could not be read, has been truncated
+     * or contains invalid spring lengths.
+     */
+    public synchronized int poll() throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        int previousNumberOfRows = numberOfRows;
+
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.length() < position) {
+                throw new IOException("The file '" + file + "' has been truncated while it has been read.");
+            }
+
+            in.seek(position);
+            int count = in.read(buffer);
+
+            while (count > 0) {
+                position += count;
+                append(new String(buffer, 0, count, StandardCharsets.ISO_8859_1));
+                count = in.read(buffer);
+            }
+        }
+
+        return numberOfRows - previousNumberOfRows;
+    }
+
+    private void append(String text) throws IOException {
+        int start = 0;
+        int end = text.indexOf('\n');
+
+        while (end != -1) {
+            partialLine.append(text, start, end);
+            parseLine(partialLine.toString());
+            partialLine.setLength(0);
+            start = end + 1;
+            end = text.indexOf('\n', start);
+        }
+
+        partialLine.append(text, start, text.length());
+    }
+
+    private void parseLine(String line) throws IOException {
+        line = line.trim();
+
+        if (line.isEmpty() || line.startsWith("#")) {
+            return;
+        }
+
+        double[] row;
+
+        try {
+            row = Weights.parseCsvLine(line);
+        } catch (NumberFormatException ex) {
+            throw new IOException("The row " + numberOfRows + " of '" + file + "' could not be parsed: " + ex.getMessage());
+        }
+
+        if (numberOfColumns == -1) {
+            numberOfColumns = row.length;
+        } else if (row.length != numberOfColumns) {
+            throw new IOException("The row " + numberOfRows + " of '" + file + "' has " + row.length + " instead of " + numberOfColumns + " values.");
+        }
+
+        for (double value : row) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new IOException("The row " + numberOfRows + " of '" + file + "' contains spring lengths which are not finite.");
+            }
+        }
+
+        sink.accept(numberOfRows++, row);
+    }
+
+    /**
+     * Starts reading the file in the background, whenever it is modified.
+     *
+     * @throws IOException If the directory of the file could not be watched.
+     * @throws IllegalStateException If the tail has already been started.
+     */
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            throw new IllegalStateException("The tail has already been started.");
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getAbsoluteFile().getParentFile().toPath().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "tail-" + file.getName());
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(pollIntervalInMilliseconds, TimeUnit.MILLISECONDS);
+
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+
+                if (poll() > 0 && listener != null) {
+                    listener.rowsAppended(getNumberOfRows());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // The tail has been stopped.
+        } catch (IOException | RuntimeException ex) {
+            error = ex;
+
+            if (listener != null) {
+                listener.tailFailed(ex);
+            }
+        }
+    }
+
+    /**
+     * Stops reading in the background and reads the rest of the file. A last
+     * line without line terminator is read as well, since the writer has
+     * finished. It may be called from the listener.
+     *
+     * @throws IOException If the tail has failed before, or the rest of the
+     * file could not be read or is invalid.
+     */
+    @Override
+    public void close() throws IOException {
+        if (watcher != null) {
+            watcher.interrupt();
+            watchService.close();
+
+            if (watcher != Thread.currentThread()) {
+                try {
+                    watcher.join();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        if (error != null) {
+            throw error instanceof IOException ? (IOException) error : new IOException(error.getMessage());
+        }
+
+        synchronized (this) {
+            poll();
+            parseLine(partialLine.toString());
+            partialLine.setLength(0);
+        }
+    }
+
+    /**
+     * @return The number of rows passed to the sink so far.
+     */
+    public synchronized int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * @return The number of values per row, or -1 if no row has been read.
+     */
+    public synchronized int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.toolbox;
+
+import ch.zhaw.iamp.rct.Controller;
+import ch.zhaw.iamp.rct.graph.GraphConverter;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import ch.zhaw.iamp.rct.graph.Spring;
+import ch.zhaw.iamp.rct.simulation.CompiledNetwork;
+import ch.zhaw.iamp.rct.simulation.CsvSink;
+import ch.zhaw.iamp.rct.simulation.SpringLengthSink;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The {@link StubToolbox} stands in for the Physics Toolbox executable, to test
+ * and benchmark the invocation of simulations without the real simulator. It
+ * takes the same arguments as described by {@link SimulationCommand}, reads the
+ * masses and the connection map, and writes synthetic spring lengths: every
+ * recorded spring oscillates slightly around its length in the connection map.
+ * The columns follow the layout described by {@link SpringLengthSink}, like
+ * the recordings of the in-process simulator.
+ * <p>
+ * The number of rows, the rate at which they are written and the exit value
+ * are configured with system properties. {@link #writeLauncher} creates a
+ * shell script which starts the stub with a given configuration, so it can be
+ * selected as executable like the real one.
+ */
+public class StubToolbox {
+
+    public final static String NUMBER_OF_ROWS_PROPERTY = "rct.stub.rows";
+    public final static String ROWS_PER_SECOND_PROPERTY = "rct.stub.rate";
+    public final static String EXIT_VALUE_PROPERTY = "rct.stub.exit";
+    public final static int DEFAULT_NUMBER_OF_ROWS = 1000;
+    public final static double UNLIMITED_RATE = 0;
+    final static int NUMBER_OF_ARGUMENTS = 7;
+    private final static int PROGRESS_INTERVAL = 100;
+    private final static double AMPLITUDE = 0.05;
+    private final static double FREQUENCY = 0.05;
+    private final int numberOfRows;
+    private final double rowsPerSecond;
+    private final int exitValue;
+
+    /**
+     * @param numberOfRows The number of rows of spring lengths to write.
+     * @param rowsPerSecond The rate at which the rows are written, or
+     * {@link #UNLIMITED_RATE}.
+     * @param exitValue The value to exit with after a successful run.
+     * @throws IllegalArgumentException If the number of rows or the rate is
+     * negative.
+     */
+    public StubToolbox(int numberOfRows, double rowsPerSecond, int exitValue) {
+        if (numberOfRows < 0 || rowsPerSecond < 0) {
+            throw new IllegalArgumentException("The number of rows and the rate may not be negative.");
+        }
+
+        this.numberOfRows = numberOfRows;
+        this.rowsPerSecond = rowsPerSecond;
+        this.exitValue = exitValue;
+    }
+
+    public static void main(String[] args) {
+        StubToolbox stub = new StubToolbox(
+                Integer.getInteger(NUMBER_OF_ROWS_PROPERTY, DEFAULT_NUMBER_OF_ROWS),
+                Double.parseDouble(System.getProperty(ROWS_PER_SECOND_PROPERTY, String.valueOf(UNLIMITED_RATE))),
+                Integer.getInteger(EXIT_VALUE_PROPERTY, 0));
+
+        System.exit(stub.run(args));
+    }
+
+    /**
+     * Runs the stub with the given arguments of the Physics Toolbox.
+     *
+     * @param args The arguments, as assembled by
+     * {@link SimulationCommand#toArray()} without the executable.
+     * @return The configured exit value, or
+     * {@link Controller#SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE} if the
+     * arguments or the input files are invalid or the output could not be
+     * written.
+     */
+    public int run(String[] args) {
+        if (args.length != NUMBER_OF_ARGUMENTS) {
+            System.err.println("[S] Usage: <masses> <connection-map> <spring-lengths> <trajectory> <weights> <false> <is-learning-phase>");
+            return Controller.SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE;
+        }
+
+        try {
+            NetworkGraph graph = GraphConverter.toNetworkGraph(
+                    FileUtils.readFileToString(new File(args[0])),
+                    FileUtils.readFileToString(new File(args[1])));
+            double[] restLengths = getRestLengths(graph.getSprings());
+            System.out.println("[S] Writing " + numberOfRows + " rows of " + restLengths.length + " springs.");
+            writeSpringLengths(args[2], restLengths);
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("[S] The stub failed: " + ex.getMessage());
+            return Controller.SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE;
+        } catch (InterruptedException ex) {
+            System.err.println("[S] The stub has been interrupted.");
+            return Controller.SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE;
+        }
+
+        System.out.println("[S] Done.");
+        return exitValue;
+    }
+
+    private static double[] getRestLengths(List<Spring> allSprings) {
+        List<Spring> springs = new ArrayList<>();
+
+        for (Spring spring : allSprings) {
+            if (CompiledNetwork.isRecorded(spring)) {
+                springs.add(spring);
+            }
+        }
+
+        double[] restLengths = new double[springs.size()];
+
+        for (int s = 0; s < restLengths.length; s++) {
+            restLengths[s] = springs.get(s).getLine().getP1().distance(springs.get(s).getLine().getP2());
+        }
+
+        return restLengths;
+    }
+
+    private void writeSpringLengths(String springLengthsFile, double[] restLengths) throws IOException, InterruptedException {
+        long startTime = System.currentTimeMillis();
+        double[] springLengths = new double[restLengths.length];
+
+        try (CsvSink sink = new CsvSink(springLengthsFile)) {
+            for (int row = 0; row < numberOfRows; row++) {
+                for (int s = 0; s < restLengths.length; s++) {
+                    springLengths[s] = restLengths[s] * (1 + AMPLITUDE * Math.sin(FREQUENCY * row + s));
+                }
+
+                sink.accept(row, springLengths);
+
+                if (row % PROGRESS_INTERVAL == PROGRESS_INTERVAL - 1) {
+                    System.out.println("[S] " + (row + 1) + " rows written.");
+                }
+
+                if (rowsPerSecond != UNLIMITED_RATE) {
+                    long dueTime = startTime + (long) ((row + 1) * 1000 / rowsPerSecond);
+                    long waitingTime = dueTime - System.currentTimeMillis();
+
+                    if (waitingTime > 0) {
+                        sink.flush();
+                        Thread.sleep(waitingTime);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a shell script which starts the stub in a new Java process, with
+     * the class path of this process and the given configuration.
+     *
+     * @param launcher The script file to write.
+     * @param numberOfRows The number of rows of spring lengths to write.
+     * @param rowsPerSecond The rate at which the rows are written, or
+     * {@link #UNLIMITED_RATE}.
+     * @param exitValue The value to exit with after a successful run.
+     * @throws IOException If the script could not be written or made
+     * executable.
+     */
+    public static void writeLauncher(File launcher, int numberOfRows, double rowsPerSecond, int exitValue) throws IOException {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath();
+        String script = "#!/bin/sh\n"
+                + "exec " + quote(java)
+                + " -cp " + quote(System.getProperty("java.class.path"))
+                + " -D" + NUMBER_OF_ROWS_PROPERTY + "=" + numberOfRows
+                + " -D" + ROWS_PER_SECOND_PROPERTY + "=" + rowsPerSecond
+                + " -D" + EXIT_VALUE_PROPERTY + "=" + exitValue
+                + " " + StubToolbox.class.getName() + " \"$@\"\n";
+
+        FileUtils.writeStringToFile(launcher, script);
+
+        if (!launcher.setExecutable(true)) {
+            throw new IOException("The launcher '" + launcher + "' could not be made executable.");
+        }
+    }
+
+    private static String quote(String argument) {
+        return "'" + argument.replace("'", "'\\''") + "'";
+    }
+
+}
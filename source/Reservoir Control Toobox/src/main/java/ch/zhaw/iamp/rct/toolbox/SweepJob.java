@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.toolbox;
+
+import java.io.File;
+import java.io.Serializable;
+
+/**
+ * A {@link SweepJob} is one run of the Physics Toolbox within a sweep of a
+ * {@link SweepScheduler}. It runs in its own working directory, into which the
+ * spring lengths and the output of the process are written. All other paths of
+ * its command are made absolute when the job is created, so they still point
+ * to the files the user has chosen.
+ */
+public class SweepJob implements Serializable {
+
+    public enum State {
+
+        QUEUED,
+        RUNNING,
+        FINISHED,
+        FAILED;
+    }
+    private static final long serialVersionUID = 1L;
+    public final static String SPRING_LENGTHS_FILENAME = "springLengths.csv";
+    public final static String OUTPUT_FILENAME = "output.log";
+    private final String name;
+    private final SimulationCommand command;
+    private final int priority;
+    private final File workingDirectory;
+    private State state = State.QUEUED;
+    private int numberOfAttempts;
+    private Integer exitValue;
+
+    SweepJob(String name, SimulationCommand command, int priority, File workingDirectory) {
+        this.name = name;
+        this.command = command.withAbsolutePaths()
+                .withSpringLengthsFile(new File(workingDirectory, SPRING_LENGTHS_FILENAME).getAbsolutePath());
+        this.priority = priority;
+        this.workingDirectory = workingDirectory;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The command with absolute paths, which writes the spring lengths
+     * into the working directory.
+     */
+    public SimulationCommand getCommand() {
+        return command;
+    }
+
+    /**
+     * @return The priority. Jobs with a higher priority are started first.
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    public File getWorkingDirectory() {
+        return workingDirectory;
+    }
+
+    /**
+     * @return The spring lengths written by the run.
+     */
+    public File getSpringLengthsFile() {
+        return new File(command.getSpringLengthsFile());
+    }
+
+    /**
+     * @return The output of the last attempt.
+     */
+    public File getOutputFile() {
+        return new File(workingDirectory, OUTPUT_FILENAME);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    public int getNumberOfAttempts() {
+        return numberOfAttempts;
+    }
+
+    void addAttempt() {
+        numberOfAttempts++;
+    }
+
+    void resetAttempts() {
+        numberOfAttempts = 0;
+    }
+
+    /**
+     * @return The exit value of the last attempt, or null if there has been
+     * none or the process could not be started.
+     */
+    public Integer getExitValue() {
+        return exitValue;
+    }
+
+    void setExitValue(Integer exitValue) {
+        this.exitValue = exitValue;
+    }
+
+}
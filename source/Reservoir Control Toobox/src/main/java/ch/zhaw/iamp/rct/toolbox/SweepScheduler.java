@@ -0,0 +1,390 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.toolbox;
+
+import ch.zhaw.iamp.rct.util.ProcessRunner;
+import ch.zhaw.iamp.rct.util.Storage;
+import ch.zhaw.iamp.rct.util.StorageException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A {@link SweepScheduler} runs many invocations of the Physics Toolbox, for
+ * example one per candidate network, weights file or trajectory. At most a
+ * fixed number of processes run at the same time, per default one per core.
+ * Queued jobs with a higher priority are started first; jobs of the same
+ * priority in the order they have been submitted.
+ * <p>
+ * Every job gets a subdirectory of the sweep directory as working directory,
+ * into which its spring lengths and its output are written. A job which exits
+ * with a value other than zero, or cannot be started, is queued again until
+ * the maximal number of attempts is reached.
+ * <p>
+ * With a {@link ResultCache}, a job whose inputs have been simulated before is
+ * finished with the cached spring lengths, without starting a process.
+ * <p>
+ * The state of all jobs is stored in the sweep directory after every change.
+ * A scheduler created on the directory of an interrupted sweep knows which
+ * jobs have already finished, and does not run them again.
+ */
+public class SweepScheduler {
+
+    public final static String STATE_FILENAME = "sweep.obj";
+    public final static int DEFAULT_MAXIMAL_NUMBER_OF_ATTEMPTS = 3;
+    private final static int OUTPUT_LOG_CAPACITY = ProcessRunner.DEFAULT_LOG_CAPACITY;
+    private final File sweepDirectory;
+    private final int maximalNumberOfAttempts;
+    private final Storage storage;
+    private final LinkedHashMap<String, SweepJob> jobs = new LinkedHashMap<>();
+    private final Set<String> scheduledJobs = new HashSet<>();
+    private final ThreadPoolExecutor executor;
+    private long timeoutInMilliseconds = ProcessRunner.NO_TIMEOUT;
+    private ResultCache resultCache;
+    private long numberOfSubmissions;
+
+    /**
+     * Creates a scheduler which runs one process per core and tries every job
+     * {@link #DEFAULT_MAXIMAL_NUMBER_OF_ATTEMPTS} times.
+     *
+     * @param sweepDirectory The directory of the sweep.
+     * @throws StorageException If the directory contains a state which could
+     * not be restored.
+     */
+    public SweepScheduler(File sweepDirectory) {
+        this(sweepDirectory, Runtime.getRuntime().availableProcessors(), DEFAULT_MAXIMAL_NUMBER_OF_ATTEMPTS);
+    }
+
+    /**
+     * @param sweepDirectory The directory of the sweep.
+     * @param concurrency The maximal number of processes to run at the same
+     * time.
+     * @param maximalNumberOfAttempts The number of times a job is run before
+     * it is considered to have failed.
+     * @throws IllegalArgumentException If the directory is null, or a number is
+     * not positive.
+     * @throws StorageException If the directory contains a state which could
+     * not be restored.
+     */
+    @SuppressWarnings("unchecked")
+    public SweepScheduler(File sweepDirectory, int concurrency, int maximalNumberOfAttempts) {
+        if (sweepDirectory == null) {
+            throw new IllegalArgumentException("The arguments may not be null.");
+        }
+
+        if (concurrency < 1 || maximalNumberOfAttempts < 1) {
+            throw new IllegalArgumentException("The concurrency and the number of attempts have to be positive.");
+        }
+
+        this.sweepDirectory = sweepDirectory;
+        this.maximalNumberOfAttempts = maximalNumberOfAttempts;
+        storage = new Storage(new File(sweepDirectory, STATE_FILENAME).getPath());
+
+        if (storage.isExisting()) {
+            for (SweepJob job : (List<SweepJob>) storage.restore()) {
+                jobs.put(job.getName(), job);
+            }
+        }
+
+        executor = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "sweep");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        // Otherwise, the first jobs are handed to new threads directly and
+        // bypass the priority queue.
+        executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * @param timeoutInMilliseconds The time after which a process is destroyed
+     * and the attempt counts as failed, or {@link ProcessRunner#NO_TIMEOUT}.
+     */
+    public void setTimeout(long timeoutInMilliseconds) {
+        this.timeoutInMilliseconds = timeoutInMilliseconds;
+    }
+
+    /**
+     * @param resultCache The cache to look up every job in before it is run,
+     * and to store the results of successful runs in, or null.
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Queues a job. If a job with the same name and command has already
+     * finished in this sweep, or is queued or running, nothing happens. If it
+     * exists but has not finished, for example because the sweep has been
+     * interrupted, it is run again.
+     *
+     * @param name The name of the job, which is also the name of its working
+     * directory. It has to be unique within the sweep.
+     * @param command The command to run. Its spring lengths file is replaced
+     * by one in the working directory.
+     * @param priority The priority. Jobs with a higher priority are started
+     * first.
+     * @return The job.
+     * @throws IllegalArgumentException If an argument is null, the name is not
+     * a plain directory name, or it is already used by a job with another
+     * command.
+     * @throws IllegalStateException If the scheduler has been shut down.
+     */
+    public synchronized SweepJob submit(String name, SimulationCommand command, int priority) {
+        if (name == null || command == null) {
+            throw new IllegalArgumentException("The arguments may not be null.");
+        }
+
+        if (name.isEmpty() || name.equals(".") || name.equals("..")
+                || name.indexOf('/') != -1 || name.indexOf(File.separatorChar) != -1) {
+            throw new IllegalArgumentException("The name '" + name + "' is not a plain directory name.");
+        }
+
+        SweepJob candidate = new SweepJob(name, command, priority, new File(sweepDirectory, name));
+        SweepJob job = jobs.get(name);
+
+        if (job == null) {
+            job = candidate;
+            jobs.put(name, job);
+        } else if (!Arrays.equals(job.getCommand().toArray(), candidate.getCommand().toArray())) {
+            throw new IllegalArgumentException("The name '" + name + "' is already used by a job with another command.");
+        }
+
+        schedule(job);
+        store();
+
+        return job;
+    }
+
+    /**
+     * Queues all stored jobs which have not finished yet, including the ones
+     * which have failed.
+     *
+     * @throws IllegalStateException If the scheduler has been shut down.
+     */
+    public synchronized void resume() {
+        for (SweepJob job : jobs.values()) {
+            schedule(job);
+        }
+
+        store();
+    }
+
+    private void schedule(SweepJob job) {
+        if (executor.isShutdown()) {
+            throw new IllegalStateException("The scheduler has been shut down.");
+        }
+
+        if (job.getState() == SweepJob.State.FINISHED || scheduledJobs.contains(job.getName())) {
+            return;
+        }
+
+        scheduledJobs.add(job.getName());
+        job.setState(SweepJob.State.QUEUED);
+        job.resetAttempts();
+        executor.execute(new Task(job, numberOfSubmissions++));
+    }
+
+    private void run(SweepJob job) {
+        synchronized (this) {
+            job.setState(SweepJob.State.RUNNING);
+            job.addAttempt();
+            store();
+        }
+
+        Integer exitValue = null;
+        ProcessRunner runner = new ProcessRunner(Arrays.asList(job.getCommand().toArray()), OUTPUT_LOG_CAPACITY, timeoutInMilliseconds);
+        runner.setWorkingDirectory(job.getWorkingDirectory());
+
+        String key = null;
+
+        try {
+            FileUtils.forceMkdir(job.getWorkingDirectory());
+
+            if (resultCache != null) {
+                key = ResultCache.computeKey(job.getCommand());
+            }
+
+            if (key != null && resultCache.restore(key, job.getSpringLengthsFile())) {
+                FileUtils.writeStringToFile(job.getOutputFile(), "[J] The spring lengths have been restored from the cache.\n");
+                finish(job, 0);
+                return;
+            }
+
+            Future<Integer> process = runner.start();
+
+            try {
+                exitValue = process.get();
+            } catch (InterruptedException ex) {
+                process.cancel(true);
+                Thread.currentThread().interrupt();
+                abort(job);
+                return;
+            }
+        } catch (IOException | ExecutionException ex) {
+            runner.getLog().add("[J] The process could not be run: " + ex.getMessage());
+        }
+
+        if (key != null && exitValue != null && exitValue == 0) {
+            try {
+                resultCache.store(key, job.getSpringLengthsFile());
+            } catch (IOException ex) {
+                runner.getLog().add("[J] The spring lengths could not be cached: " + ex.getMessage());
+            }
+        }
+
+        try {
+            FileUtils.writeLines(job.getOutputFile(), runner.getLog().getLines());
+        } catch (IOException ex) {
+            System.out.println("[J] The output of the job '" + job.getName() + "' could not be written: " + ex.getMessage());
+        }
+
+        finish(job, exitValue);
+    }
+
+    private synchronized void finish(SweepJob job, Integer exitValue) {
+        job.setExitValue(exitValue);
+
+        if (exitValue != null && exitValue == 0) {
+            job.setState(SweepJob.State.FINISHED);
+        } else if (executor.isShutdown()) {
+            abort(job);
+            return;
+        } else if (job.getNumberOfAttempts() < maximalNumberOfAttempts) {
+            job.setState(SweepJob.State.QUEUED);
+            executor.execute(new Task(job, numberOfSubmissions++));
+            store();
+            return;
+        } else {
+            job.setState(SweepJob.State.FAILED);
+        }
+
+        scheduledJobs.remove(job.getName());
+        store();
+        notifyAll();
+    }
+
+    /**
+     * Drops a job which has been interrupted. It stays queued in the stored
+     * state, so it is run again when the sweep is resumed.
+     */
+    private synchronized void abort(SweepJob job) {
+        job.setState(SweepJob.State.QUEUED);
+        scheduledJobs.remove(job.getName());
+        store();
+        notifyAll();
+    }
+
+    private void store() {
+        storage.store(new ArrayList<>(jobs.values()));
+    }
+
+    /**
+     * Blocks until no job is queued or running anymore.
+     *
+     * @throws InterruptedException If the waiting thread has been interrupted.
+     */
+    public synchronized void awaitCompletion() throws InterruptedException {
+        while (!scheduledJobs.isEmpty()) {
+            wait();
+        }
+    }
+
+    /**
+     * Destroys the running processes and drops the queued jobs. Their state
+     * stays stored, so the sweep can be resumed later. Threads waiting in
+     * {@link #awaitCompletion()} return as soon as the processes are gone.
+     * <p>
+     * It holds the lock of the scheduler, so no failed job can be queued again
+     * between the shutdown and the check for it.
+     */
+    public synchronized void shutdown() {
+        List<Runnable> droppedTasks = executor.shutdownNow();
+
+        for (Runnable task : droppedTasks) {
+            abort(((Task) task).job);
+        }
+    }
+
+    /**
+     * @param name The name of the job.
+     * @return The job, or null if there is none with this name.
+     */
+    public synchronized SweepJob getJob(String name) {
+        return jobs.get(name);
+    }
+
+    /**
+     * @return All jobs of the sweep, in the order they have been submitted
+     * first.
+     */
+    public synchronized List<SweepJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    public File getSweepDirectory() {
+        return sweepDirectory;
+    }
+
+    private class Task implements Runnable, Comparable<Task> {
+
+        private final SweepJob job;
+        private final long sequenceNumber;
+
+        Task(SweepJob job, long sequenceNumber) {
+            this.job = job;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public void run() {
+            SweepScheduler.this.run(job);
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (job.getPriority() != other.job.getPriority()) {
+                return job.getPriority() > other.job.getPriority() ? -1 : 1;
+            }
+
+            return sequenceNumber < other.sequenceNumber ? -1 : (sequenceNumber == other.sequenceNumber ? 0 : 1);
+        }
+    }
+
+}
@@ -28,12 +28,19 @@ import ch.zhaw.iamp.rct.util.Components;
 import static ch.zhaw.iamp.rct.util.Components.DEFAULT_BACKGROUND_COLOR;
 import static ch.zhaw.iamp.rct.util.Components.ERROR_BACKGROUND_COLOR;
 import ch.zhaw.iamp.rct.util.Dialogs;
+import ch.zhaw.iamp.rct.util.ProcessRunner;
 import ch.zhaw.iamp.rct.util.Storage;
 import ch.zhaw.iamp.rct.util.StorageException;
+import java.awt.Font;
 import java.io.File;
 import java.util.HashMap;
 import java.util.LinkedList;
+import javax.swing.BorderFactory;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultCaret;
 
 /**
  * This is the main window of the graphical configuration tool.
@@ -57,17 +64,33 @@ public class MainWindow extends javax.swing.JFrame {
     public final static String STORAGE_FILENAME = "mainWindow.obj";
     private final String RUN_BUTTON_DEFAULT_TEXT = "Run";
     private final String RUN_BUTTON_LOCKED_TEXT = "Running";
+    private final int OUTPUT_ROWS = 10;
+    private final int MAXIMAL_NUMBER_OF_OUTPUT_LINES = ProcessRunner.DEFAULT_LOG_CAPACITY;
     Controller controller;
     HashMap<StorageKey, String> textFieldValues;
     Storage textFieldStorage;
+    JTextArea outputTextArea;
 
     public MainWindow() {
         initComponents();
+        createOutputPanel();
         centerPosition();
         createStorage();
         restoreValues();
     }
 
+    private void createOutputPanel() {
+        outputTextArea = new JTextArea(OUTPUT_ROWS, 0);
+        outputTextArea.setEditable(false);
+        outputTextArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, outputTextArea.getFont().getSize()));
+        ((DefaultCaret) outputTextArea.getCaret()).setUpdatePolicy(DefaultCaret.ALWAYS_UPDATE);
+
+        JScrollPane outputScrollPane = new JScrollPane(outputTextArea);
+        outputScrollPane.setBorder(BorderFactory.createTitledBorder("Simulation Output"));
+        basePanel.add(outputScrollPane, basePanel.getComponentZOrder(outputToButtonFiller));
+        pack();
+    }
+
     private void centerPosition() {
         setLocationRelativeTo(null);
     }
@@ -166,10 +189,45 @@ public class MainWindow extends javax.swing.JFrame {
     public void configureGuiForRunningPhase(boolean isRunning) {
         boolean isEnabled = !isRunning;
 
+        if (isRunning) {
+            outputTextArea.setText("");
+        }
+
         runButton.setEnabled(isEnabled);
         runButton.setText(isEnabled ? RUN_BUTTON_DEFAULT_TEXT : RUN_BUTTON_LOCKED_TEXT);
     }
 
+    /**
+     * Shows how many rows of spring lengths the running simulation has
+     * written so far. Has to be called on the event dispatch thread.
+     *
+     * @param numberOfRows The number of written rows.
+     */
+    public void showNumberOfWrittenRows(int numberOfRows) {
+        if (!runButton.isEnabled()) {
+            runButton.setText(RUN_BUTTON_LOCKED_TEXT + " (" + numberOfRows + " rows)");
+        }
+    }
+
+    /**
+     * Appends a line of the running simulation to the output area. Only the
+     * last lines are kept. Has to be called on the event dispatch thread.
+     *
+     * @param line The line to append.
+     */
+    public void appendSimulationOutput(String line) {
+        outputTextArea.append(line + "\n");
+
+        if (outputTextArea.getLineCount() > MAXIMAL_NUMBER_OF_OUTPUT_LINES) {
+            try {
+                int excessLines = outputTextArea.getLineCount() - MAXIMAL_NUMBER_OF_OUTPUT_LINES;
+                outputTextArea.replaceRange("", 0, outputTextArea.getLineStartOffset(excessLines));
+            } catch (BadLocationException ex) {
+                throw new IllegalStateException("The output could not be trimmed: " + ex.getMessage());
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     // <editor-fold defaultstate="collapsed" desc="Generated Code">//GEN-BEGIN:initComponents
     private void initComponents() {
@@ -27,6 +27,7 @@ import ch.zhaw.iamp.rct.Controller;
 import ch.zhaw.iamp.rct.util.Storage;
 import ch.zhaw.iamp.rct.util.Components;
 import ch.zhaw.iamp.rct.util.Dialogs;
+import ch.zhaw.iamp.rct.weights.Weights;
 import java.io.File;
 import java.util.HashMap;
 import javax.swing.JTextField;
@@ -120,8 +121,10 @@ public class WeightsCalculatorWindow extends javax.swing.JFrame {
         outputFileTextField = new javax.swing.JTextField();
         outputSelectButton = new javax.swing.JButton();
         outputInfoLabel = new javax.swing.JLabel();
+        progressBar = new javax.swing.JProgressBar();
         centererPanel = new javax.swing.JPanel();
         calculateButton = new javax.swing.JButton();
+        cancelButton = new javax.swing.JButton();
         closeButton = new javax.swing.JButton();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.DISPOSE_ON_CLOSE);
@@ -251,6 +254,9 @@ public class WeightsCalculatorWindow extends javax.swing.JFrame {
         outputInfoLabel.setIcon(new javax.swing.ImageIcon(getClass().getResource("/ch/zhaw/iamp/rct/ui/information.png"))); // NOI18N
         outputInfoLabel.setToolTipText("<html>The calculeated weights will be stored into this file. Afterwards, it can be used as <b>Execution Curve</b> when running in execution phase.</html>");
 
+        progressBar.setString("Idle");
+        progressBar.setStringPainted(true);
+
         calculateButton.setText("Calculate");
         calculateButton.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
@@ -259,6 +265,15 @@ public class WeightsCalculatorWindow extends javax.swing.JFrame {
         });
         centererPanel.add(calculateButton);
 
+        cancelButton.setText("Cancel");
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                cancelButtonActionPerformed(evt);
+            }
+        });
+        centererPanel.add(cancelButton);
+
         closeButton.setText("Close");
         closeButton.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
@@ -275,6 +290,7 @@ public class WeightsCalculatorWindow extends javax.swing.JFrame {
                 .addContainerGap()
                 .addGroup(calculationPanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                     .addComponent(centererPanel, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                    .addComponent(progressBar, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                     .addGroup(calculationPanelLayout.createSequentialGroup()
                         .addComponent(outputLabel, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
@@ -295,6 +311,8 @@ public class WeightsCalculatorWindow extends javax.swing.JFrame {
                     .addComponent(outputSelectButton)
                     .addComponent(outputInfoLabel, javax.swing.GroupLayout.PREFERRED_SIZE, 25, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addGap(12, 12, 12)
+                .addComponent(progressBar, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(centererPanel, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addContainerGap())
         );
@@ -330,8 +348,6 @@ public class WeightsCalculatorWindow extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void calculateButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_calculateButtonActionPerformed
-        configureGuiForCalculationPhase(true);
-
         String outputFile = springLenghtsTextField.getText();
         String anglesFile = anglesFileTextField.getText();
         String correctionsFile = outputFileTextField.getText();
@@ -341,11 +357,15 @@ public class WeightsCalculatorWindow extends javax.swing.JFrame {
                 && isParentFolderAccessible(correctionsFile)
                 && containsValidInteger(offsetTextField)) {
             controller.calculateWeights();
-        } else {
-            configureGuiForCalculationPhase(false);
         }
     }//GEN-LAST:event_calculateButtonActionPerformed
 
+    private void cancelButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_cancelButtonActionPerformed
+        cancelButton.setEnabled(false);
+        progressBar.setString("Cancelling...");
+        controller.cancelWeightsCalculations();
+    }//GEN-LAST:event_cancelButtonActionPerformed
+
     private boolean isFileAccessible(String path) {
         if (path == null) {
             return false;
@@ -375,19 +395,43 @@ public class WeightsCalculatorWindow extends javax.swing.JFrame {
         }
     }
 
+    /**
+     * Configures the GUI depending on whether calculations are running. The
+     * input fields stay enabled, so further calculations can be queued.
+     *
+     * @param inCalculationPhase true, if at least one calculation is running
+     * or queued.
+     */
     public void configureGuiForCalculationPhase(boolean inCalculationPhase) {
-        springLenghtsTextField.setEnabled(!inCalculationPhase);
-        springLenghtsSelectButton.setEnabled(!inCalculationPhase);
+        cancelButton.setEnabled(inCalculationPhase);
 
-        offsetTextField.setEnabled(!inCalculationPhase);
+        if (!inCalculationPhase) {
+            progressBar.setValue(0);
+            progressBar.setString("Idle");
+        }
+    }
 
-        anglesFileTextField.setEnabled(!inCalculationPhase);
-        anglesSelectButton.setEnabled(!inCalculationPhase);
+    /**
+     * Shows the progress of the running weights calculation.
+     *
+     * @param phase The phase the running calculation is in, or null, if it has
+     * not started yet.
+     * @param numberOfCalculations The number of running and queued
+     * calculations.
+     */
+    public void showCalculationProgress(Weights.Phase phase, int numberOfCalculations) {
+        int queued = numberOfCalculations - 1;
+        String text = phase == null ? "Waiting..." : phase.getDescription() + "...";
+
+        if (queued > 0) {
+            text += " (" + queued + " queued)";
+        }
 
-        outputFileTextField.setEnabled(!inCalculationPhase);
-        outputSelectButton.setEnabled(!inCalculationPhase);
+        if (phase != null) {
+            progressBar.setValue(phase.ordinal() * 100 / Weights.Phase.values().length);
+        }
 
-        calculateButton.setEnabled(!inCalculationPhase);
+        progressBar.setString(text);
     }
 
     public String getSpringLengthsPath() {
@@ -456,6 +500,7 @@ public class WeightsCalculatorWindow extends javax.swing.JFrame {
     private javax.swing.JButton anglesSelectButton;
     private javax.swing.JButton calculateButton;
     private javax.swing.JPanel calculationPanel;
+    private javax.swing.JButton cancelButton;
     private javax.swing.JPanel centererPanel;
     private javax.swing.JButton closeButton;
     private javax.swing.Box.Filler inputToWeightsFiller;
@@ -467,6 +512,7 @@ public class WeightsCalculatorWindow extends javax.swing.JFrame {
     private javax.swing.JLabel outputInfoLabel;
     private javax.swing.JLabel outputLabel;
     private javax.swing.JButton outputSelectButton;
+    private javax.swing.JProgressBar progressBar;
     private javax.swing.JPanel sourcePanel;
     private javax.swing.JButton springLenghtsSelectButton;
     private javax.swing.JTextField springLenghtsTextField;
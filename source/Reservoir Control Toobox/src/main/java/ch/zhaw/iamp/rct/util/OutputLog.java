@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link OutputLog} keeps the last lines of the output of a process. When
+ * it is full, the oldest line is dropped for every new one, so a chatty process
+ * can run for any time without exhausting the memory. It may be written and
+ * read from different threads.
+ */
+public class OutputLog {
+
+    private final String[] lines;
+    private int start;
+    private int size;
+    private long numberOfDroppedLines;
+
+    /**
+     * @param capacity The maximal number of lines to keep.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public OutputLog(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity has to be positive.");
+        }
+
+        lines = new String[capacity];
+    }
+
+    /**
+     * Appends the given line, dropping the oldest line if the log is full.
+     *
+     * @param line The line to append.
+     */
+    public synchronized void add(String line) {
+        if (size < lines.length) {
+            lines[(start + size) % lines.length] = line;
+            size++;
+        } else {
+            lines[start] = line;
+            start = (start + 1) % lines.length;
+            numberOfDroppedLines++;
+        }
+    }
+
+    /**
+     * @return A copy of the kept lines, the oldest first.
+     */
+    public synchronized List<String> getLines() {
+        List<String> copy = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            copy.add(lines[(start + i) % lines.length]);
+        }
+
+        return copy;
+    }
+
+    public synchronized int getNumberOfLines() {
+        return size;
+    }
+
+    /**
+     * @return The number of lines which have been dropped since the log was
+     * full.
+     */
+    public synchronized long getNumberOfDroppedLines() {
+        return numberOfDroppedLines;
+    }
+
+    public int getCapacity() {
+        return lines.length;
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.util;
+
+/**
+ * A {@link ProcessListener} is informed about the output and the end of a
+ * process started by a {@link ProcessRunner}. The methods are called on the
+ * background threads of the runner, not on the event dispatch thread.
+ */
+public interface ProcessListener {
+
+    /**
+     * @param line The line, without the line terminator.
+     * @param isError true, if the line has been written to the error stream,
+     * false, if it has been written to the output stream.
+     */
+    void lineRead(String line, boolean isError);
+
+    /**
+     * Called once after the process has ended and both streams have been
+     * read completely.
+     *
+     * @param exitValue The exit value of the process, or null if it could not
+     * be waited for.
+     * @param isTimedOut true, if the process has been destroyed because it has
+     * run longer than the timeout.
+     */
+    void processEnded(Integer exitValue, boolean isTimedOut);
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ProcessRunner} runs an external process without blocking the
+ * calling thread. Both, the output and the error stream, are read on
+ * background threads, so the process can never block on a full pipe. Every
+ * line is appended to an {@link OutputLog} and passed to an optional
+ * {@link ProcessListener}.
+ * <p>
+ * The process is destroyed when it runs longer than the timeout, or when the
+ * returned {@link Future} is cancelled.
+ */
+public class ProcessRunner {
+
+    public final static int DEFAULT_LOG_CAPACITY = 1000;
+    public final static long NO_TIMEOUT = 0;
+    private final static ScheduledExecutorService TIMEOUT_EXECUTOR = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "process-timeout");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final List<String> command;
+    private final OutputLog log;
+    private final long timeoutInMilliseconds;
+    private ProcessListener listener;
+    private File workingDirectory;
+    private volatile boolean isTimedOut;
+
+    /**
+     * Creates a runner without timeout and a log of the default capacity.
+     *
+     * @param command The executable and its arguments.
+     */
+    public ProcessRunner(String... command) {
+        this(Arrays.asList(command), DEFAULT_LOG_CAPACITY, NO_TIMEOUT);
+    }
+
+    /**
+     * @param command The executable and its arguments.
+     * @param logCapacity The number of last lines to keep in the log.
+     * @param timeoutInMilliseconds The time after which the process is
+     * destroyed, or {@link #NO_TIMEOUT}.
+     * @throws IllegalArgumentException If the command is null or empty, or the
+     * timeout is negative.
+     */
+    public ProcessRunner(List<String> command, int logCapacity, long timeoutInMilliseconds) {
+        if (command == null || command.isEmpty()) {
+            throw new IllegalArgumentException("The argument may not be null nor may it be empty.");
+        }
+
+        if (timeoutInMilliseconds < 0) {
+            throw new IllegalArgumentException("The timeout may not be negative.");
+        }
+
+        this.command = command;
+        this.log = new OutputLog(logCapacity);
+        this.timeoutInMilliseconds = timeoutInMilliseconds;
+    }
+
+    public void setListener(ProcessListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param workingDirectory The working directory of the process, or null
+     * for the one of this process.
+     */
+    public void setWorkingDirectory(File workingDirectory) {
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * Starts the process and returns immediately.
+     *
+     * @return The future exit value of the process. Cancelling it destroys the
+     * process.
+     * @throws IOException If the process could not be started.
+     */
+    public Future<Integer> start() throws IOException {
+        final Process process = new ProcessBuilder(command).directory(workingDirectory).start();
+        final Thread outputReader = startReader(process.getInputStream(), false);
+        final Thread errorReader = startReader(process.getErrorStream(), true);
+        final ScheduledFuture<?> timeout = scheduleTimeout(process);
+
+        FutureTask<Integer> task = new FutureTask<Integer>(new Callable<Integer>() {
+            @Override
+            public Integer call() throws InterruptedException {
+                try {
+                    int exitValue = process.waitFor();
+                    outputReader.join();
+                    errorReader.join();
+                    return exitValue;
+                } catch (InterruptedException ex) {
+                    process.destroy();
+                    throw ex;
+                }
+            }
+        }) {
+            /**
+             * The listener is informed on this thread, once the process has
+             * exited and both streams have been read, also if the task has
+             * been cancelled in the meantime.
+             */
+            @Override
+            public void run() {
+                try {
+                    super.run();
+                } finally {
+                    awaitEnd(process, outputReader, errorReader);
+
+                    if (listener != null) {
+                        listener.processEnded(getExitValue(this), isTimedOut);
+                    }
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    process.destroy();
+                }
+
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+            }
+        };
+
+        Thread waiter = new Thread(task, "process-" + command.get(0));
+        waiter.setDaemon(true);
+        waiter.start();
+
+        return task;
+    }
+
+    /**
+     * Waits until the process has exited and the given readers have ended. An
+     * interrupt by cancelling the task is ignored, since the process has
+     * already been destroyed then.
+     */
+    private static void awaitEnd(Process process, Thread... readers) {
+        Thread.interrupted();
+
+        while (true) {
+            try {
+                process.waitFor();
+
+                for (Thread reader : readers) {
+                    reader.join();
+                }
+
+                return;
+            } catch (InterruptedException ex) {
+                process.destroy();
+            }
+        }
+    }
+
+    private static Integer getExitValue(Future<Integer> task) {
+        try {
+            return task.isCancelled() ? null : task.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            return null;
+        }
+    }
+
+    private Thread startReader(final InputStream stream, final boolean isError) {
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (BufferedReader lines = new BufferedReader(new InputStreamReader(stream))) {
+                    String line = lines.readLine();
+
+                    while (line != null) {
+                        log.add(line);
+
+                        if (listener != null) {
+                            listener.lineRead(line, isError);
+                        }
+
+                        line = lines.readLine();
+                    }
+                } catch (IOException ex) {
+                    log.add("[J] Could not read the process output: " + ex.getMessage());
+                }
+            }
+        }, "process-" + (isError ? "stderr" : "stdout"));
+
+        reader.setDaemon(true);
+        reader.start();
+
+        return reader;
+    }
+
+    private ScheduledFuture<?> scheduleTimeout(final Process process) {
+        if (timeoutInMilliseconds == NO_TIMEOUT) {
+            return null;
+        }
+
+        return TIMEOUT_EXECUTOR.schedule(new Runnable() {
+            @Override
+            public void run() {
+                isTimedOut = true;
+                process.destroy();
+            }
+        }, timeoutInMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return The log with the last lines of both streams, in the order in
+     * which they have been read.
+     */
+    public OutputLog getLog() {
+        return log;
+    }
+
+    /**
+     * @return true, if the process has been destroyed because of the timeout.
+     */
+    public boolean isTimedOut() {
+        return isTimedOut;
+    }
+
+}
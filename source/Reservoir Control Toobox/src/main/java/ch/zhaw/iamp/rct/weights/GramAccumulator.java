@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+
+/**
+ * A {@link GramAccumulator} collects the normal equations of the least squares
+ * problem {@code A x = b} row by row: the Gram matrix {@code AᵀA}, the
+ * products {@code Aᵀb} and the sums of the squared targets. Rows can be added
+ * and removed again, and accumulators of different parts of a recording can
+ * be merged, so the recording itself never has to be held in memory.
+ * <p>
+ * The memory needed only depends on the number of springs and outputs, not on
+ * the number of steps.
+ */
+public class GramAccumulator {
+
+    private final double[][] gram;
+    private final double[][] cross;
+    private final double[] sumOfSquaredTargets;
+    private int numberOfRows;
+
+    /**
+     * @param numberOfSprings The number of columns of A.
+     * @param numberOfOutputs The number of columns of b.
+     */
+    public GramAccumulator(int numberOfSprings, int numberOfOutputs) {
+        gram = new double[numberOfSprings][numberOfSprings];
+        cross = new double[numberOfSprings][numberOfOutputs];
+        sumOfSquaredTargets = new double[numberOfOutputs];
+    }
+
+    /**
+     * Adds one step.
+     *
+     * @param springLengths The row of A.
+     * @param target The corresponding row of b.
+     */
+    public void addRow(double[] springLengths, double[] target) {
+        update(springLengths, target, 1);
+        numberOfRows++;
+    }
+
+    /**
+     * Removes a step which has been added before (rank-one downdate).
+     *
+     * @param springLengths The row of A.
+     * @param target The corresponding row of b.
+     */
+    public void subtractRow(double[] springLengths, double[] target) {
+        update(springLengths, target, -1);
+        numberOfRows--;
+    }
+
+    private void update(double[] springLengths, double[] target, double sign) {
+        verifyDimensions(springLengths, target);
+
+        for (int i = 0; i < gram.length; i++) {
+            double a = sign * springLengths[i];
+            double[] gramRow = gram[i];
+
+            // the Gram matrix is symmetric, the lower half is mirrored when solving
+            for (int j = i; j < gramRow.length; j++) {
+                gramRow[j] += a * springLengths[j];
+            }
+
+            double[] crossRow = cross[i];
+
+            for (int o = 0; o < crossRow.length; o++) {
+                crossRow[o] += a * target[o];
+            }
+        }
+
+        for (int o = 0; o < target.length; o++) {
+            sumOfSquaredTargets[o] += sign * target[o] * target[o];
+        }
+    }
+
+    private void verifyDimensions(double[] springLengths, double[] target) {
+        if (springLengths.length != gram.length) {
+            throw new DimensionMismatchException(springLengths.length, gram.length);
+        }
+
+        if (target.length != sumOfSquaredTargets.length) {
+            throw new DimensionMismatchException(target.length, sumOfSquaredTargets.length);
+        }
+    }
+
+    /**
+     * Adds all steps of the given accumulator to this one.
+     *
+     * @param other The accumulator with the same dimensions.
+     */
+    public void merge(GramAccumulator other) {
+        if (other.gram.length != gram.length) {
+            throw new DimensionMismatchException(other.gram.length, gram.length);
+        }
+
+        if (other.sumOfSquaredTargets.length != sumOfSquaredTargets.length) {
+            throw new DimensionMismatchException(other.sumOfSquaredTargets.length, sumOfSquaredTargets.length);
+        }
+
+        for (int i = 0; i < gram.length; i++) {
+            for (int j = i; j < gram.length; j++) {
+                gram[i][j] += other.gram[i][j];
+            }
+
+            for (int o = 0; o < sumOfSquaredTargets.length; o++) {
+                cross[i][o] += other.cross[i][o];
+            }
+        }
+
+        for (int o = 0; o < sumOfSquaredTargets.length; o++) {
+            sumOfSquaredTargets[o] += other.sumOfSquaredTargets[o];
+        }
+
+        numberOfRows += other.numberOfRows;
+    }
+
+    /**
+     * Solves the normal equations {@code AᵀA x = Aᵀb} with the pseudo-inverse.
+     *
+     * @return The weights, one row per output and one column per spring, as
+     * written by {@link Weights}.
+     */
+    public RealMatrix solve() {
+        return solve(0);
+    }
+
+    /**
+     * Solves the regularized normal equations
+     * {@code (AᵀA + ridge I) x = Aᵀb} with the pseudo-inverse.
+     *
+     * @param ridge The non-negative regularization factor.
+     * @return The weights, one row per output and one column per spring, as
+     * written by {@link Weights}.
+     */
+    public RealMatrix solve(double ridge) {
+        RealMatrix regularizedGram = getGram();
+
+        for (int i = 0; i < gram.length; i++) {
+            regularizedGram.addToEntry(i, i, ridge);
+        }
+
+        return new SingularValueDecomposition(regularizedGram).getSolver().solve(getCross()).transpose();
+    }
+
+    /**
+     * Calculates the mean squared training error of the given weights over the
+     * accumulated steps, without touching the steps again.
+     *
+     * @param weights The weights, one row per output and one column per
+     * spring.
+     * @return The mean squared error per output.
+     */
+    public double[] getMeanSquaredErrors(RealMatrix weights) {
+        double[] errors = new double[sumOfSquaredTargets.length];
+        RealMatrix fullGram = getGram();
+
+        for (int o = 0; o < errors.length; o++) {
+            double[] x = weights.getRow(o);
+            double[] gx = fullGram.operate(x);
+            double sum = sumOfSquaredTargets[o];
+
+            for (int j = 0; j < x.length; j++) {
+                sum += x[j] * gx[j] - 2 * x[j] * cross[j][o];
+            }
+
+            errors[o] = Math.max(0, sum) / numberOfRows;
+        }
+
+        return errors;
+    }
+
+    /**
+     * @return A copy of the full, symmetric Gram matrix {@code AᵀA}.
+     */
+    public RealMatrix getGram() {
+        RealMatrix result = MatrixUtils.createRealMatrix(gram.length, gram.length);
+
+        for (int i = 0; i < gram.length; i++) {
+            for (int j = i; j < gram.length; j++) {
+                result.setEntry(i, j, gram[i][j]);
+                result.setEntry(j, i, gram[i][j]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return A copy of the products {@code Aᵀb}, one row per spring.
+     */
+    public RealMatrix getCross() {
+        return MatrixUtils.createRealMatrix(cross);
+    }
+
+    /**
+     * @return The sums of the squared targets, one entry per output.
+     */
+    public double[] getSumOfSquaredTargets() {
+        return sumOfSquaredTargets.clone();
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    public int getNumberOfSprings() {
+        return gram.length;
+    }
+
+    public int getNumberOfOutputs() {
+        return sumOfSquaredTargets.length;
+    }
+
+}
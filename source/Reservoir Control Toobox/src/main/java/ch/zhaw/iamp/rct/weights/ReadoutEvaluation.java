@@ -0,0 +1,297 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * A {@link ReadoutEvaluation} tells how well calculated weights reproduce the
+ * target trajectory, when they are applied to a recording of spring lengths.
+ * For every output (column of the target trajectory) the mean squared error
+ * (MSE), the normalized root mean squared error (NRMSE) and the correlation
+ * between readout and target are available.
+ * <p>
+ * The recording is processed in blocks of rows that are evaluated in parallel
+ * and merged afterwards, so evaluating many weight candidates against the same
+ * recording stays cheap.
+ *
+ * @see Weights
+ */
+public class ReadoutEvaluation {
+
+    final static int BLOCK_SIZE = 2048;
+    private final static ForkJoinPool POOL = new ForkJoinPool();
+    private final double[] mse;
+    private final double[] nrmse;
+    private final double[] correlation;
+    private final int numberOfSamples;
+
+    ReadoutEvaluation(Statistics statistics) {
+        int outputs = statistics.sumOfSquaredErrors.length;
+        mse = new double[outputs];
+        nrmse = new double[outputs];
+        correlation = new double[outputs];
+        numberOfSamples = statistics.count;
+
+        for (int o = 0; o < outputs; ++o) {
+            double n = statistics.count;
+            double varianceTarget = statistics.squaredDeviationsOfTargets[o] / n;
+
+            mse[o] = statistics.sumOfSquaredErrors[o] / n;
+            nrmse[o] = Math.sqrt(mse[o] / varianceTarget);
+            correlation[o] = statistics.comoments[o]
+                    / Math.sqrt(statistics.squaredDeviationsOfReadouts[o] * statistics.squaredDeviationsOfTargets[o]);
+        }
+    }
+
+    /**
+     * Evaluates the weights in the given files. The files have the same format
+     * as for {@link Weights#calculateWeights(String, String, String, int)}.
+     *
+     * @param weightsFile The weights, one row per output.
+     * @param springLengthsFile The recorded spring lengths, one row per step.
+     * @param targetTrajectoryFile The target trajectory, one row per step. It
+     * is repeated cyclically, if it is shorter than the recording.
+     * @param offset The numbers of first steps to ignore.
+     * @return The evaluation.
+     * @throws IOException If a file could not be read.
+     * @throws DimensionMismatchException If the dimensions of the files do not
+     * fit together.
+     */
+    public static ReadoutEvaluation evaluate(String weightsFile, String springLengthsFile, String targetTrajectoryFile, int offset) throws IOException {
+        return evaluate(Weights.csvToMatrix(weightsFile),
+                Weights.csvToMatrix(springLengthsFile),
+                Weights.csvToMatrix(targetTrajectoryFile), offset);
+    }
+
+    /**
+     * Evaluates the given weights.
+     *
+     * @param weights The weights, one row per output and one column per
+     * spring, as written by {@link Weights}.
+     * @param springLengths The recorded spring lengths, one row per step.
+     * @param targetTrajectory The target trajectory, one row per step. It is
+     * repeated cyclically, if it is shorter than the recording.
+     * @param offset The numbers of first steps to ignore.
+     * @return The evaluation.
+     * @throws DimensionMismatchException If the dimensions of the matrices do
+     * not fit together.
+     */
+    public static ReadoutEvaluation evaluate(RealMatrix weights, RealMatrix springLengths, RealMatrix targetTrajectory, int offset) {
+        return evaluate(weights.getData(), springLengths.getData(), targetTrajectory.getData(), offset);
+    }
+
+    /**
+     * Evaluates the given weights. The arrays are not modified.
+     *
+     * @param weights The weights, one row per output and one column per
+     * spring, as written by {@link Weights}.
+     * @param springLengths The recorded spring lengths, one row per step.
+     * @param targetTrajectory The target trajectory, one row per step. It is
+     * repeated cyclically, if it is shorter than the recording.
+     * @param offset The numbers of first steps to ignore.
+     * @return The evaluation.
+     * @throws IllegalArgumentException If the offset leaves no steps to
+     * evaluate.
+     * @throws DimensionMismatchException If the dimensions of the arrays do not
+     * fit together.
+     */
+    public static ReadoutEvaluation evaluate(double[][] weights, double[][] springLengths, double[][] targetTrajectory, int offset) {
+        if (offset < 0 || offset >= springLengths.length) {
+            throw new IllegalArgumentException("The offset has to leave at least one step to evaluate.");
+        }
+
+        if (weights[0].length != springLengths[0].length) {
+            throw new DimensionMismatchException(springLengths[0].length, weights[0].length);
+        }
+
+        if (weights.length != targetTrajectory[0].length) {
+            throw new DimensionMismatchException(targetTrajectory[0].length, weights.length);
+        }
+
+        BlockEvaluation evaluation = new BlockEvaluation(weights, springLengths, targetTrajectory, offset, springLengths.length);
+        return new ReadoutEvaluation(POOL.invoke(evaluation));
+    }
+
+    public int getNumberOfOutputs() {
+        return mse.length;
+    }
+
+    /**
+     * @return The number of evaluated steps.
+     */
+    public int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    /**
+     * @param output The index of the output.
+     * @return The mean squared error between readout and target.
+     */
+    public double getMse(int output) {
+        return mse[output];
+    }
+
+    /**
+     * @param output The index of the output.
+     * @return The root mean squared error, divided by the standard deviation of
+     * the target. It is NaN, if the target is constant.
+     */
+    public double getNrmse(int output) {
+        return nrmse[output];
+    }
+
+    /**
+     * @param output The index of the output.
+     * @return The Pearson correlation between readout and target. It is NaN,
+     * if one of them is constant.
+     */
+    public double getCorrelation(int output) {
+        return correlation[output];
+    }
+
+    /**
+     * Means and sums of squared deviations from them of one block of rows,
+     * which are sufficient to calculate the measures above. They are updated
+     * row by row (Welford) and merged pairwise (Chan et al.), so they stay
+     * accurate for targets with a large mean and a small spread, where raw
+     * sums of squares would cancel.
+     */
+    static class Statistics {
+
+        int count;
+        final double[] meanOfReadouts;
+        final double[] meanOfTargets;
+        final double[] squaredDeviationsOfReadouts;
+        final double[] squaredDeviationsOfTargets;
+        final double[] comoments;
+        final double[] sumOfSquaredErrors;
+
+        Statistics(int outputs) {
+            meanOfReadouts = new double[outputs];
+            meanOfTargets = new double[outputs];
+            squaredDeviationsOfReadouts = new double[outputs];
+            squaredDeviationsOfTargets = new double[outputs];
+            comoments = new double[outputs];
+            sumOfSquaredErrors = new double[outputs];
+        }
+
+        void add(double[] readout, double[] target) {
+            count++;
+
+            for (int o = 0; o < readout.length; ++o) {
+                double y = readout[o];
+                double t = target[o];
+                double error = y - t;
+                double deltaReadout = y - meanOfReadouts[o];
+                double deltaTarget = t - meanOfTargets[o];
+                meanOfReadouts[o] += deltaReadout / count;
+                meanOfTargets[o] += deltaTarget / count;
+                squaredDeviationsOfReadouts[o] += deltaReadout * (y - meanOfReadouts[o]);
+                squaredDeviationsOfTargets[o] += deltaTarget * (t - meanOfTargets[o]);
+                comoments[o] += deltaReadout * (t - meanOfTargets[o]);
+                sumOfSquaredErrors[o] += error * error;
+            }
+        }
+
+        void merge(Statistics other) {
+            if (other.count == 0) {
+                return;
+            }
+
+            double n = count + other.count;
+            double weight = (double) count * other.count / n;
+
+            for (int o = 0; o < meanOfReadouts.length; ++o) {
+                double deltaReadout = other.meanOfReadouts[o] - meanOfReadouts[o];
+                double deltaTarget = other.meanOfTargets[o] - meanOfTargets[o];
+                meanOfReadouts[o] += deltaReadout * other.count / n;
+                meanOfTargets[o] += deltaTarget * other.count / n;
+                squaredDeviationsOfReadouts[o] += other.squaredDeviationsOfReadouts[o] + deltaReadout * deltaReadout * weight;
+                squaredDeviationsOfTargets[o] += other.squaredDeviationsOfTargets[o] + deltaTarget * deltaTarget * weight;
+                comoments[o] += other.comoments[o] + deltaReadout * deltaTarget * weight;
+                sumOfSquaredErrors[o] += other.sumOfSquaredErrors[o];
+            }
+
+            count += other.count;
+        }
+    }
+
+    private static class BlockEvaluation extends RecursiveTask<Statistics> {
+
+        private static final long serialVersionUID = 1L;
+        private final double[][] weights;
+        private final double[][] springLengths;
+        private final double[][] targetTrajectory;
+        private final int start;
+        private final int end;
+
+        BlockEvaluation(double[][] weights, double[][] springLengths, double[][] targetTrajectory, int start, int end) {
+            this.weights = weights;
+            this.springLengths = springLengths;
+            this.targetTrajectory = targetTrajectory;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Statistics compute() {
+            if (end - start > BLOCK_SIZE) {
+                int middle = (start + end) >>> 1;
+                BlockEvaluation lower = new BlockEvaluation(weights, springLengths, targetTrajectory, start, middle);
+                BlockEvaluation upper = new BlockEvaluation(weights, springLengths, targetTrajectory, middle, end);
+                upper.fork();
+                Statistics statistics = lower.compute();
+                statistics.merge(upper.join());
+                return statistics;
+            }
+
+            Statistics statistics = new Statistics(weights.length);
+            double[] readout = new double[weights.length];
+
+            for (int i = start; i < end; ++i) {
+                double[] lengths = springLengths[i];
+
+                for (int o = 0; o < weights.length; ++o) {
+                    double[] outputWeights = weights[o];
+                    double sum = 0;
+
+                    for (int s = 0; s < lengths.length; ++s) {
+                        sum += outputWeights[s] * lengths[s];
+                    }
+
+                    readout[o] = sum;
+                }
+
+                statistics.add(readout, targetTrajectory[i % targetTrajectory.length]);
+            }
+
+            return statistics;
+        }
+    }
+
+}
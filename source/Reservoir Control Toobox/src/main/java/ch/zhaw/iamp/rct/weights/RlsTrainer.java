@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import java.io.IOException;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * A {@link RlsTrainer} calculates the weights with recursive least squares
+ * (RLS): the weights are updated with every added step, so they are ready as
+ * soon as the last step has been added, without a decomposition at the end.
+ * <p>
+ * The trainer keeps the inverse of the exponentially weighted, regularized
+ * Gram matrix of the {@code k} steps {@code a₁ … aₖ} added so far,
+ * {@code P = (Σᵢ λ^(k−i) aᵢaᵢᵀ + λ^k δ I)⁻¹} with the forgetting factor
+ * {@code λ}, which is updated in {@code O(n²)} per step for {@code n}
+ * springs. With a forgetting factor of 1, the weights equal those of
+ * {@link GramAccumulator#solve(double)} with the regularization as ridge.
+ * A forgetting factor below 1 weights recent steps more, for targets that
+ * change over time.
+ */
+public class RlsTrainer {
+
+    public final static double DEFAULT_REGULARIZATION = 1e-6;
+    private final double[][] inverseGram;
+    private final double[][] weights;
+    private final double forgettingFactor;
+    private final double[] gain;
+    private final double[] readout;
+    private int numberOfRows;
+
+    /**
+     * Creates a trainer with the default regularization and without
+     * forgetting.
+     *
+     * @param numberOfSprings The number of columns of A.
+     * @param numberOfOutputs The number of columns of b.
+     */
+    public RlsTrainer(int numberOfSprings, int numberOfOutputs) {
+        this(numberOfSprings, numberOfOutputs, DEFAULT_REGULARIZATION, 1);
+    }
+
+    /**
+     * @param numberOfSprings The number of columns of A.
+     * @param numberOfOutputs The number of columns of b.
+     * @param regularization The positive ridge δ of the initial Gram matrix.
+     * @param forgettingFactor The factor in (0, 1] by which older steps are
+     * weighted down with every new step.
+     */
+    public RlsTrainer(int numberOfSprings, int numberOfOutputs, double regularization, double forgettingFactor) {
+        if (!(regularization > 0)) {
+            throw new IllegalArgumentException("The regularization has to be positive.");
+        }
+
+        if (!(forgettingFactor > 0 && forgettingFactor <= 1)) {
+            throw new IllegalArgumentException("The forgetting factor has to be in (0, 1].");
+        }
+
+        this.forgettingFactor = forgettingFactor;
+        inverseGram = new double[numberOfSprings][numberOfSprings];
+        weights = new double[numberOfOutputs][numberOfSprings];
+        gain = new double[numberOfSprings];
+        readout = new double[numberOfOutputs];
+
+        for (int i = 0; i < numberOfSprings; i++) {
+            inverseGram[i][i] = 1 / regularization;
+        }
+    }
+
+    /**
+     * Adds one step and updates the weights.
+     *
+     * @param springLengths The row of A.
+     * @param target The corresponding row of b.
+     */
+    public void addRow(double[] springLengths, double[] target) {
+        if (springLengths.length != gain.length) {
+            throw new DimensionMismatchException(springLengths.length, gain.length);
+        }
+
+        if (target.length != weights.length) {
+            throw new DimensionMismatchException(target.length, weights.length);
+        }
+
+        // gain = P a / (λ + aᵀ P a), P is symmetric
+        double denominator = forgettingFactor;
+
+        for (int i = 0; i < gain.length; i++) {
+            double[] row = inverseGram[i];
+            double sum = 0;
+
+            for (int j = 0; j < row.length; j++) {
+                sum += row[j] * springLengths[j];
+            }
+
+            gain[i] = sum;
+            denominator += springLengths[i] * sum;
+        }
+
+        for (int o = 0; o < weights.length; o++) {
+            double[] outputWeights = weights[o];
+            double sum = 0;
+
+            for (int j = 0; j < outputWeights.length; j++) {
+                sum += outputWeights[j] * springLengths[j];
+            }
+
+            readout[o] = sum;
+        }
+
+        // P = (P - P a aᵀ P / (λ + aᵀ P a)) / λ, only the upper half is calculated
+        for (int i = 0; i < gain.length; i++) {
+            double factor = gain[i] / denominator;
+            double[] row = inverseGram[i];
+
+            for (int j = i; j < row.length; j++) {
+                row[j] = (row[j] - factor * gain[j]) / forgettingFactor;
+                inverseGram[j][i] = row[j];
+            }
+        }
+
+        for (int o = 0; o < weights.length; o++) {
+            double error = (target[o] - readout[o]) / denominator;
+            double[] outputWeights = weights[o];
+
+            for (int j = 0; j < outputWeights.length; j++) {
+                outputWeights[j] += error * gain[j];
+            }
+        }
+
+        numberOfRows++;
+    }
+
+    /**
+     * Writes the current weights in the format of {@link Weights}.
+     *
+     * @param weightsFile The file to write.
+     * @throws IOException If the file could not be written.
+     */
+    public void writeWeights(String weightsFile) throws IOException {
+        Weights.matrixToCsv(getWeights(), weightsFile);
+    }
+
+    /**
+     * @return A copy of the current weights, one row per output and one column
+     * per spring.
+     */
+    public RealMatrix getWeights() {
+        return MatrixUtils.createRealMatrix(weights);
+    }
+
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    public int getNumberOfSprings() {
+        return gain.length;
+    }
+
+    public int getNumberOfOutputs() {
+        return weights.length;
+    }
+
+}
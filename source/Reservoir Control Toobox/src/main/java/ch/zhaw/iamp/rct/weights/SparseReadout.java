@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+
+/**
+ * A {@link SparseReadout} selects a small set of springs and calculates
+ * weights which only use these springs, so only their lengths have to be
+ * sensed when the readout is applied.
+ * <p>
+ * The springs are selected by simultaneous orthogonal matching pursuit on the
+ * normal equations: in every step, the spring which correlates best with the
+ * residuals of all outputs is added, and the weights are recalculated on the
+ * selected springs. All outputs share the same springs. Since only the Gram
+ * matrix is used, the cost does not depend on the length of the recording.
+ */
+public class SparseReadout {
+
+    private final RealMatrix weights;
+    private final List<Integer> selectedSprings;
+
+    SparseReadout(RealMatrix weights, List<Integer> selectedSprings) {
+        this.weights = weights;
+        this.selectedSprings = selectedSprings;
+    }
+
+    /**
+     * Selects springs for the given recording and target trajectory. The rows
+     * are aligned as in {@link Weights}.
+     *
+     * @param A The spring lengths, one row per step.
+     * @param targetTrajectory The target trajectory, one row per step.
+     * @param offset The numbers of first steps to ignore.
+     * @param sparsity The maximum number of springs to select.
+     * @return The sparse readout.
+     */
+    public static SparseReadout select(RealMatrix A, RealMatrix targetTrajectory, int offset, int sparsity) {
+        double[][] springLengths = A.getData();
+        double[][] trajectory = targetTrajectory.getData();
+        GramAccumulator accumulator = new GramAccumulator(A.getColumnDimension(), targetTrajectory.getColumnDimension());
+
+        for (int i = offset; i < springLengths.length; i++) {
+            accumulator.addRow(springLengths[i], trajectory[i % trajectory.length]);
+        }
+
+        return select(accumulator, sparsity);
+    }
+
+    /**
+     * Selects springs for the accumulated normal equations.
+     *
+     * @param accumulator The accumulated recording.
+     * @param sparsity The maximum number of springs to select. Less springs
+     * are selected, if the remaining ones do not reduce the error anymore.
+     * @return The sparse readout.
+     * @throws IllegalArgumentException If the sparsity is not positive.
+     */
+    public static SparseReadout select(GramAccumulator accumulator, int sparsity) {
+        if (sparsity < 1) {
+            throw new IllegalArgumentException("At least one spring has to be selected.");
+        }
+
+        double[][] gram = accumulator.getGram().getData();
+        double[][] cross = accumulator.getCross().getData();
+        int springs = gram.length;
+        int outputs = accumulator.getNumberOfOutputs();
+        List<Integer> selected = new ArrayList<>();
+        boolean[] isSelected = new boolean[springs];
+        double[][] x = new double[springs][outputs];
+
+        while (selected.size() < Math.min(sparsity, springs)) {
+            int best = -1;
+            double bestScore = 0;
+
+            for (int j = 0; j < springs; j++) {
+                if (isSelected[j] || gram[j][j] <= 0) {
+                    continue;
+                }
+
+                double score = 0;
+
+                for (int o = 0; o < outputs; o++) {
+                    // correlation of spring j with the residual: (Aᵀb - AᵀA x)_j
+                    double correlation = cross[j][o];
+
+                    for (int k : selected) {
+                        correlation -= gram[j][k] * x[k][o];
+                    }
+
+                    score += correlation * correlation;
+                }
+
+                score /= gram[j][j];
+
+                if (score > bestScore) {
+                    best = j;
+                    bestScore = score;
+                }
+            }
+
+            if (best < 0 || bestScore <= 1e-12 * sumOf(accumulator.getSumOfSquaredTargets())) {
+                break;
+            }
+
+            selected.add(best);
+            isSelected[best] = true;
+            x = solveOnSupport(gram, cross, selected);
+        }
+
+        double[][] result = new double[outputs][springs];
+
+        for (int k : selected) {
+            for (int o = 0; o < outputs; o++) {
+                result[o][k] = x[k][o];
+            }
+        }
+
+        Collections.sort(selected);
+        return new SparseReadout(MatrixUtils.createRealMatrix(result), Collections.unmodifiableList(selected));
+    }
+
+    private static double[][] solveOnSupport(double[][] gram, double[][] cross, List<Integer> support) {
+        int size = support.size();
+        int outputs = cross[0].length;
+        RealMatrix subGram = MatrixUtils.createRealMatrix(size, size);
+        RealMatrix subCross = MatrixUtils.createRealMatrix(size, outputs);
+
+        for (int a = 0; a < size; a++) {
+            int j = support.get(a);
+
+            for (int c = 0; c < size; c++) {
+                subGram.setEntry(a, c, gram[j][support.get(c)]);
+            }
+
+            subCross.setRow(a, cross[j]);
+        }
+
+        RealMatrix subX = new SingularValueDecomposition(subGram).getSolver().solve(subCross);
+        double[][] x = new double[gram.length][outputs];
+
+        for (int a = 0; a < size; a++) {
+            x[support.get(a)] = subX.getRow(a);
+        }
+
+        return x;
+    }
+
+    private static double sumOf(double[] values) {
+        double sum = 0;
+
+        for (double value : values) {
+            sum += value;
+        }
+
+        return sum;
+    }
+
+    /**
+     * Writes the weights in the same format as {@link Weights}, including the
+     * zero weights of the springs which have not been selected.
+     *
+     * @param weightsFile The target file.
+     * @throws IOException If the file could not be written.
+     */
+    public void writeWeights(String weightsFile) throws IOException {
+        Weights.matrixToCsv(weights, weightsFile);
+    }
+
+    /**
+     * @return The weights, one row per output and one column per spring. All
+     * columns of springs which have not been selected are zero.
+     */
+    public RealMatrix getWeights() {
+        return weights.copy();
+    }
+
+    /**
+     * @return The indices of the selected springs, in ascending order.
+     */
+    public List<Integer> getSelectedSprings() {
+        return selectedSprings;
+    }
+
+}
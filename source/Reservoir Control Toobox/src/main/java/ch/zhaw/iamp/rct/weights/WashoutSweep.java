@@ -0,0 +1,213 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * A {@link WashoutSweep} calculates the weights for a whole list of offsets
+ * (washout lengths) at once. The Gram matrix for the smallest offset is
+ * accumulated in one pass over the recording. Every larger offset is reached
+ * by removing the contributions of the additionally cut rows, so each further
+ * candidate only costs a few rank-one downdates and one small solve.
+ * <p>
+ * The weights are fitted to the rows between the offset and the tail of the
+ * recording. The tail is held out and only used to score the weights with a
+ * {@link ReadoutEvaluation}, so the scores tell how well each washout
+ * generalizes instead of how few rows were left to fit.
+ * <p>
+ * The target trajectory is aligned as in {@link Weights}: row {@code i} of the
+ * recording corresponds to the trajectory row {@code i % b.getRowDimension()},
+ * independent of the offset.
+ */
+public class WashoutSweep {
+
+    private final static int TEST_ROWS_DIVISOR = 5;
+    private final int[] offsets;
+    private final RealMatrix[] weights;
+    private final ReadoutEvaluation[] evaluations;
+
+    WashoutSweep(int[] offsets, RealMatrix[] weights, ReadoutEvaluation[] evaluations) {
+        this.offsets = offsets;
+        this.weights = weights;
+        this.evaluations = evaluations;
+    }
+
+    /**
+     * Reads the files and sweeps over the given offsets. The last fifth of the
+     * recording is held out for scoring, and the weights are regularized with
+     * the ridge equivalent to the noise of
+     * {@link Weights#calculateWeights(String, String, String, int)}.
+     *
+     * @param pathToA The file which contains the spring lengths.
+     * @param targetTrajectoryFile The file which contains the target
+     * trajectory.
+     * @param offsets The offsets to try.
+     * @return The weights and scores per offset.
+     * @throws IOException If a file could not be read.
+     */
+    public static WashoutSweep sweep(String pathToA, String targetTrajectoryFile, int[] offsets) throws IOException {
+        RealMatrix A = Weights.csvToMatrix(pathToA);
+        return sweep(A, Weights.csvToMatrix(targetTrajectoryFile), offsets, getDefaultNumberOfTestRows(A.getRowDimension()), 1);
+    }
+
+    /**
+     * Sweeps over the given offsets. The matrices are used as they are, no
+     * noise is added.
+     *
+     * @param A The spring lengths, one row per step.
+     * @param targetTrajectory The target trajectory, one row per step.
+     * @param offsets The offsets to try, in any order.
+     * @param numberOfTestRows The number of last rows which are held out from
+     * the fit and used for scoring.
+     * @param noiseAmplitude The amplitude of the uniform noise whose ridge
+     * equivalent is applied, 0 for a plain least squares fit.
+     * @return The weights and scores per offset, sorted by ascending offset.
+     * @throws IllegalArgumentException If no row is held out, or if an offset
+     * leaves no rows to fit.
+     */
+    public static WashoutSweep sweep(RealMatrix A, RealMatrix targetTrajectory, int[] offsets, int numberOfTestRows, double noiseAmplitude) {
+        int[] sortedOffsets = offsets.clone();
+        Arrays.sort(sortedOffsets);
+        int testStart = A.getRowDimension() - numberOfTestRows;
+
+        if (numberOfTestRows < 1 || testStart < 1) {
+            throw new IllegalArgumentException("At least one row has to be held out and one row has to be fitted.");
+        }
+
+        if (sortedOffsets.length == 0 || sortedOffsets[0] < 0 || sortedOffsets[sortedOffsets.length - 1] >= testStart) {
+            throw new IllegalArgumentException("Every offset has to leave at least one row of the spring length matrix before the held out rows.");
+        }
+
+        double[][] springLengths = A.getData();
+        double[][] trajectory = targetTrajectory.getData();
+        GramAccumulator accumulator = new GramAccumulator(A.getColumnDimension(), targetTrajectory.getColumnDimension());
+
+        for (int i = sortedOffsets[0]; i < testStart; i++) {
+            accumulator.addRow(springLengths[i], trajectory[i % trajectory.length]);
+        }
+
+        RealMatrix[] weights = new RealMatrix[sortedOffsets.length];
+        ReadoutEvaluation[] evaluations = new ReadoutEvaluation[sortedOffsets.length];
+        int cut = sortedOffsets[0];
+
+        for (int k = 0; k < sortedOffsets.length; k++) {
+            for (; cut < sortedOffsets[k]; cut++) {
+                accumulator.subtractRow(springLengths[cut], trajectory[cut % trajectory.length]);
+            }
+
+            double ridge = Weights.getNoiseRidge(accumulator.getNumberOfRows()) * noiseAmplitude * noiseAmplitude;
+            weights[k] = accumulator.solve(ridge);
+            evaluations[k] = ReadoutEvaluation.evaluate(weights[k].getData(), springLengths, trajectory, testStart);
+        }
+
+        return new WashoutSweep(sortedOffsets, weights, evaluations);
+    }
+
+    /**
+     * @param numberOfRows The number of rows of the recording.
+     * @return The number of last rows which {@link #sweep(String, String, int[])}
+     * holds out for scoring.
+     */
+    public static int getDefaultNumberOfTestRows(int numberOfRows) {
+        return Math.max(1, numberOfRows / TEST_ROWS_DIVISOR);
+    }
+
+    /**
+     * @return The tried offsets, in ascending order.
+     */
+    public int[] getOffsets() {
+        return offsets.clone();
+    }
+
+    /**
+     * @param index The index into {@link #getOffsets()}.
+     * @return The weights for this offset, one row per output.
+     */
+    public RealMatrix getWeights(int index) {
+        return weights[index];
+    }
+
+    /**
+     * @param index The index into {@link #getOffsets()}.
+     * @return The evaluation of the weights for this offset on the held out
+     * rows.
+     */
+    public ReadoutEvaluation getEvaluation(int index) {
+        return evaluations[index];
+    }
+
+    /**
+     * @param index The index into {@link #getOffsets()}.
+     * @return The mean squared error on the held out rows per output for this
+     * offset.
+     */
+    public double[] getErrors(int index) {
+        double[] errors = new double[evaluations[index].getNumberOfOutputs()];
+
+        for (int o = 0; o < errors.length; o++) {
+            errors[o] = evaluations[index].getMse(o);
+        }
+
+        return errors;
+    }
+
+    /**
+     * @return The error curve: the mean squared error on the held out rows,
+     * averaged over all outputs, for every offset.
+     */
+    public double[] getErrorCurve() {
+        double[] curve = new double[offsets.length];
+
+        for (int k = 0; k < offsets.length; k++) {
+            double sum = 0;
+
+            for (double error : getErrors(k)) {
+                sum += error;
+            }
+
+            curve[k] = sum / evaluations[k].getNumberOfOutputs();
+        }
+
+        return curve;
+    }
+
+    /**
+     * @return The index of the offset with the smallest averaged error.
+     */
+    public int getBestIndex() {
+        double[] curve = getErrorCurve();
+        int best = 0;
+
+        for (int k = 1; k < curve.length; k++) {
+            if (curve[k] < curve[best]) {
+                best = k;
+            }
+        }
+
+        return best;
+    }
+
+}
@@ -22,12 +22,18 @@
  */
 package ch.zhaw.iamp.rct.weights;
 
+import java.awt.Component;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JOptionPane;
@@ -42,10 +48,39 @@ import org.apache.commons.math3.linear.SingularValueDecomposition;
  */
 public abstract class Weights {
 
+    /**
+     * The variance of the noise added to A, which is uniform in (-1, 1).
+     */
+    private final static double NOISE_VARIANCE = 1 / 3.0;
+
+    /**
+     * The phases a weights calculation passes through, in this order. They are
+     * reported to a {@link ProgressListener} when entered.
+     */
+    public enum Phase {
+
+        PARSE("Reading the input files"),
+        NOISE("Adding noise"),
+        DECOMPOSE("Decomposing the matrix"),
+        WRITE("Writing the weights");
+
+        private final String description;
+
+        private Phase(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
     /**
      * Calculates a pseudo-inverse using the values in the given files. They are
      * first read, then converted to a matrix, and finally used for the
      * calculation of the inverse, using Singular value decomposition (SVD).
+     * <p>
+     * Problems are reported to the user with an error dialog.
      *
      * @param pathToA The file which contains the matrix A, represented in
      * comma-separated-value format.
@@ -58,99 +93,253 @@ public abstract class Weights {
      */
     public static void calculateWeights(final String pathToA, final String targetTrajectoryFile, final String weightsFile, final int offset) {
         try {
-            RealMatrix A = csvToMatrix(pathToA);
-            // cut first n elements
-            A = A.getSubMatrix(offset, A.getRowDimension() - 1, 0, A.getColumnDimension() - 1);
-            A = addNoise(A);
+            calculateWeights(pathToA, targetTrajectoryFile, weightsFile, offset, null);
+        } catch (IOException | DimensionMismatchException ex) {
+            showCalculationError(null, ex);
+        }
+    }
 
-            RealMatrix b = csvToMatrix(targetTrajectoryFile);
+    /**
+     * Calculates the weights like
+     * {@link #calculateWeights(String, String, String, int)}, but reports the
+     * progress to the given listener and leaves the error handling to the
+     * caller.
+     * <p>
+     * The calculation can be cancelled by interrupting the calling thread. The
+     * interruption is checked between the phases and while reading and
+     * preparing the matrix. The decomposition itself cannot be interrupted.
+     *
+     * @param pathToA The file which contains the matrix A, represented in
+     * comma-separated-value format.
+     * @param targetTrajectoryFile The file which contains the target
+     * trajectory, represented in comma-separated-value format.
+     * @param weightsFile The file, to which the calculated weights should be
+     * written to.
+     * @param offset The numbers of first steps to ignore (to skip fading-memory
+     * initialization steps).
+     * @param listener The listener to inform about entered phases, or null.
+     * @throws IOException If a file could not be read or written.
+     * @throws DimensionMismatchException If the lines of the files do not
+     * posses the same amount of entries.
+     * @throws CancellationException If the calling thread has been interrupted.
+     */
+    public static void calculateWeights(final String pathToA, final String targetTrajectoryFile, final String weightsFile, final int offset, final ProgressListener listener) throws IOException {
+        enterPhase(Phase.PARSE, listener);
+        RealMatrix A = csvToMatrix(pathToA);
+        // cut first n elements
+        A = A.getSubMatrix(offset, A.getRowDimension() - 1, 0, A.getColumnDimension() - 1);
+        RealMatrix b = csvToMatrix(targetTrajectoryFile);
 
-            // adjust b to cutting
-            int n = offset % b.getRowDimension();
+        enterPhase(Phase.NOISE, listener);
+        A = addNoise(A);
 
-            if (n > 0) {
-                RealMatrix tmp = b.getSubMatrix(n, b.getRowDimension() - 1, 0, b.getColumnDimension() - 1);
-                b = b.getSubMatrix(0, n - 1, 0, b.getColumnDimension() - 1);
-                double[][] tmpArray = tmp.getData();
-                double[][] tmpArray2 = b.getData();
-                b = MatrixUtils.createRealMatrix(concat(tmpArray, tmpArray2));
-                tmpArray = b.getData();
+        // adjust b to cutting
+        b = alignTarget(b, offset, A.getRowDimension());
 
-                for (int i = 0; tmpArray.length < A.getRowDimension(); ++i) {
-                    tmpArray2 = new double[1][tmpArray[0].length];
+        enterPhase(Phase.DECOMPOSE, listener);
+        DecompositionSolver solver = new SingularValueDecomposition(A).getSolver();
+        RealMatrix x = solver.solve(b).transpose();
 
-                    for (int j = 0; j < tmpArray[i].length; ++j) {
-                        tmpArray2[0][j] = tmpArray[i][j];
-                    }
+        enterPhase(Phase.WRITE, listener);
+        matrixToCsv(x, weightsFile);
+    }
 
-                    tmpArray = concat(tmpArray, tmpArray2);
-                }
+    /**
+     * Calculates the weights like
+     * {@link #calculateWeights(String, String, String, int, ProgressListener)},
+     * but with a stored factorization, and with the ridge equivalent to the
+     * noise instead of random noise. If a factorization of the given
+     * recording and offset has been stored next to the recording before, it
+     * is reused and only a few matrix multiplications are needed, for any
+     * target and noise amplitude. Otherwise, or if the stored one cannot be
+     * read, it is calculated and stored.
+     *
+     * @param pathToA The file which contains the matrix A, represented in
+     * comma-separated-value format.
+     * @param targetTrajectoryFile The file which contains the target
+     * trajectory, represented in comma-separated-value format.
+     * @param weightsFile The file, to which the calculated weights should be
+     * written to.
+     * @param offset The numbers of first steps to ignore (to skip fading-memory
+     * initialization steps).
+     * @param noiseAmplitude The amplitude of the uniform noise whose ridge
+     * equivalent is applied, 1 for the noise of the other calculations.
+     * @param listener The listener to inform about entered phases, or null.
+     * @throws IOException If a file could not be read or written.
+     * @throws DimensionMismatchException If the lines of the files do not
+     * posses the same amount of entries.
+     * @throws CancellationException If the calling thread has been interrupted.
+     * @see WeightsFactorization
+     */
+    public static void calculateWeights(final String pathToA, final String targetTrajectoryFile, final String weightsFile, final int offset, final double noiseAmplitude, final ProgressListener listener) throws IOException {
+        enterPhase(Phase.PARSE, listener);
+        RealMatrix b = csvToMatrix(targetTrajectoryFile);
+        File recording = new File(pathToA);
+        File factorizationFile = WeightsFactorization.getDefaultFile(pathToA, offset);
+        WeightsFactorization factorization;
 
-                b = MatrixUtils.createRealMatrix(tmpArray);
-            }
+        try {
+            factorization = WeightsFactorization.load(factorizationFile, recording);
+        } catch (IOException ex) {
+            Logger.getLogger(Weights.class.getName()).log(Level.WARNING, "The stored factorization is recalculated: {0}", ex.getMessage());
+            factorization = null;
+        }
 
-            DecompositionSolver solver = new SingularValueDecomposition(A).getSolver();
-            RealMatrix x = solver.solve(b).transpose();
-            matrixToCsv(x, weightsFile);
+        if (factorization == null) {
+            RealMatrix A = csvToMatrix(pathToA);
+            enterPhase(Phase.DECOMPOSE, listener);
+            factorization = WeightsFactorization.compute(A, offset);
+            factorization.save(factorizationFile, recording);
+        }
 
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(null, "Could not read a file: " + ex.getMessage(), "File Error", JOptionPane.ERROR_MESSAGE);
-            Logger.getLogger(Weights.class.getName()).log(Level.WARNING, "Could not read a file: {0}", ex);
-        } catch (DimensionMismatchException ex) {
-            JOptionPane.showMessageDialog(null, "<html>Could not calculate the "
+        enterPhase(Phase.WRITE, listener);
+        int rows = factorization.getNumberOfRows();
+        matrixToCsv(factorization.solve(b, getNoiseRidge(rows) * noiseAmplitude * noiseAmplitude), weightsFile);
+    }
+
+    /**
+     * Calculates the ridge which regularizes the normal equations like the
+     * noise added by {@link #calculateWeights(String, String, String, int)}:
+     * in expectation, the noise adds its variance times the number of rows to
+     * the diagonal of AᵀA.
+     *
+     * @param numberOfRows The number of rows of A after the offset.
+     * @return The equivalent ridge.
+     */
+    public static double getNoiseRidge(int numberOfRows) {
+        return numberOfRows * NOISE_VARIANCE;
+    }
+
+    private static void enterPhase(Phase phase, ProgressListener listener) {
+        checkForCancellation();
+
+        if (listener != null) {
+            listener.phaseStarted(phase);
+        }
+    }
+
+    private static void checkForCancellation() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("The weights calculation has been cancelled.");
+        }
+    }
+
+    /**
+     * Shows an error dialog that explains why a weights calculation failed and
+     * logs the problem. This has to be invoked on the Event Dispatch Thread.
+     *
+     * @param parent The component the dialog belongs to, or null.
+     * @param ex The exception thrown by the calculation.
+     */
+    public static void showCalculationError(Component parent, Exception ex) {
+        if (ex instanceof DimensionMismatchException) {
+            JOptionPane.showMessageDialog(parent, "<html>Could not calculate the "
                     + "pseudo-inverse since a dimension mismatch occurred.<br />"
                     + "Please make sure that all lines of the CSV file posses "
                     + "the same amount of entries.<br />Hint: Remove the last "
                     + "line and try it again.</html>", "Matrix Dimension Mismatch", JOptionPane.ERROR_MESSAGE);
             Logger.getLogger(Weights.class.getName()).log(Level.WARNING, "A dimension mismatch occurred: {0}", ex);
+        } else if (ex instanceof IOException) {
+            JOptionPane.showMessageDialog(parent, "Could not read a file: " + ex.getMessage(), "File Error", JOptionPane.ERROR_MESSAGE);
+            Logger.getLogger(Weights.class.getName()).log(Level.WARNING, "Could not read a file: {0}", ex);
+        } else {
+            JOptionPane.showMessageDialog(parent, "An error occurred: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            Logger.getLogger(Weights.class.getName()).log(Level.WARNING, "The weights calculation failed: {0}", ex);
         }
     }
 
-    private static void matrixToCsv(final RealMatrix matrix, final String targetFilePath) throws IOException {
-        Writer out = new FileWriter(targetFilePath);
+    /**
+     * Aligns the target trajectory to a spring length matrix, of which the
+     * first {@code offset} rows have been cut. The trajectory is repeated
+     * cyclically, so row {@code i} of the original spring length matrix
+     * corresponds to the trajectory row {@code i % b.getRowDimension()}.
+     *
+     * @param b The target trajectory, one row per step.
+     * @param offset The number of cut rows.
+     * @param rows The number of rows of the cut spring length matrix.
+     * @return The aligned target with {@code rows} rows.
+     */
+    static RealMatrix alignTarget(final RealMatrix b, final int offset, final int rows) {
+        double[][] trajectory = b.getData();
+        double[][] aligned = new double[rows][];
+
+        for (int i = 0; i < rows; ++i) {
+            aligned[i] = trajectory[(offset + i) % trajectory.length].clone();
+        }
 
-        for (int i = 0; i < matrix.getRowDimension(); ++i) {
-            for (int j = 0; j < matrix.getColumnDimension(); ++j) {
-                out.append("" + matrix.getEntry(i, j));
-                if (j < matrix.getColumnDimension() - 1) {
-                    out.append(",");
+        return MatrixUtils.createRealMatrix(aligned);
+    }
+
+    /**
+     * Writes a matrix in comma-separated-value format, one line per row, as
+     * read by {@link #csvToMatrix(String)}.
+     *
+     * @param matrix The matrix to write.
+     * @param targetFilePath The file to write.
+     * @throws IOException If the file could not be written.
+     */
+    public static void matrixToCsv(final RealMatrix matrix, final String targetFilePath) throws IOException {
+        try (Writer out = new FileWriter(targetFilePath)) {
+            for (int i = 0; i < matrix.getRowDimension(); ++i) {
+                for (int j = 0; j < matrix.getColumnDimension(); ++j) {
+                    out.append("" + matrix.getEntry(i, j));
+                    if (j < matrix.getColumnDimension() - 1) {
+                        out.append(",");
+                    }
                 }
+                out.append("\n");
             }
-            out.append("\n");
-            out.flush();
         }
-
     }
 
-    private static RealMatrix csvToMatrix(final String sourceFilePath) throws IOException {
-        BufferedReader in = new BufferedReader(new FileReader(sourceFilePath));
-        double[][] matrixArray = null;
+    /**
+     * Reads a matrix, represented in comma-separated-value format. Empty lines
+     * and lines starting with {@code #} are skipped, empty values are read as
+     * zero.
+     *
+     * @param sourceFilePath The file to read.
+     * @return The read matrix, one row per line.
+     * @throws IOException If the file could not be read.
+     */
+    public static RealMatrix csvToMatrix(final String sourceFilePath) throws IOException {
+        List<double[]> rows = new ArrayList<>();
 
-        while (in.ready()) {
+        try (BufferedReader in = new BufferedReader(new FileReader(sourceFilePath))) {
             String currentLine = in.readLine();
 
-            if (currentLine.startsWith("#") || currentLine.trim().isEmpty()) {
-                continue;
-            }
+            for (; currentLine != null; currentLine = in.readLine()) {
+                checkForCancellation();
 
-            String[] tokens = currentLine.split(",");
+                if (currentLine.startsWith("#") || currentLine.trim().isEmpty()) {
+                    continue;
+                }
 
-            if (matrixArray == null) {
-                matrixArray = new double[0][tokens.length];
+                rows.add(parseCsvLine(currentLine));
             }
+        }
 
-            double[][] tmpArray = new double[1][tokens.length];
+        return MatrixUtils.createRealMatrix(rows.toArray(new double[rows.size()][]));
+    }
 
-            for (int i = 0; i < tokens.length; ++i) {
-                if (!tokens[i].trim().isEmpty()) {
-                    tmpArray[0][i] = Double.parseDouble(tokens[i]);
-                }
-            }
+    /**
+     * Parses one line of a matrix in comma-separated-value format, as
+     * {@link #csvToMatrix(String)} does. Empty values are read as zero.
+     *
+     * @param line The line, without line terminator.
+     * @return The values of the line.
+     * @throws NumberFormatException If a value is not a number.
+     */
+    public static double[] parseCsvLine(final String line) {
+        String[] tokens = line.split(",");
+        double[] row = new double[tokens.length];
 
-            matrixArray = concat(matrixArray, tmpArray);
+        for (int i = 0; i < tokens.length; ++i) {
+            if (!tokens[i].trim().isEmpty()) {
+                row[i] = Double.parseDouble(tokens[i]);
+            }
         }
 
-        return MatrixUtils.createRealMatrix(matrixArray);
+        return row;
     }
 
     public static double[][] concat(final double[][] first, final double[][] second) {
@@ -160,14 +349,20 @@ public abstract class Weights {
     }
 
     private static RealMatrix addNoise(final RealMatrix A) {
+        return addNoise(A, new Random());
+    }
+
+    static RealMatrix addNoise(final RealMatrix A, final Random random) {
         RealMatrix buffer = A.copy();
         RealMatrix noise = MatrixUtils.createRealMatrix(A.getRowDimension(), A.getColumnDimension());
 
         for (int i = 0; i < A.getRowDimension(); ++i) {
+            checkForCancellation();
+
             for (int j = 0; j < A.getColumnDimension(); ++j) {
-                double noiseSign = Math.random() > 0.5 ? 1 : -1;
+                double noiseSign = random.nextDouble() > 0.5 ? 1 : -1;
                 double noiseAmplitude = 1;
-                noise.setEntry(i, j, noiseSign * Math.random() * noiseAmplitude);
+                noise.setEntry(i, j, noiseSign * random.nextDouble() * noiseAmplitude);
             }
         }
 
@@ -0,0 +1,329 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+
+/**
+ * A {@link WeightsFactorization} holds the singular value decomposition of a
+ * spring length matrix A, after the first {@code offset} rows have been cut.
+ * Once calculated, it can be stored next to the recording, so weights for
+ * further target trajectories can be calculated with two matrix
+ * multiplications instead of a complete decomposition.
+ * <p>
+ * No noise is added to the decomposed matrix. Instead, it is applied as the
+ * ridge it is equivalent to, with the filter factors {@code s / (s² + ridge)}
+ * in place of {@code 1 / s}. So the weights for another noise amplitude do
+ * not need a new decomposition either, and one file per offset suffices.
+ * <p>
+ * Only the singular values above the tolerance of the decomposition and the
+ * corresponding singular vectors are kept. With a ridge of 0, solving gives
+ * the same result as the pseudo-inverse of the cut matrix.
+ * <p>
+ * A stored factorization holds a hash of the recording it has been
+ * calculated from, so it is only used for exactly this recording.
+ */
+public class WeightsFactorization {
+
+    public final static String FILE_ENDING = ".svd";
+    final static int FILE_MAGIC_NUMBER = 0x52435446;
+    final static int FILE_VERSION = 2;
+    private final static int HASH_LENGTH = 32;
+    private final static int HEADER_LENGTH = 6 * 4 + HASH_LENGTH;
+    private final static int BUFFER_SIZE = 64 * 1024;
+    private final int offset;
+    private final double[] singularValues;
+    private final double[][] u;
+    private final double[][] v;
+
+    WeightsFactorization(int offset, double[] singularValues, double[][] u, double[][] v) {
+        this.offset = offset;
+        this.singularValues = singularValues;
+        this.u = u;
+        this.v = v;
+    }
+
+    /**
+     * Decomposes the given spring lengths, after cutting the first
+     * {@code offset} rows.
+     *
+     * @param A The spring lengths, one row per step.
+     * @param offset The numbers of first steps to ignore.
+     * @return The new factorization.
+     */
+    public static WeightsFactorization compute(RealMatrix A, int offset) {
+        RealMatrix cut = A.getSubMatrix(offset, A.getRowDimension() - 1, 0, A.getColumnDimension() - 1);
+        SingularValueDecomposition svd = new SingularValueDecomposition(cut);
+        int rank = svd.getRank();
+
+        return new WeightsFactorization(offset,
+                firstColumns(new double[][]{svd.getSingularValues()}, rank)[0],
+                firstColumns(svd.getU().getData(), rank),
+                firstColumns(svd.getV().getData(), rank));
+    }
+
+    private static double[][] firstColumns(double[][] matrix, int columns) {
+        double[][] result = new double[matrix.length][columns];
+
+        for (int i = 0; i < matrix.length; i++) {
+            System.arraycopy(matrix[i], 0, result[i], 0, columns);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param pathToA The file which contains the spring lengths.
+     * @param offset The numbers of first steps to ignore.
+     * @return The file next to the recording, in which the factorization for
+     * the given offset is stored.
+     */
+    public static File getDefaultFile(String pathToA, int offset) {
+        return new File(pathToA + "." + offset + FILE_ENDING);
+    }
+
+    /**
+     * Calculates the weights for the given target trajectory, regularized
+     * like {@link Weights#calculateWeights(String, String, String, int)} by
+     * its noise. The trajectory is aligned to the cut rows as in
+     * {@link Weights}.
+     *
+     * @param targetTrajectory The target trajectory, one row per step.
+     * @return The weights, one row per output and one column per spring.
+     */
+    public RealMatrix solve(RealMatrix targetTrajectory) {
+        return solve(targetTrajectory, Weights.getNoiseRidge(u.length));
+    }
+
+    /**
+     * Calculates the weights for the given target trajectory, which minimize
+     * {@code |A x - b|² + ridge |x|²}. The trajectory is aligned to the cut
+     * rows as in {@link Weights}.
+     *
+     * @param targetTrajectory The target trajectory, one row per step.
+     * @param ridge The non-negative regularization factor.
+     * @return The weights, one row per output and one column per spring.
+     */
+    public RealMatrix solve(RealMatrix targetTrajectory, double ridge) {
+        double[][] b = Weights.alignTarget(targetTrajectory, offset, u.length).getData();
+        int rank = singularValues.length;
+        int outputs = b[0].length;
+        double[][] projection = new double[rank][outputs];
+
+        for (int i = 0; i < u.length; i++) {
+            double[] uRow = u[i];
+            double[] bRow = b[i];
+
+            for (int k = 0; k < rank; k++) {
+                for (int o = 0; o < outputs; o++) {
+                    projection[k][o] += uRow[k] * bRow[o];
+                }
+            }
+        }
+
+        double[] filterFactors = new double[rank];
+
+        for (int k = 0; k < rank; k++) {
+            double value = singularValues[k];
+            filterFactors[k] = value / (value * value + ridge);
+        }
+
+        double[][] weights = new double[outputs][v.length];
+
+        for (int j = 0; j < v.length; j++) {
+            for (int k = 0; k < rank; k++) {
+                double factor = v[j][k] * filterFactors[k];
+
+                for (int o = 0; o < outputs; o++) {
+                    weights[o][j] += factor * projection[k][o];
+                }
+            }
+        }
+
+        return MatrixUtils.createRealMatrix(weights);
+    }
+
+    /**
+     * Writes this factorization to the given file, together with the hash of
+     * the recording it has been calculated from.
+     *
+     * @param file The target file.
+     * @param recording The file which contains the spring lengths.
+     * @throws IOException If the recording could not be read or the file
+     * could not be written.
+     */
+    public void save(File file, File recording) throws IOException {
+        byte[] hash = computeHash(recording);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_MAGIC_NUMBER);
+            out.writeInt(FILE_VERSION);
+            out.write(hash);
+            out.writeInt(u.length);
+            out.writeInt(v.length);
+            out.writeInt(singularValues.length);
+            out.writeInt(offset);
+
+            for (double value : singularValues) {
+                out.writeDouble(value);
+            }
+
+            writeMatrix(out, u);
+            writeMatrix(out, v);
+        }
+    }
+
+    private static void writeMatrix(DataOutputStream out, double[][] matrix) throws IOException {
+        for (double[] row : matrix) {
+            for (double value : row) {
+                out.writeDouble(value);
+            }
+        }
+    }
+
+    /**
+     * Reads a factorization from the given file, if it has been calculated
+     * from the given recording in its current state.
+     *
+     * @param file The file written by {@link #save(File, File)}.
+     * @param recording The file which contains the spring lengths.
+     * @return The read factorization, or null if the file does not exist or
+     * belongs to another recording.
+     * @throws IOException If a file could not be read, or the factorization
+     * file is invalid or incomplete.
+     */
+    public static WeightsFactorization load(File file, File recording) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC_NUMBER || in.readInt() != FILE_VERSION) {
+                throw new IOException("The file '" + file + "' does not contain a factorization of this version.");
+            }
+
+            byte[] hash = new byte[HASH_LENGTH];
+            in.readFully(hash);
+
+            if (!Arrays.equals(hash, computeHash(recording))) {
+                return null;
+            }
+
+            int rows = in.readInt();
+            int columns = in.readInt();
+            int rank = in.readInt();
+            int offset = in.readInt();
+
+            if (rows < 0 || columns < 0 || rank < 0 || rank > Math.min(rows, columns)
+                    || file.length() != HEADER_LENGTH + 8L * rank * (1L + rows + columns)) {
+                throw new IOException("The factorization in the file '" + file + "' is invalid or incomplete.");
+            }
+
+            double[] singularValues = new double[rank];
+
+            for (int k = 0; k < rank; k++) {
+                singularValues[k] = in.readDouble();
+            }
+
+            double[][] u = readMatrix(in, rows, rank);
+            double[][] v = readMatrix(in, columns, rank);
+
+            return new WeightsFactorization(offset, singularValues, u, v);
+        }
+    }
+
+    private static double[][] readMatrix(DataInputStream in, int rows, int columns) throws IOException {
+        double[][] matrix = new double[rows][columns];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                matrix[i][j] = in.readDouble();
+            }
+        }
+
+        return matrix;
+    }
+
+    private static byte[] computeHash(File recording) throws IOException {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available: " + ex.getMessage());
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (InputStream in = new FileInputStream(recording)) {
+            int count = in.read(buffer);
+
+            while (count != -1) {
+                digest.update(buffer, 0, count);
+                count = in.read(buffer);
+            }
+        }
+
+        return digest.digest();
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return The number of kept singular values.
+     */
+    public int getRank() {
+        return singularValues.length;
+    }
+
+    /**
+     * @return The number of rows of the decomposed matrix, after cutting.
+     */
+    public int getNumberOfRows() {
+        return u.length;
+    }
+
+    /**
+     * @return The number of springs of the decomposed matrix.
+     */
+    public int getNumberOfSprings() {
+        return v.length;
+    }
+
+}
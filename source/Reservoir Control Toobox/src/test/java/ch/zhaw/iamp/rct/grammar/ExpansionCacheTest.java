@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.grammar;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class ExpansionCacheTest {
+
+    private List<Rule> rules;
+    private ExpansionCache cache;
+
+    @Before
+    public void setUp() {
+        rules = new LinkedList<>(Arrays.asList(new Rule("A", "aB"), new Rule("B", "bb"), new Rule("D", "DD"), new Rule("E", "e1")));
+        cache = new ExpansionCache(new RuleTable(rules));
+    }
+
+    @Test
+    public void testGetSymbol() {
+        assertEquals("A", cache.getSymbol('A', 0));
+        assertEquals("aB", cache.getSymbol('A', 1));
+        assertEquals("abb", cache.getSymbol('A', 3));
+        assertSame(cache.getSymbol('A', 3), cache.getSymbol('A', 3));
+        assertEquals("c", cache.getSymbol('c', 3));
+    }
+
+    @Test
+    public void testGetSymbolOnLongExpansion() {
+        assertEquals(1024, cache.getSymbol('D', 10).length());
+        assertNull(cache.getSymbol('D', 11));
+        assertNull(cache.getSymbol('A', ExpansionCache.MAX_CACHED_ROUNDS + 1));
+    }
+
+    @Test
+    public void testGetSymbolOnProducedUnknownSymbol() {
+        assertEquals("e1", cache.getSymbol('E', 1));
+        assertNull(cache.getSymbol('E', 2));
+    }
+
+    @Test
+    public void testGetBody() {
+        InitialisationParser parser = new InitialisationParser(new GrammarParser());
+        Initialisation initialisation = parser.parseInitialisation("A(2){AB}");
+        Initialisation.Loop loop = (Initialisation.Loop) initialisation.getElements().get(1);
+        assertEquals("abbbb", cache.getBody(loop.body, 1));
+        Initialisation.Loop sameLoop = (Initialisation.Loop) parser.parseInitialisation("(2){AB}").getElements().get(0);
+        assertSame(cache.getBody(loop.body, 1), cache.getBody(sameLoop.body, 1));
+    }
+
+    @Test
+    public void testForRules() {
+        assertSame(cache, ExpansionCache.forRules(cache, new LinkedList<>(rules)));
+        rules.add(0, new Rule("B", "b"));
+        assertNotSame(cache, ExpansionCache.forRules(cache, rules));
+        assertNotNull(ExpansionCache.forRules(null, rules));
+    }
+
+}
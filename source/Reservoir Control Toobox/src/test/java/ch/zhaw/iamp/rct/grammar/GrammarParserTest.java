@@ -197,6 +197,28 @@ public class GrammarParserTest {
         assertEquals(3, parser.getErrors().size());
     }
 
+    @Test
+    public void testOnErrorsReportsLineIndices() {
+        parser.parse("shoulder 0 1\n"
+                + "randomMasses many\n"
+                + "\n"
+                + "createMass A [1, ]\n"
+                + "elbow 0 11");
+        assertEquals(2, parser.getErrors().size());
+        assertEquals(1, parser.getErrors().get(0).getLineIndex());
+        assertEquals(3, parser.getErrors().get(1).getLineIndex());
+    }
+
+    @Test
+    public void testGetKeywordOfLineOnMalformedValues() {
+        assertNull(GrammarParser.getKeywordOfLine("shoulderx 1 2"));
+        assertNull(GrammarParser.getKeywordOfLine("createMass AB [1, 2]"));
+        assertNull(GrammarParser.getKeywordOfLine("expansionRangeX [1, 2] 3"));
+        assertNull(GrammarParser.getKeywordOfLine("productionRules A->a B->"));
+        assertEquals(createSpring, GrammarParser.getKeywordOfLine(" \tcreateSpring\tC [ -1.5 ,2. ] "));
+        assertEquals(randomSprings, GrammarParser.getKeywordOfLine("randomSprings about 12 springs"));
+    }
+
     @Test
     public void testParseMassesOnNoMasses() {
         List<Mass> masses = GrammarParser.parseMasses("");
@@ -80,7 +80,6 @@ public class GraphDeveloperTest {
     @Test
     public void testConstructor() {
         assertSame(grammar, developer.grammar);
-        assertEquals(developedInit, developer.developedInit);
         assertNotNull(developer.errors);
     }
 
@@ -172,6 +171,20 @@ public class GraphDeveloperTest {
         assertEquals(10, result.getMax(), DELTA);
     }
 
+    @Test
+    public void testDevelopOnSymbols() {
+        grammar.getMassCreations().put("A", new Range(1, 2));
+        grammar.productionRules.add(new Rule("B", "AA"));
+        InitialisationParser initialisation = new InitialisationParser(grammar);
+        initialisation.parse("(2){BB}");
+
+        developer = new GraphDeveloper(grammar, initialisation.symbols(Long.MAX_VALUE));
+        grammar.options.add(GrammarParser.Option.showNotConnectedMasses);
+        developer.develop();
+        assertEquals(4, grammar.getGraph().getNetworkMasses().size());
+        assertFalse(developer.symbols.hasNext());
+    }
+
     @Test
     public void testGetErrors() {
         assertSame(developer.errors, developer.getErrors());
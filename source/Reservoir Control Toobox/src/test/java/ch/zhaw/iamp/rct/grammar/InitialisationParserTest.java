@@ -22,6 +22,8 @@
  */
 package ch.zhaw.iamp.rct.grammar;
 
+import java.util.Iterator;
+import java.util.Map;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import org.junit.Before;
@@ -72,4 +74,148 @@ public class InitialisationParserTest {
         assertEquals(InitialisationParser.TOO_LONG_OUTPUT_TEXT, parser.getOutputString());
     }
 
+    @Test
+    public void testParseNestedLoops() {
+        parser.parse("(2){A(3){D}}");
+        assertEquals("a" + repeat("D", 16), parser.getOutputString());
+        assertFalse(parser.hasErrors());
+    }
+
+    @Test
+    public void testParseOnLongOutput() {
+        parser = new InitialisationParser(grammar, 2000000);
+        parser.parse("(20){D}");
+        assertEquals(1 << 20, parser.getOutputString().length());
+        assertFalse(parser.hasErrors());
+
+        parser.parse("(21){D}");
+        assertEquals(InitialisationParser.TOO_LONG_OUTPUT_TEXT, parser.getOutputString());
+    }
+
+    @Test(timeout = 5000)
+    public void testParseOnSingleSymbolCycle() {
+        grammar = new GrammarParser();
+        grammar.productionRules.add(new Rule("A", "B"));
+        grammar.productionRules.add(new Rule("B", "A"));
+        grammar.productionRules.add(new Rule("C", "D"));
+        grammar.productionRules.add(new Rule("D", "cA"));
+        parser = new InitialisationParser(grammar);
+
+        parser.parse("(2147483647){A}(2147483646){A}");
+        assertEquals("BA", parser.getOutputString());
+        parser.parse("(5){C}");
+        assertEquals("cB", parser.getOutputString());
+        assertEquals(parser.getOutputString().length(), parser.getInitialisation().getLength(grammar));
+    }
+
+    @Test
+    public void testParseOnDeeplyNestedLoops() {
+        parser.parse(repeat("(1){", 5000) + "A" + repeat("}", 5000) + "B");
+        assertEquals("abb", parser.getOutputString());
+        assertEquals(1, parser.getErrors().size());
+
+        parser.parse(repeat("(1){", InitialisationParser.MAXIMAL_LOOP_DEPTH) + "A" + repeat("}", InitialisationParser.MAXIMAL_LOOP_DEPTH));
+        assertEquals("a", parser.getOutputString());
+        assertFalse(parser.hasErrors());
+    }
+
+    @Test
+    public void testParseOnUnknownSymbols() {
+        parser.parse("A 1}");
+        assertEquals(3, parser.getErrors().size());
+        assertEquals("a 1}", parser.getOutputString());
+
+        grammar.productionRules.add(new Rule("E", "e1"));
+        parser.parse("E");
+        assertFalse(parser.hasErrors());
+        parser.parse("(2){E}");
+        assertEquals(1, parser.getErrors().size());
+    }
+
+    @Test
+    public void testSymbols() {
+        parser.parse("A(2){BC}ABbaBB");
+        assertEquals(parser.getOutputString(), join(parser.symbols(Long.MAX_VALUE)));
+
+        parser.parse("a(12){D}");
+        assertEquals(InitialisationParser.TOO_LONG_OUTPUT_TEXT, parser.getOutputString());
+        Iterator<Character> symbols = parser.symbols(Long.MAX_VALUE);
+        assertEquals('a', symbols.next().charValue());
+        assertEquals(1 << 12, join(symbols).length());
+        assertFalse(parser.hasErrors());
+    }
+
+    @Test
+    public void testSymbolsOnLimit() {
+        parser.parse("a(12){D}");
+        assertEquals(1 + (1 << 12), join(parser.symbols(1 + (1 << 12))).length());
+        assertFalse(parser.hasErrors());
+
+        assertEquals(10, join(parser.symbols(10)).length());
+        assertEquals(1, parser.getErrors().size());
+    }
+
+    @Test
+    public void testSymbolsReportsUnknownSymbols() {
+        grammar.productionRules.add(new Rule("E", "e1"));
+        parser.parse("(2){E}");
+        parser.getErrors().clear();
+
+        assertEquals("e1", join(parser.symbols(Long.MAX_VALUE)));
+        assertEquals(1, parser.getErrors().size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSymbolsBeforeParse() {
+        parser.symbols(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testCountSymbols() {
+        parser.parse("A(2){BC}ABbaBB");
+        Initialisation initialisation = parser.getInitialisation();
+        assertEquals(parser.getOutputString().length(), initialisation.getLength(grammar));
+
+        Map<Character, Long> counts = initialisation.countSymbols(grammar);
+        assertEquals(2, counts.size());
+        assertEquals(3, counts.get('a').longValue());
+        assertEquals(13, counts.get('b').longValue());
+    }
+
+    @Test
+    public void testGetLengthOnUnknownSymbolsAndNestedLoops() {
+        parser.parse("A 1(2){A(3){D}}");
+        assertEquals(parser.getOutputString().length(), parser.getInitialisation().getLength(grammar));
+    }
+
+    @Test
+    public void testGetLengthOnOverflow() {
+        parser.parse("(62){D}");
+        assertEquals(1L << 62, parser.getInitialisation().getLength(grammar));
+
+        parser.parse("(63){D}D(2000000000){D}");
+        assertEquals(Long.MAX_VALUE, parser.getInitialisation().getLength(grammar));
+        assertEquals(InitialisationParser.TOO_LONG_OUTPUT_TEXT, parser.getOutputString());
+    }
+
+    private static String join(Iterator<Character> symbols) {
+        StringBuilder builder = new StringBuilder();
+
+        while (symbols.hasNext()) {
+            builder.append(symbols.next());
+        }
+
+        return builder.toString();
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < times; i++) {
+            builder.append(s);
+        }
+
+        return builder.toString();
+    }
+
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.grammar;
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RuleTableTest {
+
+    @Test
+    public void testGetReplacement() {
+        RuleTable table = new RuleTable(Arrays.asList(new Rule("A", "aB"), new Rule("B", "b")));
+        assertEquals("aB", table.getReplacement('A'));
+        assertEquals("b", table.getReplacement('B'));
+        assertNull(table.getReplacement('C'));
+        assertNull(table.getReplacement('1'));
+        assertNull(table.getReplacement('ä'));
+    }
+
+    @Test
+    public void testGetReplacementOnFirstRule() {
+        RuleTable table = new RuleTable(Arrays.asList(new Rule("A", "A"), new Rule("A", "b")));
+        assertNull(table.getReplacement('A'));
+    }
+
+    @Test
+    public void testGetReplacementOnLongSearch() {
+        RuleTable table = new RuleTable(Arrays.asList(new Rule("AB", "a"), new Rule("_", "b")));
+        assertNull(table.getReplacement('A'));
+        assertNull(table.getReplacement('_'));
+    }
+
+    @Test
+    public void testEquals() {
+        RuleTable table = new RuleTable(Arrays.asList(new Rule("A", "a")));
+        assertEquals(table, new RuleTable(Arrays.asList(new Rule("A", "a"), new Rule("A", "b"))));
+        assertEquals(table.hashCode(), new RuleTable(Arrays.asList(new Rule("A", "a"))).hashCode());
+        assertFalse(table.equals(new RuleTable(Arrays.asList(new Rule("A", "b")))));
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class AdaptiveSimulatorTest {
+
+    private final double DELTA = 0.00001;
+    private NetworkGraph graph;
+    private SimulationParameters parameters;
+
+    @Before
+    public void setUp() {
+        graph = MassSpringSimulatorTest.createGraph();
+        parameters = new SimulationParameters();
+    }
+
+    @Test
+    public void testSimulateOnRestingArm() {
+        AdaptiveSimulator simulator = new AdaptiveSimulator(graph, parameters);
+        RealMatrix springLengths = simulator.simulate(MatrixUtils.createRealMatrix(20, 2));
+
+        assertEquals(20, springLengths.getRowDimension());
+        assertEquals(8, springLengths.getColumnDimension());
+        assertEquals(Math.sqrt(16 + 4), springLengths.getEntry(19, 0), DELTA);
+        assertEquals(0, simulator.getNumberOfRejectedSteps());
+        assertTrue(simulator.getNumberOfSteps() <= 20 + 2);
+    }
+
+    @Test
+    public void testSimulateEqualsFixedTimeSteps() {
+        RealMatrix trajectory = MassSpringSimulatorTest.createTrajectory(200);
+        parameters.setTimeStep(0.00001);
+        parameters.setStepsPerSample(1000);
+        RealMatrix expected = new MassSpringSimulator(graph, parameters).simulate(trajectory);
+        AdaptiveSimulator simulator = new AdaptiveSimulator(new CompiledNetwork(graph, parameters), parameters, 1e-10);
+        RealMatrix springLengths = simulator.simulate(trajectory);
+
+        for (int i = 0; i < expected.getRowDimension(); i++) {
+            assertArrayEquals(expected.getRow(i), springLengths.getRow(i), 0.005);
+        }
+    }
+
+    @Test
+    public void testSimulateTakesFewStepsWhileCalm() {
+        RealMatrix trajectory = MatrixUtils.createRealMatrix(1000, 2);
+        trajectory.setSubMatrix(MassSpringSimulatorTest.createTrajectory(50).scalarMultiply(0.1).getData(), 0, 0);
+        parameters.setDamping(5);
+        AdaptiveSimulator simulator = new AdaptiveSimulator(graph, parameters);
+        RealMatrix springLengths = simulator.simulate(trajectory);
+        RealMatrix expected = new MassSpringSimulator(graph, parameters).simulate(trajectory);
+
+        assertTrue(simulator.getNumberOfSteps() < 1000 * parameters.getStepsPerSample() / 3);
+        assertEquals(expected.getEntry(999, 0), springLengths.getEntry(999, 0), 0.001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorOnZeroTolerance() {
+        new AdaptiveSimulator(new CompiledNetwork(graph, parameters), parameters, 0);
+    }
+
+}
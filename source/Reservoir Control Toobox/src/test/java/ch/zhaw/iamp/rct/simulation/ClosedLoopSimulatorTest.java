@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ClosedLoopSimulatorTest {
+
+    private final double DELTA = 0.00001;
+    private NetworkGraph graph;
+    private SimulationParameters parameters;
+    private RealMatrix trajectory;
+    private RealMatrix weights;
+
+    @Before
+    public void setUp() {
+        graph = MassSpringSimulatorTest.createGraph();
+        parameters = new SimulationParameters();
+        trajectory = MassSpringSimulatorTest.createTrajectory(200);
+        GramSink sink = new GramSink(8, trajectory, 20);
+        new MassSpringSimulator(graph, parameters).simulate(trajectory, sink);
+        weights = sink.getAccumulator().solve(1e-6);
+    }
+
+    @Test
+    public void testSimulateInLearningPhaseEqualsOfflineReadout() {
+        ClosedLoopSimulator simulator = new ClosedLoopSimulator(new MassSpringSimulator(graph, parameters), weights);
+        RealMatrix readout = simulator.simulate(trajectory, trajectory, 20, true, null);
+        RealMatrix springLengths = new MassSpringSimulator(graph, parameters).simulate(trajectory);
+        RealMatrix expected = springLengths.multiply(weights.transpose());
+        double sumOfSquaredErrors = 0;
+
+        for (int i = 0; i < 200; i++) {
+            assertArrayEquals(expected.getRow(i), readout.getRow(i), DELTA);
+
+            if (i >= 20) {
+                double error = readout.getEntry(i, 0) - trajectory.getEntry(i, 0);
+                sumOfSquaredErrors += error * error;
+            }
+        }
+
+        assertEquals(sumOfSquaredErrors / 180, simulator.getMeanSquaredError(0), DELTA);
+    }
+
+    @Test
+    public void testSimulateInExecutionPhase() {
+        ClosedLoopSimulator simulator = new ClosedLoopSimulator(new MassSpringSimulator(graph, parameters), weights);
+        RealMatrix learning = simulator.simulate(trajectory, trajectory, 20, true, null);
+        RealMatrix execution = simulator.simulate(trajectory, trajectory, 20, false, null);
+
+        for (int i = 0; i <= 20; i++) {
+            assertArrayEquals(learning.getRow(i), execution.getRow(i), DELTA);
+        }
+
+        assertFalse(Double.isNaN(simulator.getMeanSquaredError(0)));
+        assertFalse(Double.isNaN(simulator.getMeanSquaredError(1)));
+    }
+
+    @Test
+    public void testSimulateInformsListener() {
+        ClosedLoopSimulator simulator = new ClosedLoopSimulator(new MassSpringSimulator(graph, parameters), weights);
+        final int[] calls = new int[2];
+        simulator.simulate(trajectory, trajectory, 20, false, new ReadoutListener() {
+            @Override
+            public boolean readoutCalculated(int sample, double[] readout, double[] target, double[] meanSquaredErrors) {
+                assertEquals(calls[0]++, sample);
+                assertEquals(2, readout.length);
+
+                if (Double.isNaN(meanSquaredErrors[0])) {
+                    calls[1]++;
+                }
+
+                return true;
+            }
+        });
+
+        assertEquals(200, calls[0]);
+        assertEquals(20, calls[1]);
+    }
+
+    @Test
+    public void testSimulateStoppedByListener() {
+        ClosedLoopSimulator simulator = new ClosedLoopSimulator(new MassSpringSimulator(graph, parameters), weights);
+        RealMatrix complete = simulator.simulate(trajectory, trajectory, 20, true, null);
+        final int[] calls = new int[1];
+        RealMatrix stopped = simulator.simulate(trajectory, trajectory, 20, true, new ReadoutListener() {
+            @Override
+            public boolean readoutCalculated(int sample, double[] readout, double[] target, double[] meanSquaredErrors) {
+                calls[0]++;
+                return sample < 49;
+            }
+        });
+
+        assertEquals(50, calls[0]);
+        assertEquals(50, stopped.getRowDimension());
+        assertArrayEquals(complete.getRow(49), stopped.getRow(49), DELTA);
+    }
+
+    @Test(expected = DimensionMismatchException.class)
+    public void testConstructorOnWrongNumberOfSprings() {
+        new ClosedLoopSimulator(new MassSpringSimulator(graph, parameters), MatrixUtils.createRealMatrix(2, 7));
+    }
+
+    @Test(expected = DimensionMismatchException.class)
+    public void testSimulateInExecutionPhaseOnSingleOutput() {
+        RealMatrix target = trajectory.getSubMatrix(0, 199, 0, 0);
+        ClosedLoopSimulator simulator = new ClosedLoopSimulator(new MassSpringSimulator(graph, parameters), weights.getSubMatrix(0, 0, 0, 7));
+        simulator.simulate(trajectory, target, 20, false, null);
+    }
+
+}
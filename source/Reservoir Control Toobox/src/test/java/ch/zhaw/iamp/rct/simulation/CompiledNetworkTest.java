@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class CompiledNetworkTest {
+
+    private final double DELTA = 0.00001;
+    private CompiledNetwork network;
+
+    @Before
+    public void setUp() {
+        NetworkGraph graph = MassSpringSimulatorTest.createGraph();
+        network = new CompiledNetwork(graph, new SimulationParameters());
+    }
+
+    @Test
+    public void testAdjacency() {
+        assertEquals(12, network.getNumberOfMasses());
+        assertEquals(3, network.getNumberOfFreeMasses());
+        assertEquals(8, network.getNumberOfRecordedSprings());
+        assertEquals(10, network.getNumberOfEntries());
+        assertArrayEquals(new int[]{9, 10, 11}, network.freeMasses);
+        assertArrayEquals(new int[]{0, 3, 7, 10}, network.rowStart);
+    }
+
+    @Test
+    public void testComputeForcesOnRestingNetwork() {
+        SimulationState state = network.createInitialState();
+        network.computeForces(state);
+
+        for (int i = 0; i < state.getNumberOfMasses(); i++) {
+            assertEquals(0, state.fx[i], DELTA);
+            assertEquals(0, state.fy[i], DELTA);
+        }
+    }
+
+    @Test
+    public void testComputeForcesOnStretchedSpring() {
+        SimulationState state = network.createInitialState();
+        state.x[11] += 0.1;
+        network.computeForces(state);
+
+        assertTrue(state.fx[11] < 0);
+        assertTrue(state.fx[10] > 0);
+        assertEquals(0, state.fx[9], DELTA);
+    }
+
+    @Test
+    public void testComputeForcesOnPartsEqualsWhole() {
+        SimulationState whole = network.createInitialState();
+        whole.x[10] += 0.3;
+        whole.vy[11] = 2;
+        SimulationState parts = whole.copy();
+        network.computeForces(whole);
+        network.computeForces(parts, 2, 3);
+        network.computeForces(parts, 0, 2);
+
+        assertArrayEquals(whole.fx, parts.fx, 0);
+        assertArrayEquals(whole.fy, parts.fy, 0);
+    }
+
+    @Test
+    public void testRecordSpringLengths() {
+        double[] lengths = new double[8];
+        network.recordSpringLengths(network.createInitialState(), lengths);
+
+        assertEquals(Math.sqrt(20), lengths[0], DELTA);
+        assertEquals(Math.sqrt(26), lengths[4], DELTA);
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.weights.Weights;
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CsvSinkTest {
+
+    private final File springLengthsFile = new File("testSpringLengths.csv");
+
+    @After
+    public void cleanUp() {
+        springLengthsFile.delete();
+    }
+
+    @Test
+    public void testAccept() throws IOException {
+        try (CsvSink sink = new CsvSink(springLengthsFile.getPath())) {
+            sink.accept(0, new double[]{1, 2.5});
+            sink.accept(1, new double[]{-3, 0.125});
+        }
+
+        assertEquals("1.0,2.5\n-3.0,0.125\n", FileUtils.readFileToString(springLengthsFile));
+    }
+
+    @Test
+    public void testAcceptEqualsSimulationResult() throws IOException {
+        MassSpringSimulator simulator = new MassSpringSimulator(MassSpringSimulatorTest.createGraph(), new SimulationParameters());
+        RealMatrix trajectory = MassSpringSimulatorTest.createTrajectory(30);
+
+        try (CsvSink sink = new CsvSink(springLengthsFile.getPath())) {
+            simulator.simulate(trajectory, sink);
+        }
+
+        assertEquals(simulator.simulate(trajectory), Weights.csvToMatrix(springLengthsFile.getPath()));
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.Mass;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import ch.zhaw.iamp.rct.weights.GramAccumulator;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class EnsembleSimulatorTest {
+
+    private final double DELTA = 0.0000001;
+    private SimulationParameters parameters;
+    private EnsembleSimulator ensemble;
+    private List<NetworkGraph> graphs;
+    private RealMatrix trajectory;
+
+    @Before
+    public void setUp() {
+        parameters = new SimulationParameters();
+        ensemble = new EnsembleSimulator(parameters, 3);
+        graphs = new ArrayList<>();
+        trajectory = MassSpringSimulatorTest.createTrajectory(100);
+
+        for (int i = 0; i < 5; i++) {
+            NetworkGraph graph = MassSpringSimulatorTest.createGraph();
+            Mass extra = new Mass(6 + i, 12);
+            graph.addMasses(extra);
+            graph.addSpring(extra, graph.getNetworkMasses().get(1));
+            graph.addSpring(extra, graph.getNetworkMasses().get(2));
+            graphs.add(graph);
+        }
+    }
+
+    @After
+    public void cleanUp() {
+        ensemble.shutdown();
+    }
+
+    @Test
+    public void testSimulateEqualsSequentialSimulation() {
+        List<RealMatrix> recordings = ensemble.simulate(graphs, trajectory);
+
+        assertEquals(5, recordings.size());
+
+        for (int i = 0; i < graphs.size(); i++) {
+            RealMatrix expected = new MassSpringSimulator(graphs.get(i), parameters).simulate(trajectory);
+            assertEquals(expected, recordings.get(i));
+        }
+    }
+
+    @Test
+    public void testAccumulateEqualsRecordedGram() {
+        RealMatrix target = MatrixUtils.createRealMatrix(30, 2);
+        target.setEntry(3, 1, 1);
+        List<GramAccumulator> accumulators = ensemble.accumulate(graphs, trajectory, target, 10);
+        RealMatrix recording = new MassSpringSimulator(graphs.get(2), parameters).simulate(trajectory);
+        RealMatrix cut = recording.getSubMatrix(10, 99, 0, recording.getColumnDimension() - 1);
+
+        assertEquals(5, accumulators.size());
+        assertEquals(90, accumulators.get(2).getNumberOfRows());
+
+        RealMatrix gram = accumulators.get(2).getGram();
+        RealMatrix expected = cut.transpose().multiply(cut);
+
+        for (int i = 0; i < expected.getRowDimension(); i++) {
+            assertArrayEquals(expected.getRow(i), gram.getRow(i), DELTA * expected.getNorm());
+        }
+    }
+
+    @Test
+    public void testForkEqualsUninterruptedSimulation() {
+        MassSpringSimulator simulator = new MassSpringSimulator(graphs.get(0), parameters);
+        simulator.simulate(trajectory.getSubMatrix(0, 49, 0, 1));
+        SimulationSnapshot snapshot = simulator.snapshot();
+        List<RealMatrix> continuations = new ArrayList<>();
+        continuations.add(trajectory.getSubMatrix(50, 99, 0, 1));
+        continuations.add(trajectory.getSubMatrix(0, 29, 0, 1));
+        List<RealMatrix> recordings = ensemble.fork(graphs.get(0), snapshot, continuations);
+        RealMatrix expected = simulator.simulate(trajectory);
+
+        assertEquals(2, recordings.size());
+        assertEquals(30, recordings.get(1).getRowDimension());
+        assertEquals(expected.getSubMatrix(50, 99, 0, expected.getColumnDimension() - 1), recordings.get(0));
+    }
+
+}
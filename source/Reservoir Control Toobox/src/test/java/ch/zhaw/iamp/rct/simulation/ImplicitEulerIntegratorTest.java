@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.Mass;
+import static ch.zhaw.iamp.rct.graph.Mass.Type.SHOULDER;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ImplicitEulerIntegratorTest {
+
+    @Test
+    public void testStepFollowsHarmonicOscillation() {
+        CompiledNetwork network = createOscillator(4);
+        SimulationState state = network.createInitialState();
+        state.x[1] = 1.1;
+        ImplicitEulerIntegrator integrator = new ImplicitEulerIntegrator(network);
+        integrator.initialize(state);
+
+        for (int i = 0; i < 100000; i++) {
+            integrator.step(state, 0.00001);
+        }
+
+        assertEquals(1 + 0.1 * Math.cos(2), state.getX(1), 0.0001);
+        assertEquals(0, state.getY(1), 0.0000001);
+    }
+
+    @Test
+    public void testStepIsStableOnStiffSpring() {
+        CompiledNetwork network = createOscillator(1000000);
+        SimulationState explicitState = network.createInitialState();
+        explicitState.x[1] = 1.1;
+        SimulationState implicitState = explicitState.copy();
+        VerletIntegrator verlet = new VerletIntegrator(network);
+        ImplicitEulerIntegrator implicit = new ImplicitEulerIntegrator(network);
+        verlet.initialize(explicitState);
+        implicit.initialize(implicitState);
+
+        for (int i = 0; i < 100; i++) {
+            verlet.step(explicitState, 0.01);
+            implicit.step(implicitState, 0.01);
+        }
+
+        assertTrue(Double.isNaN(explicitState.getX(1)) || Math.abs(explicitState.getX(1) - 1) > 1);
+        assertTrue(Math.abs(implicitState.getX(1) - 1) <= 0.1);
+    }
+
+    @Test
+    public void testSimulateWithLargerTimeSteps() {
+        NetworkGraph graph = MassSpringSimulatorTest.createGraph();
+        RealMatrix trajectory = MassSpringSimulatorTest.createTrajectory(300).scalarMultiply(0.2);
+        SimulationParameters parameters = new SimulationParameters();
+        parameters.setDamping(5);
+        RealMatrix expected = new MassSpringSimulator(graph, parameters).simulate(trajectory);
+        parameters.setTimeStep(0.005);
+        parameters.setStepsPerSample(2);
+        CompiledNetwork network = new CompiledNetwork(graph, parameters);
+        RealMatrix actual = new MassSpringSimulator(network, new ImplicitEulerIntegrator(network), parameters).simulate(trajectory);
+
+        // backward Euler is only of first order, so a deviation of a few percent is expected
+        for (int i = 0; i < 300; i++) {
+            assertArrayEquals(expected.getRow(i), actual.getRow(i), 0.1);
+        }
+    }
+
+    @Test
+    public void testWarmStartReducesIterations() {
+        NetworkGraph graph = MassSpringSimulatorTest.createGraph();
+        CompiledNetwork network = new CompiledNetwork(graph, new SimulationParameters());
+        SimulationState state = network.createInitialState();
+        state.vx[10] = 1;
+        ImplicitEulerIntegrator integrator = new ImplicitEulerIntegrator(network);
+        integrator.initialize(state);
+        integrator.step(state, 0.001);
+        int firstIterations = integrator.getLastNumberOfIterations();
+        integrator.step(state, 0.001);
+
+        assertTrue(firstIterations > 0);
+        assertTrue(integrator.getLastNumberOfIterations() <= firstIterations);
+    }
+
+    private static CompiledNetwork createOscillator(double stiffness) {
+        NetworkGraph graph = new NetworkGraph();
+        Mass shoulder = new Mass(0, 0, SHOULDER);
+        Mass mass = new Mass(1, 0);
+        graph.addMasses(shoulder, mass);
+        graph.addSpring(mass, shoulder);
+        SimulationParameters parameters = new SimulationParameters();
+        parameters.setStiffness(stiffness);
+        parameters.setDamping(0);
+        return new CompiledNetwork(graph, parameters);
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.grammar.GrammarParser;
+import ch.zhaw.iamp.rct.graph.GraphConverter;
+import ch.zhaw.iamp.rct.graph.Mass;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import ch.zhaw.iamp.rct.weights.Weights;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class MassSpringSimulatorTest {
+
+    private final double DELTA = 0.00001;
+    private final File massesFile = new File("testMasses.csv");
+    private final File connectionMapFile = new File("testConnectionMap.csv");
+    private final File trajectoryFile = new File("testTrajectory.csv");
+    private final File springLengthsFile = new File("testSpringLengths.csv");
+    private final File targetTrajectoryFile = new File("testTargetTrajectory.csv");
+    private final File weightsFile = new File("testWeights.csv");
+    private NetworkGraph graph;
+    private SimulationParameters parameters;
+
+    @Before
+    public void setUp() {
+        graph = createGraph();
+        parameters = new SimulationParameters();
+    }
+
+    /**
+     * Creates a robot arm with four inputs and a small network on its right
+     * side, in which every network mass is connected to two inputs.
+     */
+    static NetworkGraph createGraph() {
+        GrammarParser parser = new GrammarParser();
+        parser.parse("shoulder 0 0\nelbow 0 10\nhand 0 20\n"
+                + "input 0 3\ninput 0 7\ninput 0 13\ninput 0 17");
+        NetworkGraph graph = parser.getGraph();
+        List<Mass> inputs = graph.getInputs();
+        Mass upper = new Mass(4, 5);
+        Mass middle = new Mass(5, 10);
+        Mass lower = new Mass(4, 15);
+        graph.addMasses(upper, middle, lower);
+        graph.addSpring(upper, inputs.get(0));
+        graph.addSpring(upper, inputs.get(1));
+        graph.addSpring(middle, inputs.get(1));
+        graph.addSpring(middle, inputs.get(2));
+        graph.addSpring(lower, inputs.get(2));
+        graph.addSpring(lower, inputs.get(3));
+        graph.addSpring(upper, middle);
+        graph.addSpring(middle, lower);
+        return graph;
+    }
+
+    @After
+    public void cleanUp() {
+        massesFile.delete();
+        connectionMapFile.delete();
+        trajectoryFile.delete();
+        springLengthsFile.delete();
+        targetTrajectoryFile.delete();
+        weightsFile.delete();
+    }
+
+    @Test
+    public void testSimulateOnRestingArm() {
+        MassSpringSimulator simulator = new MassSpringSimulator(graph, parameters);
+        RealMatrix springLengths = simulator.simulate(MatrixUtils.createRealMatrix(20, 2));
+
+        assertEquals(8, simulator.getNumberOfRecordedSprings());
+        assertEquals(20, springLengths.getRowDimension());
+        assertEquals(8, springLengths.getColumnDimension());
+        assertEquals(Math.sqrt(16 + 4), springLengths.getEntry(19, 0), DELTA);
+        assertEquals(Math.sqrt(16 + 4), springLengths.getEntry(19, 1), DELTA);
+    }
+
+    @Test
+    public void testSimulateOnMovingArm() {
+        RealMatrix springLengths = new MassSpringSimulator(graph, parameters).simulate(createTrajectory(200));
+        double maximalDeviation = 0;
+
+        for (int i = 0; i < springLengths.getRowDimension(); i++) {
+            double deviation = Math.abs(springLengths.getEntry(i, 0) - Math.sqrt(20));
+            assertFalse(Double.isNaN(deviation));
+            maximalDeviation = Math.max(maximalDeviation, deviation);
+        }
+
+        assertTrue(maximalDeviation > 0.001);
+    }
+
+    @Test
+    public void testSimulateSettlesAfterMovement() {
+        RealMatrix trajectory = MatrixUtils.createRealMatrix(3000, 2);
+        trajectory.setSubMatrix(createTrajectory(100).scalarMultiply(0.1).getData(), 0, 0);
+        parameters.setDamping(5);
+        RealMatrix springLengths = new MassSpringSimulator(graph, parameters).simulate(trajectory);
+
+        assertNotEquals(Math.sqrt(20), springLengths.getEntry(99, 0), 0.001);
+        assertEquals(Math.sqrt(20), springLengths.getEntry(2999, 0), 0.001);
+        assertEquals(Math.sqrt(26), springLengths.getEntry(2999, 7), 0.001);
+    }
+
+    @Test
+    public void testSimulateIsRepeatable() {
+        MassSpringSimulator simulator = new MassSpringSimulator(graph, parameters);
+        RealMatrix trajectory = createTrajectory(50);
+
+        assertEquals(simulator.simulate(trajectory), simulator.simulate(trajectory));
+    }
+
+    @Test
+    public void testSimulateOnFiles() throws IOException {
+        FileUtils.writeStringToFile(massesFile, GraphConverter.toMassesCsv(graph));
+        FileUtils.writeStringToFile(connectionMapFile, GraphConverter.toConnectionMapCsv(graph));
+        FileUtils.writeStringToFile(trajectoryFile, "0,0\n0.1,0.2\n0.2,0.4\n");
+        MassSpringSimulator.simulate(massesFile.getPath(), connectionMapFile.getPath(),
+                trajectoryFile.getPath(), springLengthsFile.getPath(), parameters);
+        RealMatrix springLengths = Weights.csvToMatrix(springLengthsFile.getPath());
+
+        assertEquals(3, springLengths.getRowDimension());
+        assertEquals(8, springLengths.getColumnDimension());
+    }
+
+    @Test
+    public void testTrainOnFiles() throws IOException {
+        FileUtils.writeStringToFile(massesFile, GraphConverter.toMassesCsv(graph));
+        FileUtils.writeStringToFile(connectionMapFile, GraphConverter.toConnectionMapCsv(graph));
+        Weights.matrixToCsv(createTrajectory(100), trajectoryFile.getPath());
+        FileUtils.writeStringToFile(targetTrajectoryFile, "0\n1\n0\n-1\n");
+        MassSpringSimulator.train(massesFile.getPath(), connectionMapFile.getPath(), trajectoryFile.getPath(),
+                targetTrajectoryFile.getPath(), weightsFile.getPath(), 10, parameters);
+        RealMatrix weights = Weights.csvToMatrix(weightsFile.getPath());
+
+        assertEquals(1, weights.getRowDimension());
+        assertEquals(8, weights.getColumnDimension());
+    }
+
+    @Test(expected = DimensionMismatchException.class)
+    public void testSimulateOnSingleAngle() {
+        new MassSpringSimulator(graph, parameters).simulate(MatrixUtils.createRealMatrix(5, 1));
+    }
+
+    static RealMatrix createTrajectory(int rows) {
+        RealMatrix trajectory = MatrixUtils.createRealMatrix(rows, 2);
+
+        for (int i = 0; i < rows; i++) {
+            trajectory.setEntry(i, 0, 0.3 * Math.sin(i * 0.05));
+            trajectory.setEntry(i, 1, 0.5 * Math.sin(i * 0.08));
+        }
+
+        return trajectory;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.Mass;
+import static ch.zhaw.iamp.rct.graph.Mass.Type.SHOULDER;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class PartitionedIntegratorTest {
+
+    private CompiledNetwork network;
+
+    /**
+     * A grid of network masses, hanging at a fixed shoulder at one corner.
+     */
+    @Before
+    public void setUp() {
+        NetworkGraph graph = new NetworkGraph();
+        Mass[][] grid = new Mass[12][12];
+        Mass shoulder = new Mass(-1, -1, SHOULDER);
+        graph.addMasses(shoulder);
+
+        for (int i = 0; i < grid.length; i++) {
+            for (int j = 0; j < grid.length; j++) {
+                grid[i][j] = new Mass(i, j);
+                graph.addMasses(grid[i][j]);
+
+                if (i > 0) {
+                    graph.addSpring(grid[i][j], grid[i - 1][j]);
+                }
+
+                if (j > 0) {
+                    graph.addSpring(grid[i][j], grid[i][j - 1]);
+                }
+            }
+        }
+
+        graph.addSpring(grid[0][0], shoulder);
+        network = new CompiledNetwork(graph, new SimulationParameters());
+    }
+
+    @Test
+    public void testCreatePartitions() {
+        int[] start = PartitionedIntegrator.createPartitions(network, 4);
+
+        assertEquals(0, start[0]);
+        assertEquals(144, start[4]);
+
+        for (int p = 0; p < 4; p++) {
+            int size = start[p + 1] - start[p];
+            assertTrue(size > 30 && size < 42);
+        }
+    }
+
+    @Test
+    public void testStepEqualsVerletIntegrator() {
+        for (int partitions = 1; partitions <= 4; partitions++) {
+            SimulationState expected = createDisplacedState();
+            SimulationState actual = expected.copy();
+            VerletIntegrator verlet = new VerletIntegrator(network);
+            PartitionedIntegrator partitioned = new PartitionedIntegrator(network, partitions);
+            verlet.initialize(expected);
+            partitioned.initialize(actual);
+
+            try {
+                for (int i = 0; i < 500; i++) {
+                    verlet.step(expected, 0.001);
+                    partitioned.step(actual, 0.001);
+                }
+            } finally {
+                partitioned.shutdown();
+            }
+
+            assertEquals(expected.getTime(), actual.getTime(), 0);
+            assertArrayEquals(expected.x, actual.x, 0);
+            assertArrayEquals(expected.y, actual.y, 0);
+            assertArrayEquals(expected.vx, actual.vx, 0);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStepAfterShutdown() {
+        PartitionedIntegrator partitioned = new PartitionedIntegrator(network, 2);
+        partitioned.shutdown();
+        partitioned.step(network.createInitialState(), 0.001);
+    }
+
+    private SimulationState createDisplacedState() {
+        SimulationState state = network.createInitialState();
+
+        for (int i = 1; i < state.getNumberOfMasses(); i += 7) {
+            state.x[i] += 0.1;
+            state.vy[i] = -0.5;
+        }
+
+        return state;
+    }
+
+}
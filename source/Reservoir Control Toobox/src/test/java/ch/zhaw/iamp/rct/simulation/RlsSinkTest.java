@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.weights.RlsTrainer;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RlsSinkTest {
+
+    @Test
+    public void testAcceptEqualsGramSink() {
+        MassSpringSimulator simulator = new MassSpringSimulator(MassSpringSimulatorTest.createGraph(), new SimulationParameters());
+        RealMatrix trajectory = MassSpringSimulatorTest.createTrajectory(200);
+        RealMatrix target = MatrixUtils.createRealMatrix(40, 1);
+
+        for (int i = 0; i < 40; i++) {
+            target.setEntry(i, 0, Math.sin(i * 0.3));
+        }
+
+        RlsSink rlsSink = new RlsSink(new RlsTrainer(8, 1, 0.01, 1), target, 20);
+        GramSink gramSink = new GramSink(8, target, 20);
+        simulator.simulate(trajectory, new MultiSink(rlsSink, gramSink));
+
+        assertEquals(180, rlsSink.getTrainer().getNumberOfRows());
+        assertArrayEquals(gramSink.getAccumulator().solve(0.01).getRow(0),
+                rlsSink.getTrainer().getWeights().getRow(0), 1e-4);
+    }
+
+}
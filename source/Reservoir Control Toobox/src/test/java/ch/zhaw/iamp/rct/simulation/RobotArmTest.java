@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.Mass;
+import static ch.zhaw.iamp.rct.graph.Mass.Type.*;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class RobotArmTest {
+
+    private final double DELTA = 0.00001;
+    private NetworkGraph graph;
+    private double[] x;
+    private double[] y;
+
+    @Before
+    public void setUp() {
+        graph = new NetworkGraph();
+        graph.addMasses(new Mass(0, 0, SHOULDER), new Mass(0, 10, ELBOW),
+                new Mass(0, 20, HAND), new Mass(1, 5, INPUT), new Mass(1, 15, INPUT),
+                new Mass(7, 7));
+        x = new double[6];
+        y = new double[6];
+        x[5] = 42;
+        y[5] = 43;
+    }
+
+    @Test
+    public void testIsDriven() {
+        RobotArm arm = new RobotArm(graph);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(arm.isDriven(i));
+        }
+
+        assertFalse(arm.isDriven(5));
+    }
+
+    @Test
+    public void testMoveToOnInitialPose() {
+        new RobotArm(graph).moveTo(0, 0, x, y);
+
+        assertArrayEquals(new double[]{0, 0, 0, 1, 1, 42}, x, DELTA);
+        assertArrayEquals(new double[]{0, 10, 20, 5, 15, 43}, y, DELTA);
+    }
+
+    @Test
+    public void testMoveToOnShoulderAngle() {
+        new RobotArm(graph).moveTo(Math.PI / 2, 0, x, y);
+
+        assertArrayEquals(new double[]{0, -10, -20, -5, -15, 42}, x, DELTA);
+        assertArrayEquals(new double[]{0, 0, 0, 1, 1, 43}, y, DELTA);
+    }
+
+    @Test
+    public void testMoveToOnElbowAngle() {
+        new RobotArm(graph).moveTo(0, -Math.PI / 2, x, y);
+
+        assertArrayEquals(new double[]{0, 0, 10, 1, 5, 42}, x, DELTA);
+        assertArrayEquals(new double[]{0, 10, 10, 5, 9, 43}, y, DELTA);
+    }
+
+    @Test
+    public void testMoveToWithAngularVelocities() {
+        double[] vx = new double[6];
+        double[] vy = new double[6];
+        new RobotArm(graph).moveTo(0, 0, 2, -1, x, y, vx, vy);
+
+        assertArrayEquals(new double[]{0, -20, -30, -10, -25, 0}, vx, DELTA);
+        assertArrayEquals(new double[]{0, 0, 0, 2, 1, 0}, vy, DELTA);
+    }
+
+    @Test
+    public void testMoveToWithoutElbow() {
+        graph = new NetworkGraph();
+        graph.addMasses(new Mass(0, 0, SHOULDER), new Mass(3, 4, INPUT));
+        new RobotArm(graph).moveTo(1, 1, x, y);
+
+        assertEquals(3, x[1], DELTA);
+        assertEquals(4, y[1], DELTA);
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.Mass;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class SimulationSnapshotTest {
+
+    private final File snapshotFile = new File("testSnapshot" + SimulationSnapshot.FILE_ENDING);
+    private NetworkGraph graph;
+    private MassSpringSimulator simulator;
+    private RealMatrix trajectory;
+    private RealMatrix washout;
+    private RealMatrix continuation;
+
+    @Before
+    public void setUp() {
+        graph = MassSpringSimulatorTest.createGraph();
+        simulator = new MassSpringSimulator(graph, new SimulationParameters());
+        trajectory = MassSpringSimulatorTest.createTrajectory(120);
+        washout = trajectory.getSubMatrix(0, 49, 0, 1);
+        continuation = trajectory.getSubMatrix(50, 119, 0, 1);
+    }
+
+    @After
+    public void cleanUp() {
+        snapshotFile.delete();
+    }
+
+    @Test
+    public void testContinuationEqualsUninterruptedSimulation() {
+        RealMatrix expected = simulator.simulate(trajectory);
+        simulator.simulate(washout);
+        SimulationSnapshot snapshot = simulator.snapshot();
+
+        assertEquals(50, snapshot.getNumberOfSamples());
+        assertEquals(0.5, snapshot.getState().getTime(), 1e-9);
+        assertEquals(expected.getSubMatrix(50, 119, 0, 7), simulator.simulate(snapshot, continuation));
+        assertEquals(120, simulator.snapshot().getNumberOfSamples());
+    }
+
+    @Test
+    public void testForksAreIndependent() {
+        simulator.simulate(washout);
+        SimulationSnapshot snapshot = simulator.snapshot();
+        RealMatrix first = simulator.simulate(snapshot, continuation);
+        simulator.simulate(snapshot, continuation.scalarMultiply(2));
+
+        assertEquals(first, new MassSpringSimulator(graph, new SimulationParameters()).simulate(snapshot, continuation));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        simulator.simulate(washout);
+        SimulationSnapshot snapshot = simulator.snapshot();
+        snapshot.save(snapshotFile);
+        SimulationSnapshot loaded = SimulationSnapshot.load(snapshotFile);
+
+        assertEquals(snapshot.getNumberOfSamples(), loaded.getNumberOfSamples());
+        assertEquals(snapshot.getShoulderAngle(), loaded.getShoulderAngle(), 0);
+        assertEquals(simulator.simulate(snapshot, continuation), simulator.simulate(loaded, continuation));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadOnOtherFile() throws IOException {
+        FileUtils.writeStringToFile(snapshotFile, "1,2,3\n");
+        SimulationSnapshot.load(snapshotFile);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testContinuationOnOtherNetwork() {
+        simulator.simulate(washout);
+        NetworkGraph other = MassSpringSimulatorTest.createGraph();
+        other.addMasses(new Mass(9, 9));
+        new MassSpringSimulator(other, new SimulationParameters()).simulate(simulator.snapshot(), continuation);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSnapshotBeforeSimulation() {
+        simulator.snapshot();
+    }
+
+}
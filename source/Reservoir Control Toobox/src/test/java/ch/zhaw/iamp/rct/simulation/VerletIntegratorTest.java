@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.simulation;
+
+import ch.zhaw.iamp.rct.graph.Mass;
+import static ch.zhaw.iamp.rct.graph.Mass.Type.SHOULDER;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class VerletIntegratorTest {
+
+    private CompiledNetwork network;
+    private SimulationState state;
+
+    /**
+     * A single network mass, hanging on a spring at a fixed shoulder, forms a
+     * harmonic oscillator with the angular frequency sqrt(k / m).
+     */
+    @Before
+    public void setUp() {
+        NetworkGraph graph = new NetworkGraph();
+        Mass shoulder = new Mass(0, 0, SHOULDER);
+        Mass mass = new Mass(1, 0);
+        graph.addMasses(shoulder, mass);
+        graph.addSpring(mass, shoulder);
+        SimulationParameters parameters = new SimulationParameters();
+        parameters.setStiffness(4);
+        parameters.setMass(1);
+        parameters.setDamping(0);
+        network = new CompiledNetwork(graph, parameters);
+        state = network.createInitialState();
+        state.x[1] = 1.1;
+    }
+
+    @Test
+    public void testStepFollowsHarmonicOscillation() {
+        VerletIntegrator integrator = new VerletIntegrator(network);
+        integrator.initialize(state);
+
+        for (int i = 0; i < 10000; i++) {
+            integrator.step(state, 0.0001);
+        }
+
+        assertEquals(1, state.getTime(), 0.0000001);
+        assertEquals(1 + 0.1 * Math.cos(2), state.getX(1), 0.00001);
+        assertEquals(-0.2 * Math.sin(2), state.getVelocityX(1), 0.00001);
+        assertEquals(0, state.getX(0), 0);
+    }
+
+    @Test
+    public void testStepConservesEnergy() {
+        VerletIntegrator integrator = new VerletIntegrator(network);
+        integrator.initialize(state);
+
+        for (int i = 0; i < 100000; i++) {
+            integrator.step(state, 0.01);
+        }
+
+        double elongation = state.getX(1) - 1;
+        double energy = 0.5 * state.getVelocityX(1) * state.getVelocityX(1) + 0.5 * 4 * elongation * elongation;
+        assertEquals(0.02, energy, 0.0002);
+    }
+
+}
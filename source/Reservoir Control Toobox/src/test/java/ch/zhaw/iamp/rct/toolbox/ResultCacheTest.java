@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.toolbox;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ResultCacheTest {
+
+    private final File directory = new File("testCache");
+    private final File inputs = new File("testCacheInputs");
+    private ResultCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = new ResultCache(directory, 25);
+        writeInput("masses.csv", "0,0\n");
+        writeInput("connection-map.csv", "0\n");
+        writeInput("trajectory.csv", "1,2\n");
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(directory);
+        FileUtils.deleteDirectory(inputs);
+    }
+
+    private File writeInput(String name, String content) throws IOException {
+        File file = new File(inputs, name);
+        FileUtils.writeStringToFile(file, content);
+        return file;
+    }
+
+    private SimulationCommand createCommand(String trajectory, String springLengths) {
+        return new SimulationCommand("mariumapp", new File(inputs, "masses.csv").getPath(),
+                new File(inputs, "connection-map.csv").getPath(), new File(inputs, springLengths).getPath(),
+                new File(inputs, trajectory).getPath(), new File(inputs, "weights.csv").getPath(), true);
+    }
+
+    @Test
+    public void testComputeKeyDependsOnContentsOnly() throws IOException {
+        writeInput("copy.csv", "1,2\n");
+        String key = ResultCache.computeKey(createCommand("trajectory.csv", "a.csv"));
+
+        assertEquals(64, key.length());
+        assertEquals(key, ResultCache.computeKey(createCommand("copy.csv", "b.csv")));
+
+        writeInput("copy.csv", "1,3\n");
+        assertNotEquals(key, ResultCache.computeKey(createCommand("copy.csv", "b.csv")));
+    }
+
+    @Test
+    public void testComputeKeyDependsOnPhase() throws IOException {
+        SimulationCommand command = createCommand("trajectory.csv", "a.csv");
+        SimulationCommand execution = new SimulationCommand(command.getExecutableFile(), command.getMassesFile(),
+                command.getConnectionMapFile(), command.getSpringLengthsFile(), command.getTrajectoryFile(),
+                command.getWeightsFile(), false);
+
+        assertNotEquals(ResultCache.computeKey(command), ResultCache.computeKey(execution));
+    }
+
+    @Test
+    public void testComputeKeyIgnoresWeightsInLearningPhase() throws IOException {
+        SimulationCommand command = createCommand("trajectory.csv", "a.csv");
+        SimulationCommand execution = new SimulationCommand(command.getExecutableFile(), command.getMassesFile(),
+                command.getConnectionMapFile(), command.getSpringLengthsFile(), command.getTrajectoryFile(),
+                command.getWeightsFile(), false);
+        String key = ResultCache.computeKey(command);
+        String executionKey = ResultCache.computeKey(execution);
+
+        writeInput("weights.csv", "0.5\n");
+        assertEquals(key, ResultCache.computeKey(command));
+        assertNotEquals(executionKey, ResultCache.computeKey(execution));
+    }
+
+    @Test
+    public void testStoreAndRestore() throws IOException {
+        String key = ResultCache.computeKey(createCommand("trajectory.csv", "a.csv"));
+        assertFalse(cache.restore(key, new File(inputs, "b.csv")));
+
+        writeInput("a.csv", "1,2,3\n");
+        cache.store(key, new File(inputs, "a.csv"));
+
+        assertTrue(cache.restore(key, new File(inputs, "b.csv")));
+        assertEquals("1,2,3\n", FileUtils.readFileToString(new File(inputs, "b.csv")));
+    }
+
+    @Test
+    public void testStoreEvictsLeastRecentlyUsed() throws IOException {
+        writeInput("first.csv", "1\n");
+        writeInput("second.csv", "2\n");
+        writeInput("third.csv", "3\n");
+        File lengths = writeInput("lengths.csv", "0123456789\n");
+        File restored = new File(inputs, "restored.csv");
+        String first = ResultCache.computeKey(createCommand("first.csv", "lengths.csv"));
+        String second = ResultCache.computeKey(createCommand("second.csv", "lengths.csv"));
+        String third = ResultCache.computeKey(createCommand("third.csv", "lengths.csv"));
+
+        cache.store(first, lengths);
+        cache.store(second, lengths);
+        assertTrue(cache.restore(first, restored));
+        cache.store(third, lengths);
+
+        assertEquals(22, cache.getSize());
+        assertTrue(cache.restore(first, restored));
+        assertFalse(cache.restore(second, restored));
+        assertTrue(cache.restore(third, restored));
+    }
+
+    @Test
+    public void testStoreOnTooLargeResult() throws IOException {
+        String key = ResultCache.computeKey(createCommand("trajectory.csv", "a.csv"));
+        cache.store(key, writeInput("a.csv", "012345678901234567890123456789\n"));
+
+        assertFalse(cache.restore(key, new File(inputs, "b.csv")));
+        assertEquals(0, cache.getSize());
+    }
+
+}
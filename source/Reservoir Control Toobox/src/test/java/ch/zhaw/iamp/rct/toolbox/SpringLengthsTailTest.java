@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.toolbox;
+
+import ch.zhaw.iamp.rct.simulation.GramSink;
+import ch.zhaw.iamp.rct.simulation.SpringLengthSink;
+import ch.zhaw.iamp.rct.weights.GramAccumulator;
+import ch.zhaw.iamp.rct.weights.Weights;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SpringLengthsTailTest {
+
+    private final double DELTA = 0.00001;
+    private final File file = new File("testTail.csv");
+    private final List<double[]> rows = new ArrayList<>();
+    private final SpringLengthSink sink = new SpringLengthSink() {
+        @Override
+        public void accept(int sample, double[] springLengths) {
+            assertEquals(rows.size(), sample);
+            rows.add(springLengths.clone());
+        }
+    };
+
+    @After
+    public void cleanUp() {
+        file.delete();
+    }
+
+    private void append(String text) throws IOException {
+        FileUtils.writeStringToFile(file, text, true);
+    }
+
+    @Test
+    public void testPoll() throws IOException {
+        SpringLengthsTail tail = new SpringLengthsTail(file, sink);
+        assertEquals(0, tail.poll());
+
+        append("# comment\n1,2\n3,");
+        assertEquals(1, tail.poll());
+        append("4\n\n5,6\n");
+        assertEquals(2, tail.poll());
+        assertEquals(0, tail.poll());
+
+        assertEquals(3, tail.getNumberOfRows());
+        assertEquals(2, tail.getNumberOfColumns());
+        assertArrayEquals(new double[]{3, 4}, rows.get(1), DELTA);
+    }
+
+    @Test
+    public void testCloseReadsLastLine() throws IOException {
+        append("1,2\n3,4");
+        SpringLengthsTail tail = new SpringLengthsTail(file, sink);
+        assertEquals(1, tail.poll());
+
+        tail.close();
+        assertEquals(2, tail.getNumberOfRows());
+    }
+
+    @Test(expected = IOException.class)
+    public void testPollOnNotFiniteValue() throws IOException {
+        append("1,2\nNaN,4\n");
+        new SpringLengthsTail(file, sink).poll();
+    }
+
+    @Test(expected = IOException.class)
+    public void testPollOnWrongNumberOfValues() throws IOException {
+        append("1,2\n3\n");
+        new SpringLengthsTail(file, sink).poll();
+    }
+
+    @Test(expected = IOException.class)
+    public void testPollOnTruncatedFile() throws IOException {
+        append("1,2\n3,4\n");
+        SpringLengthsTail tail = new SpringLengthsTail(file, sink);
+        tail.poll();
+        FileUtils.writeStringToFile(file, "1,2\n");
+        tail.poll();
+    }
+
+    @Test
+    public void testStartOnGrowingFile() throws IOException, InterruptedException {
+        RealMatrix target = MatrixUtils.createRealMatrix(7, 1);
+
+        for (int i = 0; i < 7; i++) {
+            target.setEntry(i, 0, i);
+        }
+
+        final GramSink gramSink = new GramSink(2, target, 10);
+        final int[] notifications = new int[1];
+        SpringLengthsTail tail = new SpringLengthsTail(file, gramSink, 20);
+        tail.setListener(new TailListener() {
+            @Override
+            public void rowsAppended(int numberOfRows) {
+                notifications[0]++;
+            }
+
+            @Override
+            public void tailFailed(Exception error) {
+                fail(error.getMessage());
+            }
+        });
+        tail.start();
+
+        for (int i = 0; i < 100; i++) {
+            append((i % 5) + "," + Math.sin(i) + "\n");
+
+            if (i % 25 == 0) {
+                Thread.sleep(50);
+            }
+        }
+
+        tail.close();
+        RealMatrix A = Weights.csvToMatrix(file.getPath());
+        GramAccumulator expected = new GramAccumulator(2, 1);
+
+        for (int i = 10; i < 100; i++) {
+            expected.addRow(A.getRow(i), target.getRow(i % 7));
+        }
+
+        assertEquals(100, tail.getNumberOfRows());
+        assertTrue(notifications[0] > 0);
+        assertArrayEquals(expected.solve().getRow(0), gramSink.getAccumulator().solve().getRow(0), DELTA);
+    }
+
+    @Test
+    public void testCloseWithUnsizedGramSink() throws IOException {
+        RealMatrix target = MatrixUtils.createRealMatrix(new double[][]{{1}, {2}, {3}});
+        GramSink gramSink = new GramSink(target, 2);
+        SpringLengthsTail tail = new SpringLengthsTail(file, gramSink);
+        append("1,2\n2,1\n0,1\n1,1\n3,1");
+
+        assertNull(gramSink.getAccumulator());
+        tail.close();
+
+        GramAccumulator expected = new GramAccumulator(2, 1);
+        expected.addRow(new double[]{0, 1}, new double[]{3});
+        expected.addRow(new double[]{1, 1}, new double[]{1});
+        expected.addRow(new double[]{3, 1}, new double[]{2});
+
+        assertEquals(3, gramSink.getAccumulator().getNumberOfRows());
+        assertArrayEquals(expected.solve().getRow(0), gramSink.getAccumulator().solve().getRow(0), DELTA);
+    }
+
+    @Test
+    public void testStartOnInvalidFile() throws IOException, InterruptedException {
+        final Exception[] errors = new Exception[1];
+        SpringLengthsTail tail = new SpringLengthsTail(file, sink, 20);
+        tail.setListener(new TailListener() {
+            @Override
+            public void rowsAppended(int numberOfRows) {
+            }
+
+            @Override
+            public void tailFailed(Exception error) {
+                errors[0] = error;
+            }
+        });
+        tail.start();
+        append("1,2\nInfinity,3\n");
+
+        for (int i = 0; i < 100 && errors[0] == null; i++) {
+            Thread.sleep(20);
+        }
+
+        assertNotNull(errors[0]);
+
+        try {
+            tail.close();
+            fail("The failure has to be thrown when the tail is closed.");
+        } catch (IOException ex) {
+            assertSame(errors[0], ex);
+        }
+    }
+
+}
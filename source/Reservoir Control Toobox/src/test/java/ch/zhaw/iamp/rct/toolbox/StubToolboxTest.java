@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.toolbox;
+
+import ch.zhaw.iamp.rct.Controller;
+import ch.zhaw.iamp.rct.grammar.GrammarParser;
+import ch.zhaw.iamp.rct.graph.GraphConverter;
+import ch.zhaw.iamp.rct.graph.Mass;
+import ch.zhaw.iamp.rct.graph.NetworkGraph;
+import ch.zhaw.iamp.rct.graph.Spring;
+import ch.zhaw.iamp.rct.simulation.CompiledNetwork;
+import ch.zhaw.iamp.rct.simulation.MassSpringSimulator;
+import ch.zhaw.iamp.rct.simulation.SimulationParameters;
+import ch.zhaw.iamp.rct.util.ProcessRunner;
+import ch.zhaw.iamp.rct.weights.Weights;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class StubToolboxTest {
+
+    private final double DELTA = 0.00001;
+    private final File directory = new File("testStub");
+    private String[] args;
+    private NetworkGraph graph;
+
+    @Before
+    public void setUp() throws IOException {
+        GrammarParser parser = new GrammarParser();
+        parser.parse("shoulder 0 0\nelbow 0 10\nhand 0 20\ninput 0 3\ninput 0 7");
+        graph = parser.getGraph();
+        Mass mass = new Mass(4, 5);
+        graph.addMasses(mass);
+        graph.addSpring(mass, graph.getInputs().get(0));
+        graph.addSpring(mass, graph.getInputs().get(1));
+
+        File masses = new File(directory, "masses.csv");
+        File connectionMap = new File(directory, "connection-map.csv");
+        FileUtils.writeStringToFile(masses, GraphConverter.toMassesCsv(graph));
+        FileUtils.writeStringToFile(connectionMap, GraphConverter.toConnectionMapCsv(graph));
+        args = new String[]{masses.getPath(), connectionMap.getPath(), new File(directory, "springLengths.csv").getPath(),
+            "trajectory.csv", "weights.csv", "false", "true"};
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testRun() throws IOException {
+        assertEquals(7, new StubToolbox(50, StubToolbox.UNLIMITED_RATE, 7).run(args));
+
+        RealMatrix springLengths = Weights.csvToMatrix(args[2]);
+        assertEquals(50, springLengths.getRowDimension());
+        NetworkGraph converted = GraphConverter.toNetworkGraph(FileUtils.readFileToString(new File(args[0])), FileUtils.readFileToString(new File(args[1])));
+        int s = 0;
+
+        for (Spring spring : converted.getSprings()) {
+            if (CompiledNetwork.isRecorded(spring)) {
+                double restLength = spring.getLine().getP1().distance(spring.getLine().getP2());
+                assertEquals(restLength, springLengths.getEntry(0, s++), 0.05 * restLength + DELTA);
+            }
+        }
+
+        assertEquals(s, springLengths.getColumnDimension());
+    }
+
+    @Test
+    public void testRunHasLayoutOfSimulator() throws IOException {
+        new StubToolbox(1, StubToolbox.UNLIMITED_RATE, 0).run(args);
+        MassSpringSimulator simulator = new MassSpringSimulator(graph, new SimulationParameters());
+
+        assertTrue(simulator.getNumberOfRecordedSprings() < graph.getSprings().size());
+        assertEquals(simulator.getNumberOfRecordedSprings(), Weights.csvToMatrix(args[2]).getColumnDimension());
+    }
+
+    @Test
+    public void testRunOnRate() {
+        long startTime = System.currentTimeMillis();
+        new StubToolbox(20, 100, 0).run(args);
+
+        assertTrue(System.currentTimeMillis() - startTime >= 190);
+    }
+
+    @Test
+    public void testRunOnMissingFile() {
+        args[0] = new File(directory, "missing.csv").getPath();
+
+        assertEquals(Controller.SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE, new StubToolbox(1, 0, 0).run(args));
+    }
+
+    @Test
+    public void testRunOnWrongNumberOfArguments() {
+        assertEquals(Controller.SIMULATOR_INVOCATION_PROBLEM_EXIT_CODE, new StubToolbox(1, 0, 0).run(new String[0]));
+    }
+
+    @Test
+    public void testWriteLauncher() throws IOException, InterruptedException, ExecutionException {
+        assumeTrue(new File("/bin/sh").canExecute());
+        File launcher = new File(directory, "stub.sh");
+        StubToolbox.writeLauncher(launcher, 30, StubToolbox.UNLIMITED_RATE, 3);
+        SimulationCommand command = new SimulationCommand(launcher.getAbsolutePath(), args[0], args[1], args[2], args[3], args[4], true);
+        ProcessRunner runner = new ProcessRunner(Arrays.asList(command.toArray()), 10, 60000);
+
+        assertEquals(3, (int) runner.start().get());
+        assertEquals(30, Weights.csvToMatrix(args[2]).getRowDimension());
+        assertEquals("[S] Done.", runner.getLog().getLines().get(runner.getLog().getNumberOfLines() - 1));
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.toolbox;
+
+import ch.zhaw.iamp.rct.grammar.GrammarParser;
+import ch.zhaw.iamp.rct.graph.GraphConverter;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class SweepSchedulerTest {
+
+    private final File sweepDirectory = new File("testSweep");
+    private final File script = new File("testToolbox.sh");
+    private final File order = new File("testOrder.txt");
+
+    @Before
+    public void setUp() throws IOException {
+        assumeTrue(new File("/bin/sh").canExecute());
+        FileUtils.writeStringToFile(script, "#!/bin/sh\n"
+                + "basename \"$4\" >> '" + order.getAbsolutePath() + "'\n"
+                + "case \"$4\" in *slow*) sleep 0.3;; esac\n"
+                + "case \"$4\" in *fail*) exit 1;; esac\n"
+                + "case \"$4\" in *flaky*) if [ ! -e attempted ]; then touch attempted; exit 2; fi;; esac\n"
+                + "echo \"$1,$2\" > \"$3\"\n");
+        script.setExecutable(true);
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(sweepDirectory);
+        script.delete();
+        order.delete();
+    }
+
+    private SimulationCommand createCommand(String trajectory) {
+        return new SimulationCommand(script.getAbsolutePath(), "masses.csv", "connection-map.csv",
+                "springLengths.csv", trajectory, "weights.csv", true);
+    }
+
+    @Test
+    public void testSubmit() throws InterruptedException, IOException {
+        SweepScheduler scheduler = new SweepScheduler(sweepDirectory, 2, 1);
+        SweepJob job = scheduler.submit("a", createCommand("a.csv"), 0);
+        scheduler.awaitCompletion();
+
+        assertEquals(SweepJob.State.FINISHED, job.getState());
+        assertEquals(0, (int) job.getExitValue());
+        assertEquals(new File(sweepDirectory, "a"), job.getWorkingDirectory());
+        assertEquals(getInputsLine(), FileUtils.readFileToString(job.getSpringLengthsFile()).trim());
+        assertTrue(job.getOutputFile().exists());
+    }
+
+    @Test
+    public void testSubmitOnFailingJobs() throws InterruptedException {
+        SweepScheduler scheduler = new SweepScheduler(sweepDirectory, 2, 3);
+        SweepJob failing = scheduler.submit("failing", createCommand("fail.csv"), 0);
+        SweepJob flaky = scheduler.submit("flaky", createCommand("flaky.csv"), 0);
+        scheduler.awaitCompletion();
+
+        assertEquals(SweepJob.State.FAILED, failing.getState());
+        assertEquals(3, failing.getNumberOfAttempts());
+        assertEquals(1, (int) failing.getExitValue());
+        assertEquals(SweepJob.State.FINISHED, flaky.getState());
+        assertEquals(2, flaky.getNumberOfAttempts());
+    }
+
+    @Test
+    public void testSubmitOnPriorities() throws InterruptedException, IOException {
+        SweepScheduler scheduler = new SweepScheduler(sweepDirectory, 1, 1);
+        scheduler.submit("first", createCommand("slow.csv"), 0);
+        Thread.sleep(100);
+        scheduler.submit("low", createCommand("low.csv"), 1);
+        scheduler.submit("high", createCommand("high.csv"), 5);
+        scheduler.submit("medium", createCommand("medium.csv"), 3);
+        scheduler.awaitCompletion();
+
+        assertEquals(Arrays.asList("slow.csv", "high.csv", "medium.csv", "low.csv"), FileUtils.readLines(order));
+    }
+
+    @Test
+    public void testResumeSkipsFinishedJobs() throws InterruptedException, IOException {
+        SweepScheduler scheduler = new SweepScheduler(sweepDirectory, 2, 1);
+        scheduler.submit("a", createCommand("a.csv"), 0);
+        scheduler.submit("b", createCommand("fail.csv"), 0);
+        scheduler.awaitCompletion();
+
+        SweepScheduler resumed = new SweepScheduler(sweepDirectory, 2, 1);
+        List<SweepJob> jobs = resumed.getJobs();
+        assertEquals(2, jobs.size());
+        assertEquals(SweepJob.State.FINISHED, resumed.getJob("a").getState());
+        assertEquals(SweepJob.State.FAILED, resumed.getJob("b").getState());
+
+        resumed.submit("a", createCommand("a.csv"), 0);
+        resumed.resume();
+        resumed.awaitCompletion();
+
+        List<String> runs = FileUtils.readLines(order);
+        assertEquals(3, runs.size());
+        assertEquals(1, Collections.frequency(runs, "a.csv"));
+    }
+
+    @Test
+    public void testSubmitOnCachedResult() throws InterruptedException, IOException {
+        ResultCache cache = new ResultCache(new File(sweepDirectory, "cache"), 1024);
+        SweepScheduler scheduler = new SweepScheduler(new File(sweepDirectory, "first"), 1, 1);
+        scheduler.setResultCache(cache);
+        scheduler.submit("a", createCommand("a.csv"), 0);
+        scheduler.awaitCompletion();
+
+        SweepScheduler repetition = new SweepScheduler(new File(sweepDirectory, "second"), 1, 1);
+        repetition.setResultCache(cache);
+        SweepJob job = repetition.submit("a", createCommand("a.csv"), 0);
+        repetition.awaitCompletion();
+
+        assertEquals(SweepJob.State.FINISHED, job.getState());
+        assertEquals(1, FileUtils.readLines(order).size());
+        assertEquals(getInputsLine(), FileUtils.readFileToString(job.getSpringLengthsFile()).trim());
+    }
+
+    private String getInputsLine() {
+        return new File("masses.csv").getAbsolutePath() + "," + new File("connection-map.csv").getAbsolutePath();
+    }
+
+    @Test
+    public void testSubmitOnRelativeInputPaths() throws InterruptedException, IOException {
+        File inputs = new File(sweepDirectory, "inputs");
+        GrammarParser parser = new GrammarParser();
+        parser.parse("shoulder 0 0\nelbow 0 10\nhand 0 20\ninput 0 3\ninput 0 7");
+        FileUtils.writeStringToFile(new File(inputs, "masses.csv"), GraphConverter.toMassesCsv(parser.getGraph()));
+        FileUtils.writeStringToFile(new File(inputs, "connection-map.csv"), GraphConverter.toConnectionMapCsv(parser.getGraph()));
+        StubToolbox.writeLauncher(new File(inputs, "stub.sh"), 10, StubToolbox.UNLIMITED_RATE, 0);
+        String relativeInputs = sweepDirectory.getName() + File.separator + "inputs" + File.separator;
+
+        SweepScheduler scheduler = new SweepScheduler(new File(sweepDirectory, "jobs"), 1, 1);
+        SweepJob job = scheduler.submit("a", new SimulationCommand(relativeInputs + "stub.sh", relativeInputs + "masses.csv",
+                relativeInputs + "connection-map.csv", "springLengths.csv", relativeInputs + "angles.csv", "", true), 0);
+        scheduler.awaitCompletion();
+
+        assertEquals(FileUtils.readFileToString(job.getOutputFile()), 0, (int) job.getExitValue());
+        assertEquals(SweepJob.State.FINISHED, job.getState());
+        assertEquals(new File(inputs, "masses.csv").getAbsolutePath(), job.getCommand().getMassesFile());
+        assertEquals(10, FileUtils.readLines(job.getSpringLengthsFile()).size());
+    }
+
+    @Test(timeout = 10000)
+    public void testAwaitCompletionAfterShutdown() throws InterruptedException {
+        SweepScheduler scheduler = new SweepScheduler(sweepDirectory, 1, 1);
+        SweepJob running = scheduler.submit("running", createCommand("slow.csv"), 0);
+        SweepJob queued = scheduler.submit("queued", createCommand("a.csv"), 0);
+        Thread.sleep(100);
+        scheduler.shutdown();
+        scheduler.awaitCompletion();
+
+        assertEquals(SweepJob.State.QUEUED, running.getState());
+        assertEquals(SweepJob.State.QUEUED, queued.getState());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSubmitAfterShutdown() {
+        SweepScheduler scheduler = new SweepScheduler(sweepDirectory, 1, 1);
+        scheduler.shutdown();
+        scheduler.submit("a", createCommand("a.csv"), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubmitOnDuplicateName() throws InterruptedException {
+        SweepScheduler scheduler = new SweepScheduler(sweepDirectory, 1, 1);
+        scheduler.submit("a", createCommand("a.csv"), 0);
+        scheduler.awaitCompletion();
+        scheduler.submit("a", createCommand("b.csv"), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubmitOnNestedName() {
+        new SweepScheduler(sweepDirectory, 1, 1).submit("a" + File.separator + "..", createCommand("a.csv"), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorOnZeroConcurrency() {
+        new SweepScheduler(sweepDirectory, 0, 1);
+    }
+
+}
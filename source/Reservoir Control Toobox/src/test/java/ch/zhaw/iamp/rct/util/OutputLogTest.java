@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.util;
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class OutputLogTest {
+
+    @Test
+    public void testAdd() {
+        OutputLog log = new OutputLog(3);
+        log.add("a");
+        log.add("b");
+
+        assertEquals(Arrays.asList("a", "b"), log.getLines());
+        assertEquals(0, log.getNumberOfDroppedLines());
+    }
+
+    @Test
+    public void testAddOnFullLog() {
+        OutputLog log = new OutputLog(3);
+
+        for (String line : new String[]{"a", "b", "c", "d", "e"}) {
+            log.add(line);
+        }
+
+        assertEquals(Arrays.asList("c", "d", "e"), log.getLines());
+        assertEquals(3, log.getNumberOfLines());
+        assertEquals(2, log.getNumberOfDroppedLines());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorOnZeroCapacity() {
+        new OutputLog(0);
+    }
+
+}
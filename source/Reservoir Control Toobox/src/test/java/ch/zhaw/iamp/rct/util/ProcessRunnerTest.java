@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ProcessRunnerTest {
+
+    private static ProcessRunner createShellRunner(String script, long timeoutInMilliseconds) {
+        assumeTrue(new File("/bin/sh").canExecute());
+        return new ProcessRunner(Arrays.asList("/bin/sh", "-c", script), 100, timeoutInMilliseconds);
+    }
+
+    @Test
+    public void testStartReadsBothStreams() throws IOException, InterruptedException, ExecutionException {
+        ProcessRunner runner = createShellRunner("echo out; echo err 1>&2; exit 3", ProcessRunner.NO_TIMEOUT);
+        final StringBuilder errors = new StringBuilder();
+        final CountDownLatch ended = new CountDownLatch(1);
+        final Integer[] exitValue = new Integer[1];
+        runner.setListener(new ProcessListener() {
+            @Override
+            public void lineRead(String line, boolean isError) {
+                if (isError) {
+                    errors.append(line);
+                }
+            }
+
+            @Override
+            public void processEnded(Integer value, boolean isTimedOut) {
+                exitValue[0] = value;
+                ended.countDown();
+            }
+        });
+
+        assertEquals(3, (int) runner.start().get());
+        assertTrue(ended.await(5, TimeUnit.SECONDS));
+        assertEquals(3, (int) exitValue[0]);
+        assertEquals("err", errors.toString());
+        assertTrue(runner.getLog().getLines().containsAll(Arrays.asList("out", "err")));
+    }
+
+    @Test
+    public void testStartOnLongOutput() throws IOException, InterruptedException, ExecutionException {
+        ProcessRunner runner = createShellRunner("i=0; while [ $i -lt 5000 ]; do echo $i; echo $i 1>&2; i=$((i+1)); done", ProcessRunner.NO_TIMEOUT);
+
+        assertEquals(0, (int) runner.start().get());
+        assertEquals(100, runner.getLog().getNumberOfLines());
+        assertEquals(9900, runner.getLog().getNumberOfDroppedLines());
+    }
+
+    @Test
+    public void testStartOnTimeout() throws IOException, InterruptedException, ExecutionException {
+        ProcessRunner runner = createShellRunner("exec sleep 10", 200);
+        long startTime = System.currentTimeMillis();
+        Future<Integer> exitValue = runner.start();
+
+        assertNotEquals(0, (int) exitValue.get());
+        assertTrue(runner.isTimedOut());
+        assertTrue(System.currentTimeMillis() - startTime < 5000);
+    }
+
+    @Test
+    public void testCancelEndsAfterLastLine() throws IOException, InterruptedException {
+        ProcessRunner runner = createShellRunner("while true; do echo line; done", ProcessRunner.NO_TIMEOUT);
+        final CountDownLatch firstLine = new CountDownLatch(1);
+        final CountDownLatch ended = new CountDownLatch(1);
+        final boolean[] isLineAfterEnd = new boolean[1];
+        runner.setListener(new ProcessListener() {
+            @Override
+            public void lineRead(String line, boolean isError) {
+                isLineAfterEnd[0] |= ended.getCount() == 0;
+                firstLine.countDown();
+            }
+
+            @Override
+            public void processEnded(Integer value, boolean isTimedOut) {
+                ended.countDown();
+            }
+        });
+        Future<Integer> exitValue = runner.start();
+
+        assertTrue(firstLine.await(5, TimeUnit.SECONDS));
+        exitValue.cancel(true);
+        assertTrue(ended.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertFalse(isLineAfterEnd[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorOnEmptyCommand() {
+        new ProcessRunner();
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GramAccumulatorTest {
+
+    private final double DELTA = 0.00001;
+
+    @Test
+    public void testAddAndSubtractRow() {
+        GramAccumulator accumulator = new GramAccumulator(2, 1);
+        accumulator.addRow(new double[]{1, 2}, new double[]{3});
+        accumulator.addRow(new double[]{5, 7}, new double[]{1});
+        accumulator.subtractRow(new double[]{1, 2}, new double[]{3});
+
+        assertEquals(1, accumulator.getNumberOfRows());
+        assertArrayEquals(new double[]{25, 35}, accumulator.getGram().getRow(0), DELTA);
+        assertArrayEquals(new double[]{35, 49}, accumulator.getGram().getRow(1), DELTA);
+        assertArrayEquals(new double[]{5, 7}, accumulator.getCross().getColumn(0), DELTA);
+        assertArrayEquals(new double[]{1}, accumulator.getSumOfSquaredTargets(), DELTA);
+    }
+
+    @Test
+    public void testMergeAndSolve() {
+        GramAccumulator first = new GramAccumulator(2, 1);
+        GramAccumulator second = new GramAccumulator(2, 1);
+        first.addRow(new double[]{1, 0}, new double[]{2});
+        first.addRow(new double[]{1, 1}, new double[]{5});
+        second.addRow(new double[]{0, 1}, new double[]{3});
+        first.merge(second);
+
+        assertEquals(3, first.getNumberOfRows());
+        assertArrayEquals(new double[]{2, 3}, first.solve().getRow(0), DELTA);
+        assertEquals(0, first.getMeanSquaredErrors(first.solve())[0], DELTA);
+    }
+
+    @Test(expected = DimensionMismatchException.class)
+    public void testAddRowOnWrongNumberOfSprings() {
+        new GramAccumulator(2, 1).addRow(new double[]{1, 2, 3}, new double[]{1});
+    }
+
+}
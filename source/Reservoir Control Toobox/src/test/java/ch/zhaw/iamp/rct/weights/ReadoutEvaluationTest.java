@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class ReadoutEvaluationTest {
+
+    private final double DELTA = 0.00001;
+    private double[][] springLengths;
+    private double[][] target;
+    private double[][] weights;
+
+    @Before
+    public void setUp() {
+        springLengths = new double[10][2];
+        target = new double[5][1];
+
+        for (int i = 0; i < springLengths.length; i++) {
+            springLengths[i][0] = i % 5;
+            springLengths[i][1] = 1;
+        }
+
+        for (int i = 0; i < target.length; i++) {
+            target[i][0] = 2 * i + 1;
+        }
+
+        weights = new double[][]{{2, 1}};
+    }
+
+    @Test
+    public void testEvaluateOnPerfectWeights() {
+        ReadoutEvaluation evaluation = ReadoutEvaluation.evaluate(weights, springLengths, target, 3);
+
+        assertEquals(1, evaluation.getNumberOfOutputs());
+        assertEquals(7, evaluation.getNumberOfSamples());
+        assertEquals(0, evaluation.getMse(0), DELTA);
+        assertEquals(0, evaluation.getNrmse(0), DELTA);
+        assertEquals(1, evaluation.getCorrelation(0), DELTA);
+    }
+
+    @Test
+    public void testEvaluateOnShiftedWeights() {
+        weights = new double[][]{{2, 2}};
+        ReadoutEvaluation evaluation = ReadoutEvaluation.evaluate(weights, springLengths, target, 0);
+
+        assertEquals(1, evaluation.getMse(0), DELTA);
+        assertEquals(1 / Math.sqrt(8), evaluation.getNrmse(0), DELTA);
+        assertEquals(1, evaluation.getCorrelation(0), DELTA);
+    }
+
+    @Test
+    public void testEvaluateOnManyBlocks() {
+        int rows = ReadoutEvaluation.BLOCK_SIZE * 5 + 17;
+        springLengths = new double[rows][2];
+
+        for (int i = 0; i < rows; i++) {
+            springLengths[i][0] = i % 5;
+            springLengths[i][1] = i % 2;
+        }
+
+        ReadoutEvaluation evaluation = ReadoutEvaluation.evaluate(weights, springLengths, target, 100);
+        double sumOfSquaredErrors = 0;
+
+        for (int i = 100; i < rows; i++) {
+            double error = 2 * (i % 5) + (i % 2) - target[i % 5][0];
+            sumOfSquaredErrors += error * error;
+        }
+
+        assertEquals(rows - 100, evaluation.getNumberOfSamples());
+        assertEquals(sumOfSquaredErrors / (rows - 100), evaluation.getMse(0), DELTA);
+    }
+
+    @Test
+    public void testEvaluateOnLargeMean() {
+        int rows = ReadoutEvaluation.BLOCK_SIZE * 3 + 5;
+        springLengths = new double[rows][2];
+        target = new double[rows][1];
+
+        for (int i = 0; i < rows; i++) {
+            springLengths[i][0] = Math.sin(i);
+            springLengths[i][1] = 1;
+            target[i][0] = 1e9 + 1e-3 * Math.sin(i);
+        }
+
+        weights = new double[][]{{1e-3, 1e9}};
+        ReadoutEvaluation evaluation = ReadoutEvaluation.evaluate(weights, springLengths, target, 0);
+
+        assertEquals(0, evaluation.getNrmse(0), 1e-3);
+        assertEquals(1, evaluation.getCorrelation(0), 1e-3);
+    }
+
+    @Test(expected = DimensionMismatchException.class)
+    public void testEvaluateOnWrongNumberOfSprings() {
+        weights = new double[][]{{2, 1, 0}};
+        ReadoutEvaluation.evaluate(weights, springLengths, target, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEvaluateOnTooLargeOffset() {
+        ReadoutEvaluation.evaluate(weights, springLengths, target, 10);
+    }
+
+}
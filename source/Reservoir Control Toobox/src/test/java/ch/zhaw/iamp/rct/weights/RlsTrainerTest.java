@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import java.util.Random;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RlsTrainerTest {
+
+    private final double DELTA = 0.00001;
+
+    @Test
+    public void testAddRowOnExactSolution() {
+        RlsTrainer trainer = new RlsTrainer(2, 1);
+        trainer.addRow(new double[]{1, 0}, new double[]{2});
+        trainer.addRow(new double[]{1, 1}, new double[]{5});
+        trainer.addRow(new double[]{0, 1}, new double[]{3});
+
+        assertEquals(3, trainer.getNumberOfRows());
+        assertArrayEquals(new double[]{2, 3}, trainer.getWeights().getRow(0), DELTA);
+    }
+
+    @Test
+    public void testAddRowEqualsRidgeSolution() {
+        Random random = new Random(3);
+        RlsTrainer trainer = new RlsTrainer(4, 2, 0.5, 1);
+        GramAccumulator accumulator = new GramAccumulator(4, 2);
+
+        for (int i = 0; i < 50; i++) {
+            double[] row = {random.nextDouble(), random.nextDouble(), random.nextDouble(), 1};
+            double[] target = {random.nextGaussian(), row[0] - row[2]};
+            trainer.addRow(row, target);
+            accumulator.addRow(row, target);
+        }
+
+        RealMatrix expected = accumulator.solve(0.5);
+
+        for (int o = 0; o < 2; o++) {
+            assertArrayEquals(expected.getRow(o), trainer.getWeights().getRow(o), DELTA);
+        }
+    }
+
+    @Test
+    public void testForgettingFollowsChangedTarget() {
+        RlsTrainer forgetting = new RlsTrainer(1, 1, 1e-6, 0.9);
+        RlsTrainer remembering = new RlsTrainer(1, 1, 1e-6, 1);
+
+        for (int i = 0; i < 100; i++) {
+            forgetting.addRow(new double[]{1}, new double[]{i < 50 ? 1 : 4});
+            remembering.addRow(new double[]{1}, new double[]{i < 50 ? 1 : 4});
+        }
+
+        assertEquals(4, forgetting.getWeights().getEntry(0, 0), 0.05);
+        assertEquals(2.5, remembering.getWeights().getEntry(0, 0), DELTA);
+    }
+
+    @Test(expected = DimensionMismatchException.class)
+    public void testAddRowOnWrongNumberOfOutputs() {
+        new RlsTrainer(2, 1).addRow(new double[]{1, 2}, new double[]{1, 2});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorOnInvalidForgettingFactor() {
+        new RlsTrainer(2, 1, 1, 1.5);
+    }
+
+}
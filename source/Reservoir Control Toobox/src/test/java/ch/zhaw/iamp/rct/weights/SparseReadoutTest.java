@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class SparseReadoutTest {
+
+    private final double DELTA = 0.000001;
+    private RealMatrix A;
+    private RealMatrix b;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(5);
+        A = MatrixUtils.createRealMatrix(200, 10);
+        b = MatrixUtils.createRealMatrix(200, 2);
+
+        for (int i = 0; i < A.getRowDimension(); i++) {
+            for (int j = 0; j < A.getColumnDimension(); j++) {
+                A.setEntry(i, j, random.nextGaussian());
+            }
+
+            b.setEntry(i, 0, 3 * A.getEntry(i, 2) - A.getEntry(i, 7));
+            b.setEntry(i, 1, 0.5 * A.getEntry(i, 7) + 2 * A.getEntry(i, 4));
+        }
+    }
+
+    @Test
+    public void testSelectFindsUsedSprings() {
+        SparseReadout readout = SparseReadout.select(A, b, 0, 3);
+        RealMatrix weights = readout.getWeights();
+
+        assertEquals(Arrays.asList(2, 4, 7), readout.getSelectedSprings());
+        assertArrayEquals(new double[]{0, 0, 3, 0, 0, 0, 0, -1, 0, 0}, weights.getRow(0), DELTA);
+        assertArrayEquals(new double[]{0, 0, 0, 0, 2, 0, 0, 0.5, 0, 0}, weights.getRow(1), DELTA);
+    }
+
+    @Test
+    public void testSelectStopsWhenErrorVanishes() {
+        SparseReadout readout = SparseReadout.select(A, b, 10, 8);
+
+        assertEquals(3, readout.getSelectedSprings().size());
+    }
+
+    @Test
+    public void testSelectLimitsSparsity() {
+        SparseReadout readout = SparseReadout.select(A, b, 0, 1);
+
+        assertEquals(1, readout.getSelectedSprings().size());
+        assertEquals(Arrays.asList(2), readout.getSelectedSprings());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSelectOnInvalidSparsity() {
+        SparseReadout.select(A, b, 0, 0);
+    }
+
+}
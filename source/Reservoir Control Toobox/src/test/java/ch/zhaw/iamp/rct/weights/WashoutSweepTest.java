@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import java.util.Random;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class WashoutSweepTest {
+
+    private final double DELTA = 0.000001;
+    private RealMatrix A;
+    private RealMatrix b;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(3);
+        A = MatrixUtils.createRealMatrix(40, 4);
+        b = MatrixUtils.createRealMatrix(8, 2);
+
+        for (int i = 0; i < A.getRowDimension(); i++) {
+            for (int j = 0; j < A.getColumnDimension(); j++) {
+                A.setEntry(i, j, random.nextDouble());
+            }
+        }
+
+        for (int i = 0; i < b.getRowDimension(); i++) {
+            b.setEntry(i, 0, random.nextDouble());
+            b.setEntry(i, 1, i);
+        }
+    }
+
+    @Test
+    public void testSweepEqualsDirectSolutions() {
+        WashoutSweep sweep = WashoutSweep.sweep(A, b, new int[]{10, 0, 25}, 8, 0);
+
+        assertArrayEquals(new int[]{0, 10, 25}, sweep.getOffsets());
+
+        for (int k = 0; k < 3; k++) {
+            int offset = sweep.getOffsets()[k];
+            RealMatrix cut = A.getSubMatrix(offset, 31, 0, A.getColumnDimension() - 1);
+            RealMatrix aligned = Weights.alignTarget(b, offset, cut.getRowDimension());
+            RealMatrix expected = new SingularValueDecomposition(cut).getSolver().solve(aligned).transpose();
+            ReadoutEvaluation evaluation = ReadoutEvaluation.evaluate(expected, A, b, 32);
+
+            for (int o = 0; o < 2; o++) {
+                assertArrayEquals(expected.getRow(o), sweep.getWeights(k).getRow(o), DELTA);
+                assertEquals(evaluation.getMse(o), sweep.getErrors(k)[o], DELTA);
+            }
+
+            assertEquals(8, sweep.getEvaluation(k).getNumberOfSamples());
+        }
+    }
+
+    @Test
+    public void testSweepOnNoiseAmplitude() {
+        WashoutSweep sweep = WashoutSweep.sweep(A, b, new int[]{4}, 8, 0.5);
+        GramAccumulator accumulator = new GramAccumulator(4, 2);
+
+        for (int i = 4; i < 32; i++) {
+            accumulator.addRow(A.getRow(i), b.getRow(i % 8));
+        }
+
+        RealMatrix expected = accumulator.solve(Weights.getNoiseRidge(28) * 0.25);
+
+        for (int o = 0; o < 2; o++) {
+            assertArrayEquals(expected.getRow(o), sweep.getWeights(0).getRow(o), DELTA);
+        }
+    }
+
+    @Test
+    public void testSweepOnTransient() {
+        Random random = new Random(5);
+        RealMatrix linearTarget = MatrixUtils.createRealMatrix(A.getRowDimension(), 1);
+
+        for (int i = 0; i < A.getRowDimension(); i++) {
+            for (int j = 0; j < A.getColumnDimension(); j++) {
+                linearTarget.addToEntry(i, 0, (j + 1) * A.getEntry(i, j));
+
+                if (i < 10) {
+                    A.addToEntry(i, j, 5 * random.nextDouble());
+                }
+            }
+        }
+
+        WashoutSweep sweep = WashoutSweep.sweep(A, linearTarget, new int[]{0, 10, 20}, 8, 0);
+        double[] curve = sweep.getErrorCurve();
+
+        assertTrue(curve[0] > 0.001);
+        assertEquals(0, curve[1], DELTA);
+        assertEquals(0, curve[2], DELTA);
+    }
+
+    @Test
+    public void testBestIndex() {
+        WashoutSweep sweep = WashoutSweep.sweep(A, b, new int[]{0, 20, 28}, 8, 0);
+        double[] curve = sweep.getErrorCurve();
+
+        for (double error : curve) {
+            assertTrue(curve[sweep.getBestIndex()] <= error);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSweepOnTooLargeOffset() {
+        WashoutSweep.sweep(A, b, new int[]{0, 32}, 8, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSweepWithoutTestRows() {
+        WashoutSweep.sweep(A, b, new int[]{0}, 0, 0);
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+public class WeightsFactorizationTest {
+
+    private final double DELTA = 0.0000001;
+    private final int OFFSET = 7;
+    private final File factorizationFile = new File("testFactorization" + WeightsFactorization.FILE_ENDING);
+    private final File recording = new File("testRecording.csv");
+    private final File target = new File("testTarget.csv");
+    private final File weights = new File("testWeights.csv");
+    private RealMatrix A;
+    private RealMatrix b;
+
+    @Before
+    public void setUp() throws IOException {
+        Random random = new Random(1);
+        A = MatrixUtils.createRealMatrix(60, 5);
+        b = MatrixUtils.createRealMatrix(20, 2);
+
+        for (int i = 0; i < A.getRowDimension(); i++) {
+            for (int j = 0; j < A.getColumnDimension(); j++) {
+                A.setEntry(i, j, random.nextDouble() * 10);
+            }
+        }
+
+        for (int i = 0; i < b.getRowDimension(); i++) {
+            b.setEntry(i, 0, Math.sin(i));
+            b.setEntry(i, 1, Math.cos(i));
+        }
+
+        Weights.matrixToCsv(A, recording.getPath());
+        Weights.matrixToCsv(b, target.getPath());
+    }
+
+    @After
+    public void cleanUp() {
+        factorizationFile.delete();
+        recording.delete();
+        target.delete();
+        weights.delete();
+        WeightsFactorization.getDefaultFile(recording.getPath(), OFFSET).delete();
+    }
+
+    @Test
+    public void testSolveEqualsPseudoInverse() {
+        WeightsFactorization factorization = WeightsFactorization.compute(A, OFFSET);
+
+        assertEquals(53, factorization.getNumberOfRows());
+        assertEquals(5, factorization.getNumberOfSprings());
+        assertEquals(5, factorization.getRank());
+        assertMatrixEquals(getExpectedWeights(), factorization.solve(b, 0));
+    }
+
+    @Test
+    public void testSolveEqualsRidgeRegression() {
+        WeightsFactorization factorization = WeightsFactorization.compute(A, OFFSET);
+
+        assertMatrixEquals(getExpectedWeights(17.5), factorization.solve(b, 17.5));
+        assertMatrixEquals(getExpectedWeights(Weights.getNoiseRidge(53)), factorization.solve(b));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        WeightsFactorization factorization = WeightsFactorization.compute(A, OFFSET);
+        factorization.save(factorizationFile, recording);
+        WeightsFactorization loaded = WeightsFactorization.load(factorizationFile, recording);
+
+        assertEquals(OFFSET, loaded.getOffset());
+        assertEquals(factorization.getRank(), loaded.getRank());
+        assertMatrixEquals(factorization.solve(b), loaded.solve(b));
+    }
+
+    @Test
+    public void testLoadOnChangedRecording() throws IOException {
+        WeightsFactorization.compute(A, OFFSET).save(factorizationFile, recording);
+        long lastModified = recording.lastModified();
+        A.setEntry(OFFSET, 0, 1);
+        Weights.matrixToCsv(A, recording.getPath());
+        recording.setLastModified(lastModified);
+
+        assertNull(WeightsFactorization.load(factorizationFile, recording));
+    }
+
+    @Test
+    public void testLoadOnMissingFile() throws IOException {
+        assertNull(WeightsFactorization.load(factorizationFile, recording));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadOnInvalidFile() throws IOException {
+        FileUtils.writeStringToFile(factorizationFile, "no factorization");
+        WeightsFactorization.load(factorizationFile, recording);
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadOnTruncatedFile() throws IOException {
+        WeightsFactorization.compute(A, OFFSET).save(factorizationFile, recording);
+        byte[] content = FileUtils.readFileToByteArray(factorizationFile);
+        FileUtils.writeByteArrayToFile(factorizationFile, Arrays.copyOf(content, content.length - 8));
+        WeightsFactorization.load(factorizationFile, recording);
+    }
+
+    @Test
+    public void testCalculateWeightsOnCorruptFactorization() throws IOException {
+        File stored = WeightsFactorization.getDefaultFile(recording.getPath(), OFFSET);
+        FileUtils.writeStringToFile(stored, "no factorization");
+        Weights.calculateWeights(recording.getPath(), target.getPath(), weights.getPath(), OFFSET, 1, null);
+
+        assertMatrixEquals(getExpectedWeights(Weights.getNoiseRidge(53)), Weights.csvToMatrix(weights.getPath()));
+        assertNotNull(WeightsFactorization.load(stored, recording));
+    }
+
+    private RealMatrix getCut() {
+        return A.getSubMatrix(OFFSET, A.getRowDimension() - 1, 0, A.getColumnDimension() - 1);
+    }
+
+    private RealMatrix getExpectedWeights() {
+        RealMatrix cut = getCut();
+        RealMatrix aligned = Weights.alignTarget(b, OFFSET, cut.getRowDimension());
+
+        return new SingularValueDecomposition(cut).getSolver().solve(aligned).transpose();
+    }
+
+    private RealMatrix getExpectedWeights(double ridge) {
+        RealMatrix cut = getCut();
+        RealMatrix aligned = Weights.alignTarget(b, OFFSET, cut.getRowDimension());
+        RealMatrix gram = cut.transpose().multiply(cut);
+
+        for (int i = 0; i < gram.getRowDimension(); i++) {
+            gram.addToEntry(i, i, ridge);
+        }
+
+        return new LUDecomposition(gram).getSolver().solve(cut.transpose().multiply(aligned)).transpose();
+    }
+
+    private void assertMatrixEquals(RealMatrix expected, RealMatrix actual) {
+        assertEquals(expected.getRowDimension(), actual.getRowDimension());
+        assertEquals(expected.getColumnDimension(), actual.getColumnDimension());
+
+        for (int i = 0; i < expected.getRowDimension(); i++) {
+            assertArrayEquals(expected.getRow(i), actual.getRow(i), DELTA);
+        }
+    }
+
+}
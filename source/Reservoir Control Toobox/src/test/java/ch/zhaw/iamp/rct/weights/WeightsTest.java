@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2014 René Bernhardsgrütter, Christoph Walter Senn at Zurich
+ * University of Applied Sciences; 2014 Helmut Hauser at University of Zurich
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package ch.zhaw.iamp.rct.weights;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class WeightsTest {
+
+    private final double DELTA = 0.00001;
+    private final File csvFile = new File("testMatrix.csv");
+
+    @After
+    public void cleanUp() {
+        csvFile.delete();
+    }
+
+    @Test
+    public void testCsvToMatrix() throws IOException {
+        FileUtils.writeStringToFile(csvFile, "# comment\n1,2\n\n3, \n");
+        RealMatrix matrix = Weights.csvToMatrix(csvFile.getPath());
+
+        assertEquals(2, matrix.getRowDimension());
+        assertEquals(2, matrix.getColumnDimension());
+        assertEquals(2, matrix.getEntry(0, 1), DELTA);
+        assertEquals(3, matrix.getEntry(1, 0), DELTA);
+        assertEquals(0, matrix.getEntry(1, 1), DELTA);
+    }
+
+    @Test
+    public void testAlignTarget() {
+        RealMatrix b = MatrixUtils.createColumnRealMatrix(new double[]{0, 1, 2});
+        RealMatrix aligned = Weights.alignTarget(b, 4, 5);
+
+        assertArrayEquals(new double[]{1, 2, 0, 1, 2}, aligned.getColumn(0), DELTA);
+    }
+
+    @Test
+    public void testAlignTargetOnLongerTarget() {
+        RealMatrix b = MatrixUtils.createColumnRealMatrix(new double[]{0, 1, 2, 3});
+        RealMatrix aligned = Weights.alignTarget(b, 0, 2);
+
+        assertArrayEquals(new double[]{0, 1}, aligned.getColumn(0), DELTA);
+    }
+
+    @Test
+    public void testGetNoiseRidge() {
+        RealMatrix A = MatrixUtils.createRealMatrix(30000, 2);
+        RealMatrix noisy = Weights.addNoise(A, new Random(7));
+        RealMatrix gram = noisy.transpose().multiply(noisy);
+
+        assertEquals(Weights.getNoiseRidge(30000), gram.getEntry(0, 0), 200);
+        assertEquals(Weights.getNoiseRidge(30000), gram.getEntry(1, 1), 200);
+        assertEquals(0, gram.getEntry(0, 1), 200);
+    }
+
+}